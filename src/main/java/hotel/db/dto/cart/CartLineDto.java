@@ -0,0 +1,24 @@
+package hotel.db.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Một dòng giỏ hàng đọc bằng 1 câu join (order + order detail + phòng + ảnh bìa), xem OrderRepository.findCartLines
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLineDto {
+    private Integer orderId;
+    private Integer roomId;
+    private String roomType;
+    private String roomNumber;
+    private BigDecimal price;
+    private LocalDateTime checkIn;
+    private LocalDateTime checkOut;
+    private String orderDescription;
+    private String imageRoom;
+}
@@ -0,0 +1,19 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+    private String name;
+    private Integer size;
+    private Long hits;
+    private Long misses;
+    private Long evictions;
+    private Long invalidations;
+    // hits / (hits + misses), 0 khi chưa có request
+    private Double hitRate;
+}
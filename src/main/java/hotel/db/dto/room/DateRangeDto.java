@@ -0,0 +1,16 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Khoảng ngày nửa mở [start, end), định dạng yyyy-MM-dd.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DateRangeDto {
+    private String start;
+    private String end;
+}
@@ -0,0 +1,20 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibleDateSearchDto {
+    private Integer nights;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    // Sắp xếp theo giá tăng dần
+    private List<RoomFlexibleWindowDto> rooms;
+    private List<RoomTypeFlexibleWindowDto> roomTypes;
+}
@@ -0,0 +1,19 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupAllocatedRoomDto {
+    private Integer roomId;
+    private String roomNumber;
+    private String roomType;
+    private String bedType;
+    private Integer floorId;
+    private BigDecimal price;
+}
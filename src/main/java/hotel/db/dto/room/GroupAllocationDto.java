@@ -0,0 +1,22 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupAllocationDto {
+    // Đủ phòng cho mọi yêu cầu hay không
+    private boolean feasible;
+    private List<GroupAllocatedRoomDto> rooms;
+    private Integer nights;
+    private BigDecimal totalAmount;
+    private Integer floorCount;
+    // Các yêu cầu còn thiếu phòng, ví dụ "DELUXE/KING: thiếu 2"
+    private List<String> shortages;
+}
@@ -0,0 +1,19 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupBookingRequestDto {
+    // dd/MM/yyyy
+    private String checkIn;
+    private String checkOut;
+    private List<GroupRoomRequirementDto> requirements;
+    // Tầng ưu tiên (Room.floorId), null = không ưu tiên
+    private Integer preferredFloorId;
+}
@@ -0,0 +1,15 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupRoomRequirementDto {
+    private String roomType;
+    // null = loại giường nào cũng được
+    private String bedType;
+    private Integer count;
+}
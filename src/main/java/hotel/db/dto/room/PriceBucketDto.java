@@ -0,0 +1,17 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceBucketDto {
+    // Khoảng giá [minPrice, maxPrice), maxPrice null = không giới hạn
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Long count;
+}
@@ -0,0 +1,15 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomDetailPageDto {
+    // Thông tin phòng, ảnh, view
+    private RoomDetailResponseDto room;
+    // Các khoảng ngày bị chặn cho lịch check-in/check-out
+    private RoomUnavailableDatesDto unavailableDates;
+}
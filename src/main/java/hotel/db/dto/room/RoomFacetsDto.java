@@ -0,0 +1,25 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Số phòng theo từng giá trị bộ lọc. Mỗi nhóm được đếm với tất cả bộ lọc khác đang chọn,
+ * trừ chính nhóm đó, để biết chọn giá trị nào sẽ ra bao nhiêu phòng.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomFacetsDto {
+    // Số phòng khớp toàn bộ bộ lọc hiện tại
+    private Long total;
+    private Map<String, Long> roomTypes;
+    private Map<String, Long> bedTypes;
+    // floorId -> số phòng
+    private Map<Integer, Long> floors;
+    private List<PriceBucketDto> priceBuckets;
+}
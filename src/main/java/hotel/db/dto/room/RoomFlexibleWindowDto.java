@@ -0,0 +1,22 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomFlexibleWindowDto {
+    private Integer roomId;
+    private String roomNumber;
+    private String roomType;
+    private String bedType;
+    private BigDecimal price;
+    private String imageRoom;
+    // Các khoảng ngày có thể nhận phòng [start, end), trả phòng = ngày nhận + số đêm
+    private List<DateRangeDto> checkInWindows;
+}
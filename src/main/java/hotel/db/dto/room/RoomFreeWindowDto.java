@@ -0,0 +1,22 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomFreeWindowDto {
+    private Integer roomId;
+    private String roomNumber;
+    private String roomType;
+    private String bedType;
+    private BigDecimal price;
+    // Nhận phòng 14:00 ngày checkIn, trả phòng 12:00 ngày checkOut
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+}
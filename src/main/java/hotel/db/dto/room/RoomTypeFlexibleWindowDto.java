@@ -0,0 +1,19 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomTypeFlexibleWindowDto {
+    private String roomType;
+    private BigDecimal minPrice;
+    private Integer availableRooms;
+    // Ngày nhận phòng mà ít nhất một phòng thuộc loại này còn trống đủ số đêm
+    private List<DateRangeDto> checkInWindows;
+}
@@ -0,0 +1,19 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomUnavailableDatesDto {
+    // Các ngày không cho chọn làm ngày check-in
+    private List<DateRangeDto> checkIn;
+    // Các ngày không cho chọn làm ngày check-out
+    private List<DateRangeDto> checkOut;
+    // Các ngày có khách ở - dùng cho form dừng hoạt động phòng
+    private List<DateRangeDto> disable;
+}
@@ -0,0 +1,23 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Lưới phòng x ngày cho lễ tân. Mỗi dòng mã hoá run-length: [số đêm, mã trạng thái] hoặc [số đêm, mã trạng thái, id]
+// id là orderDetailId với trạng thái booking, maintenanceId với trạng thái bảo trì; mã trạng thái tra trong states (0 = FREE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TapeChartDto {
+    private LocalDate from;
+    private int days;
+    private List<String> states;
+    private List<TapeChartRowDto> rows;
+    // Tên khách theo orderDetailId
+    private Map<Integer, String> guests;
+}
@@ -0,0 +1,17 @@
+package hotel.db.dto.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TapeChartRowDto {
+    private Integer roomId;
+    private String roomNumber;
+    private Integer floorNumber;
+    private List<int[]> runs;
+}
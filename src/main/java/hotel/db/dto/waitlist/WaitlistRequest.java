@@ -0,0 +1,18 @@
+package hotel.db.dto.waitlist;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Đăng ký chờ: roomId (một phòng) hoặc roomType (bất kỳ phòng nào của loại đó), đêm [checkIn, checkOut)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistRequest {
+    private Integer roomId;
+    private String roomType;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+}
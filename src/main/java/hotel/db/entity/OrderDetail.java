@@ -1,5 +1,6 @@
 package hotel.db.entity;
 
+import hotel.service.availability.AvailabilityEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@EntityListeners(AvailabilityEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
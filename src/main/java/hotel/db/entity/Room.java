@@ -1,5 +1,6 @@
 package hotel.db.entity;
 
+import hotel.service.catalog.CatalogEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -9,6 +10,7 @@ import java.math.BigDecimal;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Data
 @NoArgsConstructor
 @Table(name = "rooms")
@@ -22,6 +24,10 @@ public class Room extends AbstractVersion {
     @Column(name = "room_number", nullable = false, unique = true, length = 50)
     private String roomNumber;
 
+    // Khoá số của roomNumber để sort phía DB (room_number là VARCHAR)
+    @Column(name = "room_number_sort")
+    private Integer roomNumberSort;
+
     @Column(name = "room_type", length = 100)
     private String roomType;
 
@@ -54,5 +60,14 @@ public class Room extends AbstractVersion {
 
     @Column(name = "system_status",length = 50)
     private String systemStatus;
-}
 
+    @PrePersist
+    @PreUpdate
+    void syncRoomNumberSort() {
+        if (roomNumber != null && roomNumber.matches("\\d{1,9}")) {
+            roomNumberSort = Integer.valueOf(roomNumber);
+        } else {
+            roomNumberSort = null;
+        }
+    }
+}
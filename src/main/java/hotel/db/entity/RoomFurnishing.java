@@ -1,5 +1,6 @@
 package hotel.db.entity;
 
+import hotel.service.catalog.CatalogEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,6 +8,7 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Data
 @EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
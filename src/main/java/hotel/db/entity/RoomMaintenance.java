@@ -1,5 +1,6 @@
 package hotel.db.entity;
 
+import hotel.service.availability.AvailabilityEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@EntityListeners(AvailabilityEntityListener.class)
 @Data
 @NoArgsConstructor
 @Table(name = "room_maintenance")
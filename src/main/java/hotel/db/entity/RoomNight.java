@@ -0,0 +1,48 @@
+package hotel.db.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Sổ tồn kho theo đêm: mỗi dòng là một đêm của phòng đang bị booking hoặc lịch bảo trì chiếm.
+// Unique (room_id, night, booking_slot) chặn 2 booking giữ cùng một đêm ở tầng DB,
+// booking_slot là cột sinh tự động (1 với booking, NULL với bảo trì), xem db/room_nights_ledger.sql.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "room_nights")
+public class RoomNight {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "room_night_id")
+    private Long roomNightId;
+
+    @Column(name = "room_id", nullable = false)
+    private Integer roomId;
+
+    @Column(name = "night", nullable = false)
+    private LocalDate night;
+
+    @Column(name = "order_detail_id")
+    private Integer orderDetailId;
+
+    @Column(name = "room_maintenance_id")
+    private Integer roomMaintenanceId;
+
+    // Trạng thái của booking (CART, RESERVED, OCCUPIED...) hoặc của lịch bảo trì
+    @Column(name = "status")
+    private String status;
+
+    // Giữ phòng của giỏ hàng trong session: không có order detail, hết hạn ở holdExpiresAt (db/room_night_holds.sql)
+    @Column(name = "hold_token", length = 64)
+    private String holdToken;
+
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+}
@@ -1,6 +1,6 @@
 package hotel.db.entity;
 
-
+import hotel.service.catalog.CatalogEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
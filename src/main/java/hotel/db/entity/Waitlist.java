@@ -0,0 +1,50 @@
+package hotel.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Khách đăng ký chờ phòng: một phòng cụ thể (room_id) hoặc bất kỳ phòng nào của một loại phòng (room_type),
+// cho các đêm [start_date, end_date). Xem db/waitlists.sql.
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "waitlists")
+public class Waitlist extends AbstractVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "waitlist_id")
+    private Integer waitlistId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "room_id")
+    private Integer roomId;
+
+    @Column(name = "room_type", length = 50)
+    private String roomType;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    // WAITING, NOTIFIED, CANCELLED (WaitlistStatus)
+    @Column(name = "status", length = 20)
+    private String status;
+
+    // Phòng đã được báo trống cho khách
+    @Column(name = "notified_room_id")
+    private Integer notifiedRoomId;
+
+    @Column(name = "notified_at")
+    private LocalDateTime notifiedAt;
+}
@@ -0,0 +1,7 @@
+package hotel.db.enums;
+
+public class WaitlistStatus {
+    public static final String WAITING = "WAITING"; // Đang chờ phòng trống
+    public static final String NOTIFIED = "NOTIFIED"; // Đã báo cho khách là có phòng
+    public static final String CANCELLED = "CANCELLED"; // Khách huỷ đăng ký
+}
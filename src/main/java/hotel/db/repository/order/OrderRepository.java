@@ -1,13 +1,16 @@
 package hotel.db.repository.order;
 
+import hotel.db.dto.cart.CartLineDto;
 import hotel.db.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,6 +19,23 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 
 	List<Order> findByUserIdAndStatus(Integer userId, String status);
 
+	// Giỏ hàng trong 1 câu: order + order detail + phòng + ảnh bìa (ảnh chưa xoá có id nhỏ nhất)
+	@Query("SELECT new hotel.db.dto.cart.CartLineDto(o.orderId, r.roomId, r.roomType, r.roomNumber, r.price, " +
+			"od.checkIn, od.checkOut, od.orderDescription, ri.roomImageUrl) " +
+			"FROM Order o " +
+			"JOIN OrderDetail od ON od.orderId = o.orderId " +
+			"JOIN Room r ON r.roomId = od.roomId " +
+			"LEFT JOIN RoomImage ri ON ri.roomImageId = (SELECT MIN(ri2.roomImageId) FROM RoomImage ri2 " +
+			"    WHERE ri2.roomId = r.roomId AND ri2.isDeleted = false) " +
+			"WHERE o.userId = :userId AND o.status = :status " +
+			"ORDER BY o.orderId, od.orderDetailId")
+	List<CartLineDto> findCartLines(@Param("userId") Integer userId, @Param("status") String status);
+
+	// Số dòng giỏ hàng cho badge trên header, chạy trên index orders(user_id, status) (db/cart_indexes.sql)
+	@Query("SELECT COUNT(od) FROM Order o JOIN OrderDetail od ON od.orderId = o.orderId " +
+			"JOIN Room r ON r.roomId = od.roomId WHERE o.userId = :userId AND o.status = :status")
+	long countLinesByUserIdAndStatus(@Param("userId") Integer userId, @Param("status") String status);
+
 	void deleteByUserIdAndStatus(Integer userId, String status);
 
 	@Query(value = "SELECT o.order_id, od.order_detail_id, o.check_in, o.check_out, " +
@@ -40,6 +60,21 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 	// Find orders by status and created before a certain time (for cart cleanup)
 	List<Order> findByStatusAndCreatedAtBefore(String status, LocalDateTime createdAt);
 
+	// (orderId, createdAt) của các order theo trạng thái, để nạp hạn giữ giỏ hàng vào CartHoldWheel khi khởi động
+	@Query("SELECT o.orderId, o.createdAt FROM Order o WHERE o.status = :status")
+	List<Object[]> findIdAndCreatedAtByStatus(@Param("status") String status);
+
+	// Khoá một lô order theo trạng thái, tạo trước thời điểm cho trước (dọn giỏ hàng hết hạn theo lô)
+	@Query(value = "SELECT order_id FROM orders WHERE status = :status AND created_at < :createdAt " +
+			"ORDER BY order_id LIMIT :limit FOR UPDATE", nativeQuery = true)
+	List<Integer> lockIdsByStatusAndCreatedAtBefore(@Param("status") String status,
+													@Param("createdAt") LocalDateTime createdAt,
+													@Param("limit") int limit);
+
+	@Modifying
+	@Query(value = "DELETE FROM orders WHERE order_id IN (:orderIds)", nativeQuery = true)
+	int deleteByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
+
 	// Find orders by payment order code
 	List<Order> findByPaymentOrderCode(Long paymentOrderCode);
 
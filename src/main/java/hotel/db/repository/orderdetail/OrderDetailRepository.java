@@ -5,12 +5,14 @@ import hotel.db.entity.OrderDetail;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -47,68 +49,59 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
 			"AND od.status NOT IN ('CANCELLED', 'COMPLETED')")
 	LocalDate findNextAvailableDateByRoomId(@Param("roomId") Integer roomId);
 
-	//Check xem ngày có bị conflic ko.
-	@Query("SELECT CASE WHEN EXISTS (" +
-			"  SELECT 1 FROM OrderDetail od " +
-			"  WHERE od.roomId = :roomId " +
-			"  AND od.startDate < :endTime " +
-			"  AND od.endDate > :startTime " +
-			"  AND od.status NOT IN ('CANCELLED', 'COMPLETED')" +
-			") THEN false ELSE true END")
-	Boolean isRoomAvailableForToday(
-			@Param("roomId") Integer roomId,
-			@Param("startTime") LocalDateTime startTime,
-			@Param("endTime") LocalDateTime endTime
-	);
-
-	//Tìm tất cả booking của phòng từ một ngày người dùng truy cập trang booking thể trở đi
+	//Tìm các booking chiếm ít nhất một đêm trong [fromNight, toNight), tra theo sổ room_nights
 	@Query("SELECT od FROM OrderDetail od " +
-			"WHERE od.roomId = :roomId " +
-			"AND od.endDate > :fromDate " +
-			"AND od.status NOT IN ('CANCELLED', 'COMPLETED') " +
-			"ORDER BY od.startDate ASC")
-	List<OrderDetail> findUpcomingBookingsByRoomId(
-			@Param("roomId") Integer roomId,
-			@Param("fromDate") LocalDateTime fromDate
-	);
-
-	//Tìm tất cả các ngày đã được book phòng
-	@Query("SELECT od FROM OrderDetail od " +
-			"WHERE od.roomId = :roomId " +
+			"WHERE od.orderDetailId IN (" +
+			"  SELECT rn.orderDetailId FROM RoomNight rn " +
+			"  WHERE rn.roomId = :roomId " +
+			"  AND rn.night >= :fromNight AND rn.night < :toNight) " +
 			"AND od.status IN :statuses " +
-			"AND od.endDate >= :fromDate " +
-			"AND od.startDate <= :toDate " +
 			"AND od.isDeleted = false " +
 			"ORDER BY od.startDate ASC")
 	List<OrderDetail> findBookingsByRoomAndDateRange(
 			@Param("roomId") Integer roomId,
-			@Param("fromDate") LocalDateTime fromDate,
-			@Param("toDate") LocalDateTime toDate,
+			@Param("fromNight") LocalDate fromNight,
+			@Param("toNight") LocalDate toNight,
 			@Param("statuses") List<String> statuses
 	);
 
 
-	// Query tìm bookings bị trùng với khoảng thời gian dừng hoạt động để hủy
+	// Query tìm bookings có đêm trùng với khoảng dừng hoạt động [fromNight, toNight) để hủy
 	@Query("SELECT od FROM OrderDetail od " +
-			"WHERE od.roomId = :roomId " +
+			"WHERE od.orderDetailId IN (" +
+			"  SELECT rn.orderDetailId FROM RoomNight rn " +
+			"  WHERE rn.roomId = :roomId " +
+			"  AND rn.night >= :fromNight AND rn.night < :toNight) " +
 			"AND od.status IN ('PENDING', 'CONFIRMED', 'CHECKED_IN', 'OCCUPIED') " +
-			"AND od.startDate < :disableEndDate " +
-			"AND od.endDate > :disableStartDate " +
 			"AND od.isDeleted = false " +
 			"ORDER BY od.startDate ASC")
 	List<OrderDetail> findBookingsToCancel(
 			@Param("roomId") Integer roomId,
-			@Param("disableStartDate") LocalDateTime disableStartDate,
-			@Param("disableEndDate") LocalDateTime disableEndDate
+			@Param("fromNight") LocalDate fromNight,
+			@Param("toNight") LocalDate toNight
 	);
 
 
-	@Query(value = "SELECT room_id FROM order_details WHERE start_date < :endDate AND end_date > :startDate", nativeQuery = true)
-	List<Integer> findRoomIdsByFilterEndateAndStatdate(
-			@Param("startDate") LocalDateTime startDate,
-			@Param("endDate") LocalDateTime endDate
+	// Booking còn hiệu lực (chưa huỷ/hoàn thành) kết thúc sau fromDate - dùng để dựng RoomAvailabilityIndex
+	@Query("SELECT od FROM OrderDetail od " +
+			"WHERE od.endDate > :fromDate " +
+			"AND od.status NOT IN ('CANCELLED', 'COMPLETED') " +
+			"AND od.isDeleted = false")
+	List<OrderDetail> findActiveBookingsEndingAfter(@Param("fromDate") LocalDateTime fromDate);
+
+	@Query("SELECT od FROM OrderDetail od " +
+			"WHERE od.roomId = :roomId " +
+			"AND od.endDate > :fromDate " +
+			"AND od.status NOT IN ('CANCELLED', 'COMPLETED') " +
+			"AND od.isDeleted = false")
+	List<OrderDetail> findActiveBookingsByRoomId(
+			@Param("roomId") Integer roomId,
+			@Param("fromDate") LocalDateTime fromDate
 	);
 
+	// Tất cả booking còn hiệu lực của phòng (kể cả quá khứ) - dùng để backfill room_nights
+	List<OrderDetail> findByRoomIdAndIsDeletedFalseAndStatusNotIn(Integer roomId, Collection<String> statuses);
+
 	// Find order details by room ID and status
 	List<OrderDetail> findByRoomIdAndStatus(Integer roomId, String status);
 
@@ -204,4 +197,37 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
 			@Param("search") String search,
 			@Param("isDeleted") Boolean isDeleted,
 			Pageable pageable);
+
+	// Bảng xếp hạng xu hướng: các lượt đặt phòng (roomId, createdAt) từ một thời điểm, bỏ qua các trạng thái chưa bán
+	@Query("SELECT od.roomId, od.createdAt FROM OrderDetail od " +
+			"WHERE od.createdAt >= :from AND od.isDeleted = false AND od.status NOT IN :excludedStatuses")
+	List<Object[]> findRoomIdsBookedSince(@Param("from") LocalDateTime from,
+										  @Param("excludedStatuses") Collection<String> excludedStatuses);
+
+	// Tape chart: booking và lịch bảo trì chồng lên [from, to) trong 1 query, roomId null = cả khách sạn.
+	// Cột: room_id, start_date, end_date, state, order_detail_id, maintenance_id, first_name, last_name
+	@Query(value = "SELECT od.room_id, od.start_date, od.end_date, od.status, od.order_detail_id, NULL, u.first_name, u.last_name " +
+			"FROM order_details od " +
+			"LEFT JOIN orders o ON o.order_id = od.order_id " +
+			"LEFT JOIN users u ON u.user_id = COALESCE(od.user_id, o.user_id) " +
+			"WHERE od.is_deleted = 0 AND od.status <> 'CANCELLED' " +
+			"AND od.start_date < :to AND od.end_date > :from " +
+			"AND (:roomId IS NULL OR od.room_id = :roomId) " +
+			"UNION ALL " +
+			"SELECT rm.room_id, rm.start_date, rm.end_date, COALESCE(rm.status, 'MAINTENANCE'), NULL, rm.maintenance_id, NULL, NULL " +
+			"FROM room_maintenance rm " +
+			"WHERE rm.is_deleted = 0 " +
+			"AND rm.start_date < :to AND rm.end_date > :from " +
+			"AND (:roomId IS NULL OR rm.room_id = :roomId)", nativeQuery = true)
+	List<Object[]> findTapeChartSegments(@Param("from") LocalDateTime from,
+										 @Param("to") LocalDateTime to,
+										 @Param("roomId") Integer roomId);
+
+	// (orderDetailId, roomId, startDate, endDate) của các order, để phát RoomAvailabilityChangedEvent trước khi xoá hàng loạt
+	@Query("SELECT od.orderDetailId, od.roomId, od.startDate, od.endDate FROM OrderDetail od WHERE od.orderId IN :orderIds")
+	List<Object[]> findAvailabilityKeysByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
+
+	@Modifying
+	@Query(value = "DELETE FROM order_details WHERE order_id IN (:orderIds)", nativeQuery = true)
+	int deleteByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
 }
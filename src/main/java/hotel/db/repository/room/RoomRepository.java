@@ -4,6 +4,8 @@ import hotel.db.entity.Room;
 import hotel.db.enums.RoomStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -35,6 +37,10 @@ public interface RoomRepository extends JpaRepository<Room, Integer> {
 
 	List<Room> findAll();
 
+	Page<Room> findAll(Specification<Room> spec, Pageable pageable);
+
+	List<Room> findAll(Specification<Room> spec, Sort sort);
+
 	List<Room> findAllBySystemStatus(String systemStatus);
 
     //soft delete
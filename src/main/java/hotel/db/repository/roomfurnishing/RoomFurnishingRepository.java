@@ -11,4 +11,6 @@ public interface RoomFurnishingRepository extends JpaRepository<RoomFurnishing,
 
     List<RoomFurnishing> findByRoomIdAndIsDeletedFalse(Integer roomId);
 
+    List<RoomFurnishing> findByIsDeletedFalse();
+
 }
@@ -4,6 +4,7 @@ import hotel.db.entity.RoomImage;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +14,6 @@ public interface RoomImageRepository extends JpaRepository<RoomImage, Integer> {
 
     List<RoomImage> findByRoomIdAndIsDeletedFalse(Integer roomId);
 
+    List<RoomImage> findByRoomIdInAndIsDeletedFalseOrderByRoomImageIdAsc(Collection<Integer> roomIds);
+
 }
@@ -26,6 +26,21 @@ public interface RoomMaintenanceRepository extends JpaRepository<RoomMaintenance
             @Param("statuses") List<String> statuses
     );
 
+    // Như trên nhưng bỏ qua lịch bảo trì đã xoá
+    @Query("SELECT rm FROM RoomMaintenance rm " +
+            "WHERE rm.roomId = :roomId " +
+            "AND rm.status IN :statuses " +
+            "AND rm.endDate >= :fromDate " +
+            "AND rm.startDate <= :toDate " +
+            "AND rm.isDeleted = false " +
+            "ORDER BY rm.startDate ASC")
+    List<RoomMaintenance> findActiveMaintenancesByRoomAndDateRange(
+            @Param("roomId") Integer roomId,
+            @Param("fromDate") LocalDateTime fromDate,
+            @Param("toDate") LocalDateTime toDate,
+            @Param("statuses") List<String> statuses
+    );
+
     // Tìm maintenance đang active (đã bắt đầu, chưa kết thúc)
     @Query("SELECT rm FROM RoomMaintenance rm WHERE rm.status = :status " +
             "AND rm.startDate <= :now AND rm.endDate >= :now AND rm.isDeleted = false")
@@ -48,6 +63,17 @@ public interface RoomMaintenanceRepository extends JpaRepository<RoomMaintenance
     // Tìm maintenance theo ID và chưa bị xóa
     Optional<RoomMaintenance> findByMaintenanceIdAndIsDeletedFalse(Integer maintenanceId);
     
+    // Lịch bảo trì chưa xoá kết thúc sau fromDate - dùng để dựng RoomAvailabilityIndex
+    @Query("SELECT rm FROM RoomMaintenance rm WHERE rm.endDate > :fromDate AND rm.isDeleted = false")
+    List<RoomMaintenance> findActiveMaintenancesEndingAfter(@Param("fromDate") LocalDateTime fromDate);
+
+    @Query("SELECT rm FROM RoomMaintenance rm WHERE rm.roomId = :roomId " +
+            "AND rm.endDate > :fromDate AND rm.isDeleted = false")
+    List<RoomMaintenance> findActiveMaintenancesByRoomId(
+            @Param("roomId") Integer roomId,
+            @Param("fromDate") LocalDateTime fromDate
+    );
+
     // Tìm các maintenance đã đến ngày bắt đầu (để scheduled job update status phòng)
     @Query("SELECT rm FROM RoomMaintenance rm WHERE rm.startDate <= :now " +
            "AND rm.endDate >= :now AND rm.isDeleted = false " +
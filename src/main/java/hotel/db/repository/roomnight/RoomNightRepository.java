@@ -0,0 +1,107 @@
+package hotel.db.repository.roomnight;
+
+import hotel.db.entity.RoomNight;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RoomNightRepository extends JpaRepository<RoomNight, Long> {
+
+    List<RoomNight> findByOrderDetailId(Integer orderDetailId);
+
+    List<RoomNight> findByRoomMaintenanceId(Integer roomMaintenanceId);
+
+    //Có booking khác đang giữ đêm nào trong [fromNight, toNight) không
+    @Query("SELECT CASE WHEN COUNT(rn) > 0 THEN true ELSE false END FROM RoomNight rn " +
+            "WHERE rn.roomId = :roomId " +
+            "AND rn.night >= :fromNight AND rn.night < :toNight " +
+            "AND rn.orderDetailId IS NOT NULL AND rn.orderDetailId <> :orderDetailId")
+    boolean existsOtherBookingClaim(@Param("roomId") Integer roomId,
+                                    @Param("fromNight") LocalDate fromNight,
+                                    @Param("toNight") LocalDate toNight,
+                                    @Param("orderDetailId") Integer orderDetailId);
+
+    @Query("SELECT DISTINCT rn.roomId FROM RoomNight rn")
+    List<Integer> findDistinctRoomIds();
+
+    @Modifying
+    @Query("DELETE FROM RoomNight rn WHERE rn.orderDetailId = :orderDetailId")
+    int deleteByOrderDetailId(@Param("orderDetailId") Integer orderDetailId);
+
+    @Modifying
+    @Query("DELETE FROM RoomNight rn WHERE rn.roomMaintenanceId = :roomMaintenanceId")
+    int deleteByRoomMaintenanceId(@Param("roomMaintenanceId") Integer roomMaintenanceId);
+
+    @Modifying
+    @Query("UPDATE RoomNight rn SET rn.status = :status WHERE rn.orderDetailId = :orderDetailId")
+    int updateStatusByOrderDetailId(@Param("orderDetailId") Integer orderDetailId,
+                                    @Param("status") String status);
+
+    @Modifying
+    @Query("UPDATE RoomNight rn SET rn.status = :status WHERE rn.roomMaintenanceId = :roomMaintenanceId")
+    int updateStatusByRoomMaintenanceId(@Param("roomMaintenanceId") Integer roomMaintenanceId,
+                                        @Param("status") String status);
+
+    //Giải phóng các đêm đang bị giữ bởi booking đã huỷ / hoàn thành / đã xoá trong khoảng [fromNight, toNight)
+    @Modifying
+    @Query(value = "DELETE rn FROM room_nights rn " +
+            "LEFT JOIN order_details od ON od.order_detail_id = rn.order_detail_id " +
+            "WHERE rn.room_id = :roomId " +
+            "AND rn.night >= :fromNight AND rn.night < :toNight " +
+            "AND rn.order_detail_id IS NOT NULL " +
+            "AND (od.order_detail_id IS NULL OR od.is_deleted = 1 " +
+            "     OR od.status IN ('CANCELLED', 'COMPLETED'))", nativeQuery = true)
+    int releaseStaleClaims(@Param("roomId") Integer roomId,
+                           @Param("fromNight") LocalDate fromNight,
+                           @Param("toNight") LocalDate toNight);
+
+    //Xoá mọi dòng của phòng không còn booking / lịch bảo trì hiệu lực tương ứng (dùng khi đối soát)
+    @Modifying
+    @Query(value = "DELETE rn FROM room_nights rn " +
+            "LEFT JOIN order_details od ON od.order_detail_id = rn.order_detail_id " +
+            "LEFT JOIN room_maintenance rm ON rm.maintenance_id = rn.room_maintenance_id " +
+            "WHERE rn.room_id = :roomId " +
+            "AND ((rn.order_detail_id IS NOT NULL AND (od.order_detail_id IS NULL OR od.is_deleted = 1 " +
+            "      OR od.status IN ('CANCELLED', 'COMPLETED'))) " +
+            "  OR (rn.room_maintenance_id IS NOT NULL AND (rm.maintenance_id IS NULL OR rm.is_deleted = 1)))",
+            nativeQuery = true)
+    int releaseStaleRowsByRoomId(@Param("roomId") Integer roomId);
+
+    List<RoomNight> findByHoldToken(String holdToken);
+
+    //Các đêm đang được giữ bởi giỏ hàng trong session, chưa hết hạn
+    @Query("SELECT rn FROM RoomNight rn WHERE rn.holdToken IS NOT NULL AND rn.holdExpiresAt > :now")
+    List<RoomNight> findActiveHolds(@Param("now") LocalDateTime now);
+
+    @Query("SELECT rn FROM RoomNight rn WHERE rn.roomId = :roomId AND rn.holdToken IS NOT NULL AND rn.holdExpiresAt > :now")
+    List<RoomNight> findActiveHoldsByRoomId(@Param("roomId") Integer roomId, @Param("now") LocalDateTime now);
+
+    //(holdToken, hạn giữ) của các lần giữ còn hiệu lực, để nạp lại vào CartHoldWheel khi khởi động
+    @Query("SELECT rn.holdToken, MAX(rn.holdExpiresAt) FROM RoomNight rn " +
+            "WHERE rn.holdToken IS NOT NULL AND rn.holdExpiresAt > :now GROUP BY rn.holdToken")
+    List<Object[]> findActiveHoldTokens(@Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT rn.holdToken FROM RoomNight rn WHERE rn.holdToken IS NOT NULL AND rn.holdExpiresAt <= :now")
+    List<String> findExpiredHoldTokens(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RoomNight rn WHERE rn.holdToken = :holdToken")
+    int deleteByHoldToken(@Param("holdToken") String holdToken);
+
+    //Nhả các lần giữ đã hết hạn trong [fromNight, toNight) trước khi phòng được giữ / đặt lại
+    @Modifying
+    @Query("DELETE FROM RoomNight rn WHERE rn.roomId = :roomId " +
+            "AND rn.night >= :fromNight AND rn.night < :toNight " +
+            "AND rn.holdToken IS NOT NULL AND rn.holdExpiresAt <= :now")
+    int releaseExpiredHolds(@Param("roomId") Integer roomId,
+                            @Param("fromNight") LocalDate fromNight,
+                            @Param("toNight") LocalDate toNight,
+                            @Param("now") LocalDateTime now);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +15,15 @@ public interface RoomViewRepository extends JpaRepository<RoomView, Integer> {
     //Lấy các Id view của id phòng.
     @Query(value = "SELECT view_id FROM room_views WHERE room_id = :roomId AND is_deleted = 0", nativeQuery = true)
     List<Integer> findRoomViewId(@Param("roomId") Integer roomId);
+
+    //Lấy [room_id, view_type] của nhiều phòng trong 1 query.
+    @Query(value = "SELECT rv.room_id, v.view_type FROM room_views rv " +
+            "JOIN views v ON v.view_id = rv.view_id " +
+            "WHERE rv.room_id IN (:roomIds) AND rv.is_deleted = 0 " +
+            "ORDER BY rv.room_id, rv.room_view_id", nativeQuery = true)
+    List<Object[]> findViewTypesByRoomIds(@Param("roomIds") Collection<Integer> roomIds);
+
+    //Lấy [room_id, view_id] của mọi phòng, dùng để dựng index view -> phòng.
+    @Query(value = "SELECT room_id, view_id FROM room_views WHERE is_deleted = 0", nativeQuery = true)
+    List<Object[]> findAllRoomViewIds();
 }
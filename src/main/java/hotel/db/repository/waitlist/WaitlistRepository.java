@@ -0,0 +1,19 @@
+package hotel.db.repository.waitlist;
+
+import hotel.db.entity.Waitlist;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<Waitlist, Integer> {
+
+    // Các đăng ký còn chờ và chưa hết hạn (đêm cuối còn ở tương lai), dùng để dựng index khi khởi động
+    List<Waitlist> findByStatusAndIsDeletedFalseAndEndDateAfter(String status, LocalDate date);
+
+    List<Waitlist> findByUserIdAndIsDeletedFalseOrderByCreatedAtDesc(Integer userId);
+
+    long countByUserIdAndStatusAndIsDeletedFalse(Integer userId, String status);
+}
@@ -1,20 +1,34 @@
 package hotel.rest.homepage;
 
+import hotel.db.dto.room.FlexibleDateSearchDto;
 import hotel.db.dto.room.RoomBookListDto;
-import hotel.db.dto.room.RoomDetailResponseDto;
+import hotel.db.dto.room.RoomDetailPageDto;
+import hotel.db.dto.room.RoomFacetsDto;
 import hotel.db.dto.room.RoomHomepageResponseDto;
+import hotel.db.dto.room.RoomUnavailableDatesDto;
 import hotel.db.entity.News;
+import hotel.db.entity.User;
 import hotel.db.enums.BedType;
 import hotel.db.enums.RoomType;
 import hotel.db.repository.floor.FloorRepository;
+import hotel.service.furnishing.FurnishingService;
+import hotel.service.catalog.RoomVersionStamps;
 import hotel.service.room.RoomService;
 import hotel.service.news.NewsService;
+import hotel.service.view.ViewService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
@@ -32,6 +46,9 @@ public class HomePageController {
     private final RoomService roomService;
     private final NewsService newsService;
     private final FloorRepository floorRepository;
+    private final ViewService viewService;
+    private final FurnishingService furnishingService;
+    private final RoomVersionStamps roomVersionStamps;
 
     @GetMapping({"/", "", "/home"})
     public String home(HttpSession session, Model model) {
@@ -53,24 +70,32 @@ public class HomePageController {
     @GetMapping({"/room/{id}"})
     public String roomDetail(@PathVariable("id") Integer id,
                              HttpSession session,
+                             HttpServletRequest request,
+                             HttpServletResponse response,
                              Model model,
                              RedirectAttributes redirectAttrs) {
-        RoomDetailResponseDto room = roomService.getRoomDetailById(id);
+        // Phòng chưa đổi kể từ lần xem trước: trả 304, không load phòng, không render
+        User user = (User) session.getAttribute("user");
+        if (notModified(request, response, roomVersionStamps.roomEtag(id, user), roomVersionStamps.roomLastModified(id))) {
+            roomService.incrementView(id);
+            return null;
+        }
 
-        roomService.incrementView(id);
+        // Phòng, ảnh, view và các khoảng ngày bị chặn (riêng cho check-in và check-out calendar) đọc song song
+        RoomDetailPageDto page = roomService.getRoomDetailPage(id);
 
-        if(room == null) {
+        if(page == null) {
             redirectAttrs.addFlashAttribute("error", ROOMNOTEXIST);
             return "redirect:/hotel";
         }
 
-        // Lấy 2 lists riêng biệt cho check-in và check-out calendar
-        List<String> bookedDatesCheckIn = roomService.getBookedDatesForBookingRoom(id);
-        List<String> bookedDatesCheckOut = roomService.getBookedDatesForCheckOut(id);
-        
-        model.addAttribute("room", room);
-        model.addAttribute("bookedDatesCheckIn", bookedDatesCheckIn);
-        model.addAttribute("bookedDatesCheckOut", bookedDatesCheckOut);
+        // Tăng view chạy nền, không chờ
+        roomService.incrementView(id);
+
+        RoomUnavailableDatesDto unavailableDates = page.getUnavailableDates();
+        model.addAttribute("room", page.getRoom());
+        model.addAttribute("bookedDatesCheckIn", unavailableDates.getCheckIn());
+        model.addAttribute("bookedDatesCheckOut", unavailableDates.getCheckOut());
         return "common/room-detail";
     }
 
@@ -81,6 +106,8 @@ public class HomePageController {
         model.addAttribute("bedTypes", BedType.ALL);
         model.addAttribute("floors", roomService.getAllFloors());
         model.addAttribute("sizes", roomService.getAllSizes());
+        model.addAttribute("views", viewService.getAllViews());
+        model.addAttribute("furnishings", furnishingService.findAllAndIsDeletedFalse());
     }
 
     @GetMapping("/rooms")
@@ -90,14 +117,25 @@ public class HomePageController {
             @RequestParam(required = false) String roomType,
             @RequestParam(required = false) Integer floor,
             @RequestParam(required = false) String bedType,
+            @RequestParam(required = false) List<Integer> viewIds,
+            @RequestParam(required = false) List<Integer> furnishingIds,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String date,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "9") int size,
+            HttpSession session,
+            HttpServletRequest request,
+            HttpServletResponse response,
             Model model) {
 
+        // Danh mục và lịch trống chưa đổi: trả 304, không tính lại danh sách, không render
+        User user = (User) session.getAttribute("user");
+        if (notModified(request, response, roomVersionStamps.catalogEtag(false, user), roomVersionStamps.catalogLastModified())) {
+            return null;
+        }
+
         Page<RoomBookListDto> roomPage = roomService.getRoomListWithFiltersAndPagination(
-                minPrice, maxPrice, roomType, floor, bedType, sortBy, page, size, date
+                minPrice, maxPrice, roomType, floor, bedType, viewIds, furnishingIds, sortBy, page, size, date
         );
         //field pagnitation
         model.addAttribute("rooms", roomPage.getContent());
@@ -108,11 +146,67 @@ public class HomePageController {
         model.addAttribute("selectedRoomType", roomType);
         model.addAttribute("selectedFloor", floor);
         model.addAttribute("selectedBedType", bedType);
+        model.addAttribute("selectedViewIds", viewIds != null ? viewIds : List.of());
+        model.addAttribute("selectedFurnishingIds", furnishingIds != null ? furnishingIds : List.of());
         model.addAttribute("selectedSortBy", sortBy);
         model.addAttribute("selectedMinPrice", minPrice);
         model.addAttribute("selectedMaxPrice", maxPrice);
         model.addAttribute("selectedDate", date);
+        //Số phòng theo từng lựa chọn của bộ lọc
+        model.addAttribute("facets", roomService.getRoomFacets(minPrice, maxPrice, roomType, floor, bedType,
+                viewIds, furnishingIds, date));
         return "common/room-booklist";
     }
 
+    // Số phòng theo loại phòng, loại giường, tầng, khoảng giá cho bộ lọc hiện tại
+    @GetMapping("/rooms/facets")
+    @ResponseBody
+    public RoomFacetsDto roomFacets(
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String roomType,
+            @RequestParam(required = false) Integer floor,
+            @RequestParam(required = false) String bedType,
+            @RequestParam(required = false) List<Integer> viewIds,
+            @RequestParam(required = false) List<Integer> furnishingIds,
+            @RequestParam(required = false) String date) {
+        return roomService.getRoomFacets(minPrice, maxPrice, roomType, floor, bedType, viewIds, furnishingIds, date);
+    }
+
+    // Tìm ngày linh hoạt: "N đêm bất kỳ trong 60 ngày tới", trả về JSON cho trang danh sách phòng
+    @GetMapping("/rooms/flexible")
+    @ResponseBody
+    public FlexibleDateSearchDto searchFlexibleDates(
+            @RequestParam(defaultValue = "1") Integer nights,
+            @RequestParam(required = false) Integer days,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String roomType,
+            @RequestParam(required = false) Integer floor,
+            @RequestParam(required = false) String bedType) {
+        return roomService.searchFlexibleDates(nights, days, minPrice, maxPrice, roomType, floor, bedType);
+    }
+
+    // Phòng phổ biến: by = sold (đặt nhiều), viewed (xem nhiều), trending (7 ngày gần nhất)
+    @GetMapping("/rooms/popular")
+    @ResponseBody
+    public List<RoomHomepageResponseDto> popularRooms(
+            @RequestParam(defaultValue = "sold") String by,
+            @RequestParam(defaultValue = "3") Integer limit) {
+        return roomService.getPopularRooms(by, limit);
+    }
+
+    /*
+    GET có điều kiện: gắn ETag/Last-Modified, trả true (đã set 304) nếu trình duyệt đang giữ bản mới nhất.
+    Trang có flash message thì luôn render lại.
+    */
+    private boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag, long lastModified) {
+        if (!CollectionUtils.isEmpty(RequestContextUtils.getInputFlashMap(request))) {
+            return false;
+        }
+        // Luôn hỏi lại server trước khi dùng bản cache, không để proxy dùng chung (header theo người đăng nhập)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+    }
+
 }
@@ -1,10 +1,14 @@
 package hotel.rest.room;
 
 import hotel.db.dto.furnishing.FurnishingFormDto;
+import hotel.db.dto.room.CacheStatsDto;
+import hotel.db.dto.room.GroupBookingRequestDto;
 import hotel.db.dto.room.ListIdRoomResponse;
-import hotel.db.dto.room.ListRoomResponse;
+import hotel.db.dto.room.RoomFreeWindowDto;
 import hotel.db.dto.room.RoomListDto;
+import hotel.db.dto.room.RoomUnavailableDatesDto;
 import hotel.db.dto.room.SearchRoomRequest;
+import hotel.db.dto.room.TapeChartDto;
 import hotel.db.entity.Room;
 import hotel.db.entity.RoomImage;
 import hotel.db.entity.RoomMaintenance;
@@ -16,16 +20,21 @@ import hotel.db.enums.RoomType;
 import hotel.service.booking.BookingService;
 import hotel.service.cloudinary.CloudinaryService;
 import hotel.service.image.ImageService;
+import hotel.service.room.RoomListFeed;
 import hotel.service.room.RoomService;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
@@ -33,6 +42,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +58,7 @@ public class RoomController {
 
 	private final BookingService bookingService;
 	private final RoomService roomService;
+	private final RoomListFeed roomListFeed;
 	private final CloudinaryService cloudinaryService;
 	private final ImageService roomImageService;
 
@@ -310,18 +321,16 @@ public class RoomController {
 
 	@GetMapping("/status/{id}")
 	public String statusRoom(@PathVariable Integer id, Model model) {
-		// Lấy 2 lists riêng biệt cho check-in và check-out calendar
-		List<String> bookedDatesCheckIn = roomService.getBookedDatesForBookingRoom(id);
-		List<String> bookedDatesCheckOut = roomService.getBookedDatesForCheckOut(id);
-		List<String> disableDate = roomService.getDateToDisableRoom(id);
+		// Các khoảng ngày bị chặn cho check-in, check-out và form dừng hoạt động
+		RoomUnavailableDatesDto unavailableDates = roomService.getUnavailableDates(id);
 
 		// Lấy danh sách maintenance của phòng này
 		List<RoomMaintenance> maintenanceList = roomService.getMaintenanceByRoomId(id);
 
 		model.addAttribute("roomId", id);
-		model.addAttribute("disableDate", disableDate);
-		model.addAttribute("bookedDatesCheckIn", bookedDatesCheckIn);
-		model.addAttribute("bookedDatesCheckOut", bookedDatesCheckOut);
+		model.addAttribute("disableDate", unavailableDates.getDisable());
+		model.addAttribute("bookedDatesCheckIn", unavailableDates.getCheckIn());
+		model.addAttribute("bookedDatesCheckOut", unavailableDates.getCheckOut());
 		model.addAttribute("maintenanceList", maintenanceList);
 		return "management/room/room-update-status";
 	}
@@ -442,13 +451,101 @@ public class RoomController {
 	}
 
 	@GetMapping("/api/list")
-	public ResponseEntity<Map<String, Object>> getRooms() {
-		ListRoomResponse rooms = roomService.getAllRoomForSearch();
+	public ResponseEntity<byte[]> getRooms(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+										   WebRequest webRequest) {
+		// JSON dựng sẵn: không load entity, không serialize; client poll lại mà chưa đổi thì nhận 304
+		RoomListFeed.Feed feed = roomListFeed.current();
+		boolean gzipped = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+		if (webRequest.checkNotModified(feed.etag(gzipped), feed.lastModified())) {
+			return null;
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.cacheControl(CacheControl.noCache())
+				.varyBy(HttpHeaders.ACCEPT_ENCODING)
+				.eTag(feed.etag(gzipped))
+				.lastModified(feed.lastModified());
+		if (gzipped) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(feed.body(gzipped));
+	}
+
+
+	// Lễ tân: phòng trống sớm nhất (theo loại phòng nếu có) để gợi ý khi ngày khách chọn đã hết phòng
+	@GetMapping("/api/earliest-free")
+	public ResponseEntity<List<RoomFreeWindowDto>> getEarliestFreeWindows(
+			@RequestParam(required = false) String roomType,
+			@RequestParam(required = false) String fromDate,
+			@RequestParam(defaultValue = "1") Integer nights,
+			HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null || user.getRole().equals(CUSTOMER)) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		try {
+			return ResponseEntity.ok()
+					.contentType(MediaType.APPLICATION_JSON)
+					.body(roomService.getEarliestFreeWindows(roomType, fromDate, nights));
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+
+	// Lễ tân: lưới phòng x ngày của một tháng (month = MM/yyyy) cho một tầng hoặc cả khách sạn
+	@GetMapping("/api/tape-chart")
+	public ResponseEntity<TapeChartDto> getTapeChart(
+			@RequestParam(required = false) String month,
+			@RequestParam(required = false) Integer floorId,
+			HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null || user.getRole().equals(CUSTOMER)) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		try {
+			return ResponseEntity.ok()
+					.contentType(MediaType.APPLICATION_JSON)
+					.body(roomService.getTapeChart(month, floorId));
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+
+	// Lễ tân: chia phòng cho đoàn (VD: 5 phòng Deluxe, ưu tiên cùng tầng) cho cùng một kỳ ở
+	@PostMapping("/api/group-allocation")
+	public ResponseEntity<Map<String, Object>> allocateGroupRooms(@RequestBody GroupBookingRequestDto request,
+																  HttpSession session) {
 		Map<String, Object> response = new HashMap<>();
-		response.put("data", rooms);
+		User user = (User) session.getAttribute("user");
+		if (user == null || user.getRole().equals(CUSTOMER)) {
+			response.put("success", false);
+			response.put("message", "Bạn không có quyền thực hiện chức năng này");
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+		}
+		try {
+			response.put("success", true);
+			response.put("data", roomService.allocateGroupRooms(request));
+			return ResponseEntity.ok(response);
+		} catch (RuntimeException e) {
+			response.put("success", false);
+			response.put("message", e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+	}
+
+
+	// Số liệu hit/miss của cache tìm phòng
+	@GetMapping("/api/cache-stats")
+	public ResponseEntity<List<CacheStatsDto>> getCacheStats(HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null || user.getRole().equals(CUSTOMER)) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
 		return ResponseEntity.ok()
 				.contentType(MediaType.APPLICATION_JSON)
-				.body(response);
+				.body(roomService.getCacheStats());
 	}
 
 
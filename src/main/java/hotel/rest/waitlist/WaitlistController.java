@@ -0,0 +1,54 @@
+package hotel.rest.waitlist;
+
+import hotel.db.dto.waitlist.WaitlistRequest;
+import hotel.db.entity.User;
+import hotel.db.entity.Waitlist;
+import hotel.service.waitlist.WaitlistService;
+import hotel.util.MessageResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@RequestMapping("/hotel/waitlist")
+public class WaitlistController {
+
+	private final WaitlistService waitlistService;
+
+	// Khách đăng ký chờ khi phòng / loại phòng đã kín các ngày họ chọn
+	@PostMapping
+	@ResponseBody
+	public ResponseEntity<MessageResponse> join(@RequestBody WaitlistRequest request, HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null) {
+			return ResponseEntity.ok(new MessageResponse(false, "Vui lòng đăng nhập để đăng ký chờ phòng"));
+		}
+		return ResponseEntity.ok(waitlistService.join(user.getUserId(), request));
+	}
+
+	@GetMapping("/my")
+	@ResponseBody
+	public ResponseEntity<List<Waitlist>> myWaitlist(HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		return ResponseEntity.ok(waitlistService.getMyWaitlist(user.getUserId()));
+	}
+
+	@PostMapping("/{id}/cancel")
+	@ResponseBody
+	public ResponseEntity<MessageResponse> cancel(@PathVariable Integer id, HttpSession session) {
+		User user = (User) session.getAttribute("user");
+		if (user == null) {
+			return ResponseEntity.ok(new MessageResponse(false, "Vui lòng đăng nhập"));
+		}
+		return ResponseEntity.ok(waitlistService.cancel(user.getUserId(), id));
+	}
+}
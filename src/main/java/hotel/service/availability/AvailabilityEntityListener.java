@@ -0,0 +1,40 @@
+package hotel.service.availability;
+
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomMaintenance;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener gắn vào OrderDetail và RoomMaintenance.
+ * Mọi lần ghi qua repository đều phát RoomAvailabilityChangedEvent cho phòng tương ứng.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityEntityListener {
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void onChanged(Object entity) {
+		if (entity instanceof OrderDetail detail) {
+			publish(new RoomAvailabilityChangedEvent(detail.getRoomId(), detail.getStartDate(), detail.getEndDate(),
+					detail.getOrderDetailId(), null));
+		} else if (entity instanceof RoomMaintenance maintenance) {
+			publish(new RoomAvailabilityChangedEvent(maintenance.getRoomId(), maintenance.getStartDate(),
+					maintenance.getEndDate(), null, maintenance.getMaintenanceId()));
+		}
+	}
+
+	private void publish(RoomAvailabilityChangedEvent event) {
+		if (event.getRoomId() != null) {
+			eventPublisher.publishEvent(event);
+		}
+	}
+}
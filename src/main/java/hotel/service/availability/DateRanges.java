@@ -0,0 +1,45 @@
+package hotel.service.availability;
+
+import hotel.db.dto.room.DateRangeDto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tiện ích cho các khoảng ngày nửa mở [start, end) biểu diễn bằng LocalDate[2].
+ */
+public final class DateRanges {
+
+	private DateRanges() {
+	}
+
+	// Gộp các khoảng chồng lấn hoặc liền kề, bỏ khoảng rỗng
+	public static List<DateRangeDto> merge(List<LocalDate[]> ranges) {
+		List<LocalDate[]> sorted = new ArrayList<>(ranges);
+		sorted.removeIf(range -> !range[0].isBefore(range[1]));
+		sorted.sort(Comparator.comparing(range -> range[0]));
+
+		List<DateRangeDto> merged = new ArrayList<>();
+		LocalDate currentStart = null;
+		LocalDate currentEnd = null;
+		for (LocalDate[] range : sorted) {
+			if (currentEnd != null && !range[0].isAfter(currentEnd)) {
+				if (range[1].isAfter(currentEnd)) {
+					currentEnd = range[1];
+				}
+				continue;
+			}
+			if (currentStart != null) {
+				merged.add(new DateRangeDto(currentStart.toString(), currentEnd.toString()));
+			}
+			currentStart = range[0];
+			currentEnd = range[1];
+		}
+		if (currentStart != null) {
+			merged.add(new DateRangeDto(currentStart.toString(), currentEnd.toString()));
+		}
+		return merged;
+	}
+}
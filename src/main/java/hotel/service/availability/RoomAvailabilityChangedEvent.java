@@ -0,0 +1,22 @@
+package hotel.service.availability;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra mỗi khi booking hoặc lịch bảo trì của một phòng thay đổi
+ * (thêm mới, đổi trạng thái, huỷ, xoá).
+ * orderDetailId / roomMaintenanceId cho biết bản ghi nào thay đổi, cả hai null nghĩa là
+ * thay đổi hàng loạt của phòng (ví dụ xoá vĩnh viễn phòng).
+ */
+@Getter
+@AllArgsConstructor
+public class RoomAvailabilityChangedEvent {
+	private final Integer roomId;
+	private final LocalDateTime startDate;
+	private final LocalDateTime endDate;
+	private final Integer orderDetailId;
+	private final Integer roomMaintenanceId;
+}
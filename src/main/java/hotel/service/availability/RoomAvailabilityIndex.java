@@ -0,0 +1,280 @@
+package hotel.service.availability;
+
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomMaintenance;
+import hotel.db.entity.RoomNight;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index trong bộ nhớ: mỗi phòng giữ một BitSet, bit thứ i = đêm (origin + i) đã bị chiếm
+ * bởi booking còn hiệu lực, lịch bảo trì hoặc lần giữ của giỏ hàng trong session.
+ * Một đêm tính từ 14:00 ngày D đến 12:00 ngày D+1, nên booking [start, end) chiếm các đêm
+ * start.toLocalDate() .. end.toLocalDate() - 1.
+ *
+ * BitSet không thread-safe nên mỗi lần cập nhật sẽ tạo BitSet mới rồi thay thế (copy-on-write),
+ * bên đọc không cần lock. origin và map các phòng nằm chung trong một Snapshot, rebuild() dựng Snapshot mới
+ * (origin dời về hôm qua) rồi thay bằng một phép gán volatile, nên bên đọc không bao giờ thấy index rỗng giữa chừng.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomAvailabilityIndex {
+
+	private static final int STRIPES = 64;
+
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomMaintenanceRepository roomMaintenanceRepository;
+	private final RoomNightRepository roomNightRepository;
+
+	// Các đêm trước origin coi như đã qua; origin được dời lên mỗi lần rebuild
+	private volatile Snapshot snapshot = new Snapshot(LocalDate.now().minusDays(1), new ConcurrentHashMap<>());
+
+	// Phòng được refreshRoom trong lúc rebuild đang đọc DB, đọc lại sau khi thay Snapshot để không mất thay đổi
+	private final Set<Integer> refreshedDuringRebuild = ConcurrentHashMap.newKeySet();
+	private volatile boolean rebuilding;
+
+	// Đọc DB rồi ghi BitSet của một phòng phải liền nhau: hai lần refresh cùng phòng chạy song song
+	// có thể ghi kết quả đọc cũ sau cùng. Lần lấy lock sau đọc DB sau nên luôn thấy cả hai lần commit.
+	private final Object[] refreshLocks = newLocks();
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(cron = "0 0 4 * * *") // Chạy vào 04:00 mỗi ngày, sau lượt đối soát room_nights lúc 03:30
+	public synchronized void rebuild() {
+		long begin = System.currentTimeMillis();
+		refreshedDuringRebuild.clear();
+		rebuilding = true;
+		try {
+			LocalDate origin = LocalDate.now().minusDays(1);
+			LocalDateTime fromDate = origin.atStartOfDay();
+
+			Map<Integer, BitSet> rebuilt = new ConcurrentHashMap<>();
+			for (OrderDetail booking : orderDetailRepository.findActiveBookingsEndingAfter(fromDate)) {
+				markNights(origin, rebuilt.computeIfAbsent(booking.getRoomId(), id -> new BitSet()),
+						booking.getStartDate(), booking.getEndDate());
+			}
+			for (RoomMaintenance maintenance : roomMaintenanceRepository.findActiveMaintenancesEndingAfter(fromDate)) {
+				markNights(origin, rebuilt.computeIfAbsent(maintenance.getRoomId(), id -> new BitSet()),
+						maintenance.getStartDate(), maintenance.getEndDate());
+			}
+			for (RoomNight hold : roomNightRepository.findActiveHolds(LocalDateTime.now())) {
+				markNight(origin, rebuilt.computeIfAbsent(hold.getRoomId(), id -> new BitSet()), hold.getNight());
+			}
+
+			snapshot = new Snapshot(origin, rebuilt);
+			log.info("Built room availability index for {} rooms from {} in {} ms",
+					rebuilt.size(), origin, System.currentTimeMillis() - begin);
+		} finally {
+			rebuilding = false;
+		}
+		for (Integer roomId : refreshedDuringRebuild) {
+			refreshRoom(roomId);
+		}
+	}
+
+	// Chạy sau khi transaction commit để không đọc phải dữ liệu bị rollback,
+	// trước các cache kết quả tìm phòng (Order 0) để chúng tính lại trên index mới
+	@Order(0)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		if (event.getRoomId() == null) {
+			rebuild();
+		} else {
+			refreshRoom(event.getRoomId());
+		}
+	}
+
+	public void refreshRoom(Integer roomId) {
+		if (rebuilding) {
+			refreshedDuringRebuild.add(roomId);
+		}
+		synchronized (refreshLocks[Math.floorMod(roomId, STRIPES)]) {
+			Snapshot current;
+			do {
+				current = snapshot;
+				LocalDate origin = current.origin();
+				LocalDateTime fromDate = origin.atStartOfDay();
+				BitSet nights = new BitSet();
+
+				for (OrderDetail booking : orderDetailRepository.findActiveBookingsByRoomId(roomId, fromDate)) {
+					markNights(origin, nights, booking.getStartDate(), booking.getEndDate());
+				}
+				for (RoomMaintenance maintenance : roomMaintenanceRepository.findActiveMaintenancesByRoomId(roomId, fromDate)) {
+					markNights(origin, nights, maintenance.getStartDate(), maintenance.getEndDate());
+				}
+				// Đêm đang được giỏ hàng trong session giữ (app.cart.mode=session)
+				for (RoomNight hold : roomNightRepository.findActiveHoldsByRoomId(roomId, LocalDateTime.now())) {
+					markNight(origin, nights, hold.getNight());
+				}
+
+				if (nights.isEmpty()) {
+					current.nights().remove(roomId);
+				} else {
+					current.nights().put(roomId, nights);
+				}
+				// Snapshot vừa bị rebuild thay (có thể với origin khác) thì tính lại trên Snapshot mới
+			} while (current != snapshot);
+		}
+	}
+
+	/**
+	 * Phòng còn trống tất cả các đêm trong [checkIn, checkOut) hay không.
+	 */
+	public boolean isAvailable(Integer roomId, LocalDate checkIn, LocalDate checkOut) {
+		return isAvailable(snapshot, roomId, checkIn, checkOut);
+	}
+
+	private static boolean isAvailable(Snapshot current, Integer roomId, LocalDate checkIn, LocalDate checkOut) {
+		BitSet nights = current.nights().get(roomId);
+		if (nights == null) {
+			return true;
+		}
+		int from = Math.max(0, current.toIndex(checkIn));
+		int to = current.toIndex(checkOut);
+		if (to <= from) {
+			return true;
+		}
+		int firstOccupied = nights.nextSetBit(from);
+		return firstOccupied < 0 || firstOccupied >= to;
+	}
+
+	/**
+	 * Danh sách phòng có ít nhất một đêm bị chiếm trong [checkIn, checkOut).
+	 */
+	public Set<Integer> findUnavailableRoomIds(LocalDate checkIn, LocalDate checkOut) {
+		Snapshot current = snapshot;
+		Set<Integer> result = new HashSet<>();
+		for (Integer roomId : current.nights().keySet()) {
+			if (!isAvailable(current, roomId, checkIn, checkOut)) {
+				result.add(roomId);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Đêm đầu tiên từ {@code from} mà phòng trống liên tiếp {@code nights} đêm, không vượt quá {@code horizon}.
+	 * Quét theo khoảng trống: nextSetBit nhảy tới đêm bị chiếm kế tiếp, nextClearBit nhảy qua cả khoảng
+	 * bị chiếm, nên chi phí tỉ lệ với số khoảng bị chiếm chứ không phải số ngày.
+	 * Trả về null nếu không có khoảng trống nào đủ dài.
+	 */
+	private static LocalDate findEarliestFreeNight(Snapshot current, Integer roomId, LocalDate from, int nights,
+												   LocalDate horizon) {
+		LocalDate origin = current.origin();
+		int start = Math.max(0, current.toIndex(from));
+		int limit = current.toIndex(horizon);
+		int length = Math.max(1, nights);
+		BitSet occupied = current.nights().get(roomId);
+
+		while (limit - start >= length) {
+			int nextOccupied = occupied == null ? -1 : occupied.nextSetBit(start);
+			if (nextOccupied < 0 || nextOccupied - start >= length) {
+				return origin.plusDays(start);
+			}
+			start = occupied.nextClearBit(nextOccupied);
+		}
+		return null;
+	}
+
+	/**
+	 * Các khoảng ngày nhận phòng [a, b) trong [from, horizon) mà từ đó phòng trống liên tiếp {@code nights} đêm
+	 * và trả phòng không muộn hơn horizon. Mỗi khoảng trống [s, e) đủ dài cho ra một khoảng nhận phòng [s, e - nights + 1).
+	 */
+	public List<LocalDate[]> findCheckInWindows(Integer roomId, LocalDate from, int nights, LocalDate horizon) {
+		Snapshot current = snapshot;
+		LocalDate origin = current.origin();
+		int start = Math.max(0, current.toIndex(from));
+		int limit = current.toIndex(horizon);
+		int length = Math.max(1, nights);
+		BitSet occupied = current.nights().get(roomId);
+
+		List<LocalDate[]> windows = new ArrayList<>();
+		while (limit - start >= length) {
+			int nextOccupied = occupied == null ? -1 : occupied.nextSetBit(start);
+			int gapEnd = (nextOccupied < 0 || nextOccupied > limit) ? limit : nextOccupied;
+			if (gapEnd - start >= length) {
+				windows.add(new LocalDate[]{origin.plusDays(start), origin.plusDays(gapEnd - length + 1)});
+			}
+			if (gapEnd == limit) {
+				break;
+			}
+			start = occupied.nextClearBit(nextOccupied);
+		}
+		return windows;
+	}
+
+	/**
+	 * Đêm trống sớm nhất cho nhiều phòng trong một lượt, phòng không có khoảng trống sẽ không có trong kết quả.
+	 */
+	public Map<Integer, LocalDate> findEarliestFreeNights(Collection<Integer> roomIds, LocalDate from,
+														  int nights, LocalDate horizon) {
+		Snapshot current = snapshot;
+		Map<Integer, LocalDate> result = new LinkedHashMap<>();
+		for (Integer roomId : roomIds) {
+			LocalDate night = findEarliestFreeNight(current, roomId, from, nights, horizon);
+			if (night != null) {
+				result.put(roomId, night);
+			}
+		}
+		return result;
+	}
+
+	private static Object[] newLocks() {
+		Object[] locks = new Object[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+		return locks;
+	}
+
+	private static void markNights(LocalDate origin, BitSet nights, LocalDateTime startDate, LocalDateTime endDate) {
+		if (startDate == null || endDate == null) {
+			return;
+		}
+		int from = Math.max(0, toIndex(origin, startDate.toLocalDate()));
+		int to = toIndex(origin, endDate.toLocalDate());
+		if (to > from) {
+			nights.set(from, to);
+		}
+	}
+
+	private static void markNight(LocalDate origin, BitSet nights, LocalDate night) {
+		int index = toIndex(origin, night);
+		if (index >= 0) {
+			nights.set(index);
+		}
+	}
+
+	private static int toIndex(LocalDate origin, LocalDate date) {
+		return (int) ChronoUnit.DAYS.between(origin, date);
+	}
+
+	private record Snapshot(LocalDate origin, Map<Integer, BitSet> nights) {
+
+		int toIndex(LocalDate date) {
+			return RoomAvailabilityIndex.toIndex(origin, date);
+		}
+	}
+}
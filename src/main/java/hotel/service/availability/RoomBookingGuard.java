@@ -0,0 +1,57 @@
+package hotel.service.availability;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chống đặt trùng phòng gồm 2 lớp:
+ * - Trong JVM: lock theo phòng (chia sọc theo roomId), chỉ các request cùng phòng mới phải chờ nhau.
+ * - Dưới DB: mỗi đêm được giữ là một dòng room_nights (xem RoomNightLedger), unique key chặn trùng giữa nhiều node.
+ */
+@Component
+public class RoomBookingGuard {
+
+	private static final int STRIPES = 64;
+	private static final long LOCK_TIMEOUT_SECONDS = 5;
+
+	private final ReentrantLock[] locks = createLocks();
+
+	/**
+	 * Lock phòng đến khi transaction hiện tại commit hoặc rollback,
+	 * để request sau chỉ kiểm tra sau khi dữ liệu của request trước đã ghi xong.
+	 */
+	public void lockRoomUntilCompletion(Integer roomId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Room lock requires an active transaction");
+		}
+		ReentrantLock lock = locks[Math.floorMod(roomId, STRIPES)];
+		boolean acquired;
+		try {
+			acquired = lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Phòng đang được xử lý, vui lòng thử lại");
+		}
+		if (!acquired) {
+			throw new RuntimeException("Phòng đang được xử lý, vui lòng thử lại");
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				lock.unlock();
+			}
+		});
+	}
+
+	private static ReentrantLock[] createLocks() {
+		ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		return stripes;
+	}
+}
@@ -0,0 +1,42 @@
+package hotel.service.availability;
+
+import hotel.db.entity.RoomNight;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Giỏ hàng trong session vừa giữ hoặc nhả các đêm [startDate, endDate) của một phòng.
+ * Dòng giữ đã được ghi thẳng vào room_nights nên RoomNightLedger bỏ qua event này;
+ * các index lịch phòng nhận như mọi RoomAvailabilityChangedEvent khác và tính lại phòng.
+ */
+public class RoomHoldChangedEvent extends RoomAvailabilityChangedEvent {
+
+	public RoomHoldChangedEvent(Integer roomId, LocalDateTime startDate, LocalDateTime endDate) {
+		super(roomId, startDate, endDate, null, null);
+	}
+
+	/**
+	 * Một event cho mỗi phòng, phủ từ đêm đầu đến hết đêm cuối trong các dòng giữ.
+	 */
+	public static List<RoomHoldChangedEvent> of(List<RoomNight> rows) {
+		Map<Integer, LocalDate[]> rangeByRoom = new TreeMap<>();
+		for (RoomNight row : rows) {
+			LocalDate[] range = rangeByRoom.computeIfAbsent(row.getRoomId(), id -> new LocalDate[]{row.getNight(), row.getNight()});
+			if (row.getNight().isBefore(range[0])) {
+				range[0] = row.getNight();
+			}
+			if (row.getNight().isAfter(range[1])) {
+				range[1] = row.getNight();
+			}
+		}
+		List<RoomHoldChangedEvent> events = new ArrayList<>(rangeByRoom.size());
+		rangeByRoom.forEach((roomId, range) -> events.add(new RoomHoldChangedEvent(roomId,
+				range[0].atStartOfDay(), range[1].plusDays(1).atStartOfDay())));
+		return events;
+	}
+}
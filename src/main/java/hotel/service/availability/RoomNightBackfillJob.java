@@ -0,0 +1,68 @@
+package hotel.service.availability;
+
+import hotel.db.entity.Room;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Backfill và đối soát sổ room_nights với order_details / room_maintenance.
+ * Chạy khi ứng dụng khởi động (lấp dữ liệu cũ) và mỗi đêm (sửa các lần đồng bộ sau commit bị lỗi).
+ * Mỗi phòng chạy trong một transaction riêng để lỗi ở một phòng không làm hỏng cả lượt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomNightBackfillJob {
+
+	private final RoomNightLedger roomNightLedger;
+	private final RoomRepository roomRepository;
+	private final RoomNightRepository roomNightRepository;
+	private final PlatformTransactionManager transactionManager;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillOnStartup() {
+		try {
+			reconcileAll();
+		} catch (RuntimeException e) {
+			// Không chặn ứng dụng khởi động, lượt đối soát hằng đêm sẽ chạy lại
+			log.error("Failed to backfill room_nights on startup", e);
+		}
+	}
+
+	@Scheduled(cron = "0 30 3 * * *") // Chạy vào 03:30 mỗi ngày
+	public void reconcileAll() {
+		long begin = System.currentTimeMillis();
+
+		// Cả phòng đã bị xoá nhưng còn dòng trong sổ
+		Set<Integer> roomIds = new TreeSet<>(roomNightRepository.findDistinctRoomIds());
+		for (Room room : roomRepository.findAll()) {
+			roomIds.add(room.getRoomId());
+		}
+
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		int failed = 0;
+		for (Integer roomId : roomIds) {
+			try {
+				template.executeWithoutResult(status -> roomNightLedger.reconcileRoom(roomId));
+			} catch (RuntimeException e) {
+				failed++;
+				log.warn("Failed to reconcile room_nights for room {}: {}", roomId, e.getMessage());
+			}
+		}
+		log.info("Reconciled room_nights for {} rooms ({} failed) in {} ms",
+				roomIds.size(), failed, System.currentTimeMillis() - begin);
+	}
+}
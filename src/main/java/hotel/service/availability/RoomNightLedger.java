@@ -0,0 +1,273 @@
+package hotel.service.availability;
+
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomMaintenance;
+import hotel.db.entity.RoomNight;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static hotel.db.enums.OrderDetailStatus.CANCELLED;
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.COMPLETED;
+
+/**
+ * Ghi sổ room_nights: mỗi đêm phòng bị booking còn hiệu lực hoặc lịch bảo trì chiếm là một dòng,
+ * để kiểm tra phòng trống chỉ còn là tra khoảng (room_id, night) trên index.
+ *
+ * - addToCart ghi trực tiếp trong transaction của nó (trùng đêm thì rollback).
+ * - Các thay đổi khác của OrderDetail / RoomMaintenance được đồng bộ sau commit qua RoomAvailabilityChangedEvent,
+ *   mỗi lần trong một transaction riêng, thử lại vài lần; vẫn lỗi thì phòng được đánh dấu để đối soát lại
+ *   cả phòng mỗi phút cho tới khi thành công. RoomNightBackfillJob đối soát toàn bộ hằng đêm và lúc khởi động.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomNightLedger {
+
+	private static final List<String> INACTIVE_STATUSES = Arrays.asList(CANCELLED, COMPLETED);
+	private static final int SYNC_ATTEMPTS = 3;
+
+	private final RoomNightRepository roomNightRepository;
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomMaintenanceRepository roomMaintenanceRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final RoomUnavailableDatesCache roomUnavailableDatesCache;
+
+	// Phòng đồng bộ sau commit bị lỗi, chờ reconcilePending đối soát lại
+	private final Set<Integer> pendingRooms = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Ghi các đêm của booking, bắt buộc chạy trong transaction đang mở.
+	 * Đêm đã bị booking khác giữ sẽ vi phạm unique key và ném RuntimeException.
+	 */
+	public void writeOrderDetail(OrderDetail orderDetail) {
+		List<LocalDate> nights = isActive(orderDetail)
+				? nightsOf(orderDetail.getStartDate().toLocalDate(), orderDetail.getEndDate().toLocalDate())
+				: List.of();
+		if (!needsRewrite(roomNightRepository.findByOrderDetailId(orderDetail.getOrderDetailId()),
+				nights, orderDetail.getStatus(), true)) {
+			return;
+		}
+		roomNightRepository.deleteByOrderDetailId(orderDetail.getOrderDetailId());
+		if (nights.isEmpty()) {
+			return;
+		}
+		// Đêm của booking đã huỷ / hoàn thành được nhả ra trước khi giữ lại
+		roomNightRepository.releaseStaleClaims(orderDetail.getRoomId(), nights.get(0),
+				nights.get(nights.size() - 1).plusDays(1));
+		roomNightRepository.releaseExpiredHolds(orderDetail.getRoomId(), nights.get(0),
+				nights.get(nights.size() - 1).plusDays(1), LocalDateTime.now());
+
+		List<RoomNight> rows = new ArrayList<>();
+		for (LocalDate night : nights) {
+			rows.add(new RoomNight(null, orderDetail.getRoomId(), night, orderDetail.getOrderDetailId(),
+					null, orderDetail.getStatus(), null, null));
+		}
+		try {
+			roomNightRepository.saveAllAndFlush(rows);
+		} catch (DataIntegrityViolationException e) {
+			log.warn("Room {} already claimed between {} and {}", orderDetail.getRoomId(),
+					nights.get(0), nights.get(nights.size() - 1));
+			throw new RuntimeException("Phòng này đã được đặt cho ngày bạn chọn");
+		}
+	}
+
+	public void writeMaintenance(RoomMaintenance maintenance) {
+		List<LocalDate> nights = isActive(maintenance)
+				? nightsOf(maintenance.getStartDate().toLocalDate(), maintenance.getEndDate().toLocalDate())
+				: List.of();
+		if (!needsRewrite(roomNightRepository.findByRoomMaintenanceId(maintenance.getMaintenanceId()),
+				nights, maintenance.getStatus(), false)) {
+			return;
+		}
+		roomNightRepository.deleteByRoomMaintenanceId(maintenance.getMaintenanceId());
+
+		List<RoomNight> rows = new ArrayList<>();
+		for (LocalDate night : nights) {
+			rows.add(new RoomNight(null, maintenance.getRoomId(), night, null,
+					maintenance.getMaintenanceId(), maintenance.getStatus(), null, null));
+		}
+		roomNightRepository.saveAll(rows);
+	}
+
+	/**
+	 * Giữ các đêm [checkIn, checkOut) của phòng cho giỏ hàng trong session đến expiresAt,
+	 * bắt buộc chạy trong transaction đang mở. Đêm đã bị booking / lần giữ khác chiếm sẽ ném RuntimeException.
+	 */
+	public void writeHold(Integer roomId, LocalDate checkIn, LocalDate checkOut, String holdToken, LocalDateTime expiresAt) {
+		List<LocalDate> nights = nightsOf(checkIn, checkOut);
+		if (nights.isEmpty()) {
+			return;
+		}
+		roomNightRepository.releaseStaleClaims(roomId, checkIn, checkOut);
+		roomNightRepository.releaseExpiredHolds(roomId, checkIn, checkOut, LocalDateTime.now());
+
+		List<RoomNight> rows = new ArrayList<>();
+		for (LocalDate night : nights) {
+			rows.add(new RoomNight(null, roomId, night, null, null, CART, holdToken, expiresAt));
+		}
+		try {
+			roomNightRepository.saveAllAndFlush(rows);
+		} catch (DataIntegrityViolationException e) {
+			log.warn("Room {} already claimed between {} and {}", roomId, checkIn, checkOut.minusDays(1));
+			throw new RuntimeException("Phòng này đã được đặt cho ngày bạn chọn");
+		}
+	}
+
+	/**
+	 * Nhả mọi đêm của một lần giữ, trả về các dòng đã xoá để bên gọi biết phòng / đêm nào vừa trống.
+	 */
+	public List<RoomNight> releaseHold(String holdToken) {
+		List<RoomNight> rows = roomNightRepository.findByHoldToken(holdToken);
+		if (!rows.isEmpty()) {
+			roomNightRepository.deleteByHoldToken(holdToken);
+		}
+		return rows;
+	}
+
+	/**
+	 * Đối soát toàn bộ sổ của một phòng với order_details và room_maintenance.
+	 * Booking cũ đã trùng đêm với booking khác (dữ liệu trước khi có sổ) sẽ bị bỏ qua và ghi log.
+	 */
+	public void reconcileRoom(Integer roomId) {
+		roomNightRepository.releaseStaleRowsByRoomId(roomId);
+
+		for (OrderDetail booking : orderDetailRepository.findByRoomIdAndIsDeletedFalseAndStatusNotIn(roomId, INACTIVE_STATUSES)) {
+			if (isActive(booking) && roomNightRepository.existsOtherBookingClaim(roomId,
+					booking.getStartDate().toLocalDate(), booking.getEndDate().toLocalDate(), booking.getOrderDetailId())) {
+				log.warn("Skip order detail {}: room {} is already claimed by another booking",
+						booking.getOrderDetailId(), roomId);
+				continue;
+			}
+			writeOrderDetail(booking);
+		}
+		for (RoomMaintenance maintenance : roomMaintenanceRepository.findByRoomIdAndIsDeletedFalseOrderByStartDateDesc(roomId)) {
+			writeMaintenance(maintenance);
+		}
+	}
+
+	// Chạy sau commit, trong transaction riêng; lỗi thì thử lại, hết lượt thì để reconcilePending đối soát cả phòng.
+	// Chạy trước mọi listener khác vì RoomUnavailableDatesCache đọc booking qua sổ room_nights
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		if (event instanceof RoomHoldChangedEvent) {
+			return;
+		}
+		TransactionTemplate template = newTransaction();
+		for (int attempt = 1; attempt <= SYNC_ATTEMPTS; attempt++) {
+			try {
+				template.executeWithoutResult(status -> {
+					if (event.getOrderDetailId() != null) {
+						orderDetailRepository.findById(event.getOrderDetailId()).ifPresentOrElse(
+								this::writeOrderDetail,
+								() -> roomNightRepository.deleteByOrderDetailId(event.getOrderDetailId()));
+					} else if (event.getRoomMaintenanceId() != null) {
+						roomMaintenanceRepository.findById(event.getRoomMaintenanceId()).ifPresentOrElse(
+								this::writeMaintenance,
+								() -> roomNightRepository.deleteByRoomMaintenanceId(event.getRoomMaintenanceId()));
+					} else {
+						reconcileRoom(event.getRoomId());
+					}
+				});
+				return;
+			} catch (RuntimeException e) {
+				log.warn("Failed to sync room_nights for room {} (attempt {}/{}): {}", event.getRoomId(), attempt,
+						SYNC_ATTEMPTS, e.getMessage());
+			}
+		}
+		pendingRooms.add(event.getRoomId());
+	}
+
+	/**
+	 * Đối soát lại các phòng đồng bộ sau commit bị lỗi; phòng vẫn lỗi được giữ lại cho lượt sau.
+	 */
+	@Scheduled(fixedDelay = 60_000)
+	public void reconcilePending() {
+		if (pendingRooms.isEmpty()) {
+			return;
+		}
+		TransactionTemplate template = newTransaction();
+		for (Integer roomId : List.copyOf(pendingRooms)) {
+			// Bỏ khỏi danh sách trước khi đọc: event đến trong lúc đối soát mà lỗi sẽ thêm lại
+			pendingRooms.remove(roomId);
+			try {
+				template.executeWithoutResult(status -> reconcileRoom(roomId));
+				// Lịch của phòng có thể đã được tính từ sổ còn thiếu trong lúc chờ đối soát
+				roomUnavailableDatesCache.invalidate(roomId);
+				log.info("Reconciled room_nights for room {} after a failed sync", roomId);
+			} catch (RuntimeException e) {
+				pendingRooms.add(roomId);
+				log.warn("Failed to reconcile room_nights for room {}, will retry: {}", roomId, e.getMessage());
+			}
+		}
+	}
+
+	private TransactionTemplate newTransaction() {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return template;
+	}
+
+	/**
+	 * So sánh các dòng hiện có với các đêm mong muốn.
+	 * Chỉ khác trạng thái thì cập nhật tại chỗ và trả về false; khác đêm thì trả về true để ghi lại.
+	 */
+	private boolean needsRewrite(List<RoomNight> existing, List<LocalDate> nights, String status, boolean booking) {
+		List<LocalDate> existingNights = existing.stream().map(RoomNight::getNight).sorted().toList();
+		if (!existingNights.equals(nights)) {
+			return true;
+		}
+		if (!existing.isEmpty() && !Objects.equals(existing.get(0).getStatus(), status)) {
+			RoomNight first = existing.get(0);
+			if (booking) {
+				roomNightRepository.updateStatusByOrderDetailId(first.getOrderDetailId(), status);
+			} else {
+				roomNightRepository.updateStatusByRoomMaintenanceId(first.getRoomMaintenanceId(), status);
+			}
+		}
+		return false;
+	}
+
+	private boolean isActive(OrderDetail orderDetail) {
+		return orderDetail.getRoomId() != null
+				&& orderDetail.getStartDate() != null && orderDetail.getEndDate() != null
+				&& !Boolean.TRUE.equals(orderDetail.getIsDeleted())
+				&& !INACTIVE_STATUSES.contains(orderDetail.getStatus());
+	}
+
+	private boolean isActive(RoomMaintenance maintenance) {
+		return maintenance.getRoomId() != null
+				&& maintenance.getStartDate() != null && maintenance.getEndDate() != null
+				&& !Boolean.TRUE.equals(maintenance.getIsDeleted());
+	}
+
+	private List<LocalDate> nightsOf(LocalDate fromNight, LocalDate toNight) {
+		List<LocalDate> nights = new ArrayList<>();
+		for (LocalDate night = fromNight; night.isBefore(toNight); night = night.plusDays(1)) {
+			nights.add(night);
+		}
+		return nights;
+	}
+}
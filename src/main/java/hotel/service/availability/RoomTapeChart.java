@@ -0,0 +1,277 @@
+package hotel.service.availability;
+
+import hotel.db.dto.room.TapeChartDto;
+import hotel.db.dto.room.TapeChartRowDto;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * Lưới phòng x ngày theo tháng (tape chart) cho lễ tân.
+ * Cả tháng dựng từ một query (booking UNION ALL bảo trì chồng lên tháng), mỗi phòng nén run-length thành vài run.
+ * Giữ vài tháng gần nhất trong bộ nhớ; booking / bảo trì thay đổi thì chỉ đánh dấu phòng bẩn trong các tháng mà
+ * khoảng ngày mới chồng lên, hoặc trong tháng đang hiển thị bản ghi đó (ngày / phòng cũ trước khi bị dời).
+ * Lần xem sau chỉ đọc lại các phòng bẩn bằng cùng query lọc theo phòng; quá nhiều phòng bẩn thì đọc lại cả tháng.
+ * Lần giữ phòng của giỏ hàng trong session không hiện trên lưới nên bị bỏ qua.
+ * Phòng / tầng thay đổi thì bỏ cả cache vì danh sách dòng và tầng đã khác.
+ * Event không chạy query nào trên thread commit. Mỗi event tăng generation; tháng đọc xong chỉ được
+ * giữ lại nếu generation không đổi từ lúc bắt đầu đọc, nên event đến giữa lúc đang đọc không bị mất.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomTapeChart {
+
+	private static final int MAX_CACHED_MONTHS = 4;
+	// Nhiều phòng bẩn hơn thì một query cả tháng rẻ hơn từng query theo phòng
+	private static final int MAX_DIRTY_ROOMS = 16;
+	private static final String FREE = "FREE";
+
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomCatalogSnapshot roomCatalogSnapshot;
+
+	// Mã trạng thái chỉ thêm, không đổi, nên dùng chung cho mọi tháng
+	private final List<String> states = new CopyOnWriteArrayList<>(List.of(FREE));
+
+	// Theo thứ tự truy cập để bỏ tháng ít dùng nhất, mọi truy cập trong synchronized(months)
+	private final Map<YearMonth, MonthGrid> months = new LinkedHashMap<>(8, 0.75f, true);
+	// Phòng của tháng đã cache cần đọc lại, cũng trong synchronized(months)
+	private final Map<YearMonth, Set<Integer>> dirtyRooms = new HashMap<>();
+	private long generation;
+
+	/**
+	 * Lưới của một tháng, floorId null là cả khách sạn. Dòng theo tầng rồi số phòng.
+	 */
+	public TapeChartDto getMonth(YearMonth month, Integer floorId) {
+		MonthGrid grid = grid(month);
+		RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+		int[] positions = IntStream.range(0, c.size)
+				.filter(i -> !c.deleted[i] && (floorId == null || c.floorId[i] == floorId))
+				.boxed()
+				.sorted(Comparator.<Integer>comparingInt(i -> c.floorNumber[i])
+						.thenComparingInt(i -> c.roomNumberSort[i])
+						.thenComparingInt(i -> c.roomId[i]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+
+		List<TapeChartRowDto> rows = new ArrayList<>(positions.length);
+		Map<Integer, String> guests = new HashMap<>();
+		for (int i : positions) {
+			Row row = grid.rows.getOrDefault(c.roomId[i], grid.emptyRow);
+			guests.putAll(row.guests());
+			rows.add(new TapeChartRowDto(c.roomId[i], c.roomNumber[i],
+					c.floorNumber[i] == Integer.MIN_VALUE ? null : c.floorNumber[i], row.runs()));
+		}
+		return new TapeChartDto(grid.from, grid.days, List.copyOf(states), rows, guests);
+	}
+
+	@Order(1)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		if (event instanceof RoomHoldChangedEvent) {
+			return;
+		}
+		synchronized (months) {
+			generation++;
+			if (event.getRoomId() == null) {
+				months.clear();
+				dirtyRooms.clear();
+				return;
+			}
+			months.forEach((month, grid) -> {
+				Set<Integer> rooms = touchedRooms(grid, event);
+				if (!rooms.isEmpty()) {
+					dirtyRooms.computeIfAbsent(month, m -> new HashSet<>()).addAll(rooms);
+				}
+			});
+		}
+	}
+
+	@Order(1)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		synchronized (months) {
+			generation++;
+			months.clear();
+			dirtyRooms.clear();
+		}
+	}
+
+	// Event chỉ có ngày / phòng mới của bản ghi: ngày / phòng cũ (nếu bị dời) là dòng đang có run trỏ tới bản ghi đó
+	private static Set<Integer> touchedRooms(MonthGrid grid, RoomAvailabilityChangedEvent event) {
+		Integer ref = event.getOrderDetailId() != null ? event.getOrderDetailId() : event.getRoomMaintenanceId();
+		Set<Integer> rooms = new HashSet<>();
+		if (event.getStartDate() == null || event.getEndDate() == null || ref == null) {
+			// Thay đổi hàng loạt của phòng, không biết ngày: đọc lại cả dòng của phòng
+			rooms.add(event.getRoomId());
+			return rooms;
+		}
+		if (event.getStartDate().toLocalDate().isBefore(grid.from.plusDays(grid.days))
+				&& event.getEndDate().toLocalDate().isAfter(grid.from)) {
+			rooms.add(event.getRoomId());
+		}
+		// ref là id booking hoặc id bảo trì, trùng số giữa hai loại chỉ làm một phòng bị đọc lại thừa
+		grid.rows.forEach((roomId, row) -> {
+			if (row.runs().stream().anyMatch(run -> run.length > 2 && run[2] == ref)) {
+				rooms.add(roomId);
+			}
+		});
+		return rooms;
+	}
+
+	private MonthGrid grid(YearMonth month) {
+		long loadGeneration;
+		MonthGrid cached;
+		Set<Integer> rooms;
+		synchronized (months) {
+			cached = months.get(month);
+			rooms = Set.copyOf(dirtyRooms.getOrDefault(month, Set.of()));
+			if (cached != null && rooms.isEmpty()) {
+				return cached;
+			}
+			loadGeneration = generation;
+		}
+		MonthGrid grid;
+		if (cached == null || rooms.size() > MAX_DIRTY_ROOMS) {
+			LocalDate from = month.atDay(1);
+			int days = month.lengthOfMonth();
+			grid = new MonthGrid(from, days, Map.copyOf(load(from, days, null)),
+					new Row(List.<int[]>of(new int[]{days, 0}), Map.of()));
+		} else {
+			Map<Integer, Row> rows = new HashMap<>(cached.rows);
+			for (Integer roomId : rooms) {
+				Row row = load(cached.from, cached.days, roomId).get(roomId);
+				if (row == null) {
+					rows.remove(roomId);
+				} else {
+					rows.put(roomId, row);
+				}
+			}
+			grid = new MonthGrid(cached.from, cached.days, Map.copyOf(rows), cached.emptyRow);
+		}
+		synchronized (months) {
+			if (generation != loadGeneration) {
+				// Có event trong lúc đọc: trả lưới vừa đọc cho request này nhưng không giữ lại, phòng bẩn vẫn còn đánh dấu
+				return grid;
+			}
+			months.put(month, grid);
+			dirtyRooms.remove(month);
+			if (months.size() > MAX_CACHED_MONTHS) {
+				YearMonth eldest = months.keySet().iterator().next();
+				months.remove(eldest);
+				dirtyRooms.remove(eldest);
+			}
+			return grid;
+		}
+	}
+
+	/**
+	 * Dựng dòng của các phòng từ một query booking + bảo trì trong [from, from + days), roomId null là mọi phòng.
+	 */
+	private Map<Integer, Row> load(LocalDate from, int days, Integer roomId) {
+		// Một đêm là ngày nhận phòng: đêm d bị chiếm nếu start.toLocalDate() <= d < end.toLocalDate()
+		Map<Integer, int[]> stateByRoom = new HashMap<>();
+		Map<Integer, int[]> refByRoom = new HashMap<>();
+		Map<Integer, Map<Integer, String>> guestsByRoom = new HashMap<>();
+		List<Object[]> segments = orderDetailRepository.findTapeChartSegments(from.atStartOfDay(),
+				from.plusDays(days).atStartOfDay(), roomId);
+		// Bảo trì ghi sau booking để được ưu tiên hiển thị khi trùng đêm
+		segments.sort(Comparator.comparing((Object[] row) -> row[5] != null));
+		for (Object[] row : segments) {
+			Integer room = ((Number) row[0]).intValue();
+			LocalDate start = toLocalDate(row[1]);
+			LocalDate end = toLocalDate(row[2]);
+			if (start == null || end == null) {
+				continue;
+			}
+			int first = (int) Math.max(0, ChronoUnit.DAYS.between(from, start));
+			int last = (int) Math.min(days, ChronoUnit.DAYS.between(from, end));
+			if (first >= last) {
+				continue;
+			}
+			boolean booking = row[4] != null;
+			int ref = booking ? ((Number) row[4]).intValue() : ((Number) row[5]).intValue();
+			int state = stateCode((String) row[3]);
+			int[] stateNights = stateByRoom.computeIfAbsent(room, id -> new int[days]);
+			int[] refNights = refByRoom.computeIfAbsent(room, id -> new int[days]);
+			for (int d = first; d < last; d++) {
+				stateNights[d] = state;
+				refNights[d] = ref;
+			}
+			if (booking && (row[6] != null || row[7] != null)) {
+				String guest = ((row[6] == null ? "" : row[6]) + " " + (row[7] == null ? "" : row[7])).trim();
+				guestsByRoom.computeIfAbsent(room, id -> new HashMap<>()).put(ref, guest);
+			}
+		}
+
+		Map<Integer, Row> rows = new HashMap<>();
+		stateByRoom.forEach((room, stateNights) -> rows.put(room,
+				new Row(encode(stateNights, refByRoom.get(room)), Map.copyOf(guestsByRoom.getOrDefault(room, Map.of())))));
+		return rows;
+	}
+
+	// Các đêm liền nhau cùng trạng thái và cùng booking / lịch bảo trì gộp thành một run
+	private static List<int[]> encode(int[] stateNights, int[] refNights) {
+		List<int[]> runs = new ArrayList<>();
+		int start = 0;
+		for (int d = 1; d <= stateNights.length; d++) {
+			if (d == stateNights.length || stateNights[d] != stateNights[start] || refNights[d] != refNights[start]) {
+				runs.add(stateNights[start] == 0
+						? new int[]{d - start, 0}
+						: new int[]{d - start, stateNights[start], refNights[start]});
+				start = d;
+			}
+		}
+		return List.copyOf(runs);
+	}
+
+	private int stateCode(String state) {
+		String value = state == null ? FREE : state;
+		synchronized (states) {
+			int code = states.indexOf(value);
+			if (code < 0) {
+				states.add(value);
+				code = states.size() - 1;
+			}
+			return code;
+		}
+	}
+
+	private static LocalDate toLocalDate(Object value) {
+		if (value instanceof LocalDateTime dateTime) {
+			return dateTime.toLocalDate();
+		}
+		if (value instanceof Timestamp timestamp) {
+			return timestamp.toLocalDateTime().toLocalDate();
+		}
+		if (value instanceof java.sql.Date date) {
+			return date.toLocalDate();
+		}
+		return null;
+	}
+
+	private record Row(List<int[]> runs, Map<Integer, String> guests) {
+	}
+
+	private record MonthGrid(LocalDate from, int days, Map<Integer, Row> rows, Row emptyRow) {
+	}
+}
@@ -0,0 +1,125 @@
+package hotel.service.availability;
+
+import hotel.db.dto.room.RoomUnavailableDatesDto;
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomMaintenance;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.RESERVED;
+import static hotel.db.enums.RoomStatus.MAINTENANCE;
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+
+/**
+ * Tính các khoảng ngày không chọn được của một phòng trong 2 tháng tới,
+ * cho cả 3 lịch (check-in, check-out, dừng hoạt động) từ cùng một lần đọc DB.
+ * Kết quả cache theo phòng, bị xoá khi booking/bảo trì của phòng đó thay đổi
+ * hoặc khi sang ngày mới.
+ * Mỗi phòng có một số thế hệ, tăng trước khi xoá cache: kết quả tính xong chỉ được ghi vào cache nếu thế hệ
+ * không đổi từ lúc bắt đầu đọc, nên lần xoá đến giữa lúc đang tính không bị kết quả cũ ghi đè.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomUnavailableDatesCache {
+
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomMaintenanceRepository roomMaintenanceRepository;
+
+	private final Map<Integer, CachedEntry> cache = new ConcurrentHashMap<>();
+	private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+	// Event không rõ phòng (roomId null) làm mới mọi phòng
+	private final AtomicLong allRoomsGeneration = new AtomicLong();
+
+	public RoomUnavailableDatesDto get(Integer roomId) {
+		LocalDate today = LocalDate.now();
+		CachedEntry entry = cache.get(roomId);
+		if (entry != null && entry.computedOn().equals(today)) {
+			return entry.dates();
+		}
+		// Lấy thế hệ trước khi đọc DB
+		long generation = generation(roomId);
+		CachedEntry computed = new CachedEntry(today, compute(roomId));
+		cache.compute(roomId, (id, current) -> generation(id) == generation ? computed : current);
+		return computed.dates();
+	}
+
+	// Đọc booking qua sổ room_nights nên phải chạy sau RoomNightLedger (HIGHEST_PRECEDENCE) đã đồng bộ sổ
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		invalidate(event.getRoomId());
+	}
+
+	/**
+	 * Bỏ kết quả đã tính của một phòng (null: mọi phòng), ví dụ khi sổ room_nights của phòng vừa được đối soát lại.
+	 */
+	public void invalidate(Integer roomId) {
+		if (roomId == null) {
+			allRoomsGeneration.incrementAndGet();
+			cache.clear();
+		} else {
+			generations.computeIfAbsent(roomId, id -> new AtomicLong()).incrementAndGet();
+			cache.remove(roomId);
+		}
+	}
+
+	private long generation(Integer roomId) {
+		AtomicLong generation = generations.get(roomId);
+		// Hai bộ đếm chỉ tăng nên tổng đổi khi một trong hai đổi
+		return allRoomsGeneration.get() + (generation == null ? 0 : generation.get());
+	}
+
+	private RoomUnavailableDatesDto compute(Integer roomId) {
+		LocalDateTime fromDate = LocalDateTime.now();
+		LocalDateTime toDate = fromDate.plusMonths(2);
+
+		// Lấy cả đêm hôm qua: booking trả phòng hôm nay vẫn chặn check-in hôm nay
+		List<OrderDetail> bookings = orderDetailRepository.findBookingsByRoomAndDateRange(
+				roomId, fromDate.toLocalDate().minusDays(1), toDate.toLocalDate().plusDays(1), Arrays.asList(RESERVED, CART));
+		List<RoomMaintenance> maintenances = roomMaintenanceRepository.findActiveMaintenancesByRoomAndDateRange(
+				roomId, fromDate, toDate, Arrays.asList(MAINTENANCE, STOPWORKING));
+
+		List<LocalDate[]> checkIn = new ArrayList<>();
+		List<LocalDate[]> checkOut = new ArrayList<>();
+		List<LocalDate[]> disable = new ArrayList<>();
+
+		for (OrderDetail booking : bookings) {
+			LocalDate start = booking.getStartDate().toLocalDate();
+			LocalDate end = booking.getEndDate().toLocalDate();
+			// Check-in: chặn cả ngày end (checkout 12:00, không thể checkin cùng ngày)
+			checkIn.add(new LocalDate[]{start, end.plusDays(1)});
+			// Check-out: chỉ chặn các ngày giữa start và end
+			checkOut.add(new LocalDate[]{start.plusDays(1), end});
+			// Dừng hoạt động: các đêm khách ở
+			disable.add(new LocalDate[]{start, end});
+		}
+		for (RoomMaintenance maintenance : maintenances) {
+			LocalDate start = maintenance.getStartDate().toLocalDate();
+			LocalDate end = maintenance.getEndDate().toLocalDate();
+			if (STOPWORKING.equals(maintenance.getStatus())) {
+				disable.add(new LocalDate[]{start, end});
+			} else {
+				checkIn.add(new LocalDate[]{start, end.plusDays(1)});
+				checkOut.add(new LocalDate[]{start.plusDays(1), end});
+			}
+		}
+
+		return new RoomUnavailableDatesDto(DateRanges.merge(checkIn), DateRanges.merge(checkOut),
+				DateRanges.merge(disable));
+	}
+
+	private record CachedEntry(LocalDate computedOn, RoomUnavailableDatesDto dates) {
+	}
+}
@@ -0,0 +1,14 @@
+package hotel.service.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi giỏ hàng của một user thay đổi (thêm, xoá, sửa ghi chú, xoá hết, checkout, thanh toán, hết hạn giữ).
+ * CartSummaryCache tăng version giỏ của user sau khi commit.
+ */
+@Getter
+@AllArgsConstructor
+public class CartChangedEvent {
+	private final Integer userId;
+}
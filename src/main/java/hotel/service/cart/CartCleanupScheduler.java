@@ -1,62 +1,148 @@
 package hotel.service.cart;
 
 import hotel.db.entity.Order;
-import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomNight;
 import hotel.db.repository.order.OrderRepository;
 import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import hotel.service.availability.RoomHoldChangedEvent;
+import hotel.service.availability.RoomNightLedger;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static hotel.db.enums.OrderDetailStatus.CART;
+
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class CartCleanupScheduler {
 
+	// Số order mỗi lô: mỗi lô là một transaction ngắn, khoá không giữ lâu dù sau đợt cao điểm có hàng nghìn giỏ hết hạn
+	private static final int CHUNK_SIZE = 500;
+
 	private final OrderRepository orderRepository;
 	private final OrderDetailRepository orderDetailRepository;
+	private final RoomNightRepository roomNightRepository;
+	private final RoomNightLedger roomNightLedger;
+	private final ApplicationEventPublisher eventPublisher;
+	private final PlatformTransactionManager transactionManager;
 
 	/**
-	 * Chạy mỗi phút để xóa cart items đã quá 15 phút
+	 * Lưới an toàn cho CartHoldWheel: cứ 10 phút xoá các order CART đã quá 15 phút và các lần giữ phòng đã hết hạn
+	 * mà wheel chưa nhả (ví dụ lần nhả trước bị lỗi). Bình thường wheel đã nhả đúng hạn nên lần quét không tìm thấy gì.
 	 * Cron: giây phút giờ ngày tháng thứ
 	 */
-	@Scheduled(cron = "0 * * * * *") // Chạy mỗi phút
-	@Transactional
+	@Scheduled(cron = "0 */10 * * * *")
 	public void cleanupExpiredCartItems() {
 		try {
-			// Tính thời gian 15 phút trước
-			LocalDateTime expiryTime = LocalDateTime.now().minusMinutes(15);
-
-			// Tìm tất cả orders có status CART và createdAt < expiryTime
-			List<Order> expiredCartOrders = orderRepository.findByStatusAndCreatedAtBefore("CART", expiryTime);
-
-			if (expiredCartOrders.isEmpty()) {
-				return; // Không có gì để xóa
+			purgeExpired(LocalDateTime.now().minus(CartHoldWheel.HOLD));
+			for (String holdToken : roomNightRepository.findExpiredHoldTokens(LocalDateTime.now())) {
+				releaseExpiredRoomHold(holdToken);
 			}
+		} catch (RuntimeException e) {
+			log.error("Error during cart cleanup", e);
+		}
+	}
 
-			System.out.println("=== Cart Cleanup: Found " + expiredCartOrders.size() + " expired cart orders ===");
-
-			for (Order order : expiredCartOrders) {
-				// Xóa order details trước
-				List<OrderDetail> orderDetails = orderDetailRepository.findByOrderId(order.getOrderId());
-				if (!orderDetails.isEmpty()) {
-					orderDetailRepository.deleteAll(orderDetails);
-					System.out.println("Deleted " + orderDetails.size() + " order details for order " + order.getOrderId());
-				}
+	/**
+	 * Xoá theo lô mọi order CART tạo trước expiryTime cùng order details của chúng.
+	 * Mỗi lô khoá tối đa CHUNK_SIZE order (SELECT ... FOR UPDATE) rồi xoá bằng hai câu DELETE theo order_id.
+	 */
+	public CleanupReport purgeExpired(LocalDateTime expiryTime) {
+		long started = System.nanoTime();
+		int orders = 0;
+		int orderDetails = 0;
+		int chunks = 0;
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		while (true) {
+			int[] deleted = template.execute(status -> {
+				List<Integer> orderIds = orderRepository.lockIdsByStatusAndCreatedAtBefore(CART, expiryTime, CHUNK_SIZE);
+				return orderIds.isEmpty() ? new int[]{0, 0} : deleteOrders(orderIds);
+			});
+			if (deleted == null || deleted[0] == 0) {
+				break;
+			}
+			orders += deleted[0];
+			orderDetails += deleted[1];
+			chunks++;
+			if (deleted[0] < CHUNK_SIZE) {
+				break;
+			}
+		}
+		CleanupReport report = new CleanupReport(orders, orderDetails, chunks, (System.nanoTime() - started) / 1_000_000);
+		if (orders > 0) {
+			log.info("Cart cleanup: deleted {} expired cart orders and {} order details in {} chunk(s), {} ms",
+					report.orders(), report.orderDetails(), report.chunks(), report.elapsedMs());
+		}
+		return report;
+	}
 
-				// Xóa order
-				orderRepository.delete(order);
-				System.out.println("Deleted expired cart order " + order.getOrderId() + " (created at: " + order.getCreatedAt() + ")");
+	/**
+	 * Xoá một order CART đã hết hạn giữ cùng order details của nó.
+	 * Kiểm tra lại trong DB vì order có thể đã được thanh toán / xoá khỏi giỏ sau khi được xếp lịch nhả.
+	 */
+	public boolean releaseExpiredHold(Integer orderId) {
+		Boolean released = new TransactionTemplate(transactionManager).execute(status -> {
+			Order order = orderRepository.findById(orderId).orElse(null);
+			if (order == null || !CART.equals(order.getStatus()) || order.getCreatedAt() == null
+					|| order.getCreatedAt().isAfter(LocalDateTime.now().minus(CartHoldWheel.HOLD))) {
+				return false;
 			}
+			deleteOrders(List.of(orderId));
+			eventPublisher.publishEvent(new CartChangedEvent(order.getUserId()));
+			log.debug("Released cart hold of order {} (created at {})", orderId, order.getCreatedAt());
+			return true;
+		});
+		return Boolean.TRUE.equals(released);
+	}
 
-			System.out.println("=== Cart Cleanup: Completed. Deleted " + expiredCartOrders.size() + " expired orders ===");
+	/**
+	 * Nhả một lần giữ phòng đã hết hạn của giỏ hàng trong session (app.cart.mode=session).
+	 * Không còn dòng nào nghĩa là lần giữ đã được nhả hoặc đã chuyển thành order lúc thanh toán.
+	 */
+	public boolean releaseExpiredRoomHold(String holdToken) {
+		Boolean released = new TransactionTemplate(transactionManager).execute(status -> {
+			LocalDateTime now = LocalDateTime.now();
+			List<RoomNight> rows = roomNightRepository.findByHoldToken(holdToken);
+			if (rows.isEmpty() || rows.stream().anyMatch(row -> row.getHoldExpiresAt().isAfter(now))) {
+				return false;
+			}
+			RoomHoldChangedEvent.of(roomNightLedger.releaseHold(holdToken)).forEach(eventPublisher::publishEvent);
+			return true;
+		});
+		return Boolean.TRUE.equals(released);
+	}
 
-		} catch (Exception e) {
-			System.err.println("Error during cart cleanup: " + e.getMessage());
-			e.printStackTrace();
+	/**
+	 * Xoá order details rồi orders bằng câu DELETE theo tập order_id, trả về {số order, số order detail}.
+	 * Xoá native không qua AvailabilityEntityListener nên tự phát RoomAvailabilityChangedEvent cho từng order detail,
+	 * sổ room_nights và các index lịch phòng cập nhật sau commit như khi xoá qua JPA.
+	 */
+	private int[] deleteOrders(List<Integer> orderIds) {
+		List<Object[]> details = orderDetailRepository.findAvailabilityKeysByOrderIdIn(orderIds);
+		int deletedDetails = orderDetailRepository.deleteByOrderIdIn(orderIds);
+		int deletedOrders = orderRepository.deleteByOrderIdIn(orderIds);
+		for (Object[] row : details) {
+			if (row[1] != null) {
+				eventPublisher.publishEvent(new RoomAvailabilityChangedEvent(((Number) row[1]).intValue(),
+						(LocalDateTime) row[2], (LocalDateTime) row[3], ((Number) row[0]).intValue(), null));
+			}
 		}
+		return new int[]{deletedOrders, deletedDetails};
+	}
+
+	/**
+	 * Kết quả một lần dọn: số dòng đã xoá và thời gian chạy.
+	 */
+	public record CleanupReport(int orders, int orderDetails, int chunks, long elapsedMs) {
 	}
 }
@@ -0,0 +1,221 @@
+package hotel.service.cart;
+
+import hotel.db.repository.order.OrderRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static hotel.db.enums.OrderDetailStatus.CART;
+
+/**
+ * Hạn giữ giỏ hàng (15 phút kể từ lúc tạo order CART, hoặc hạn của một lần giữ phòng của giỏ hàng trong session)
+ * trên một timing wheel phân cấp, tick mỗi giây.
+ * Cấp 0 có 64 ô 1 giây, cấp 1 có 64 ô 64 giây (~68 phút, đủ cho một lần giữ), cấp 2 có 64 ô ~68 phút;
+ * khi kim cấp dưới quay hết một vòng thì ô tương ứng của cấp trên được rải xuống cấp dưới.
+ * Thêm / bỏ một hạn là O(1) và mỗi tick chỉ đụng một ô, không query DB khi không có gì hết hạn.
+ * Hạn đến thì CartCleanupScheduler kiểm tra lại trong DB rồi mới xoá, nên order đã thanh toán / lần giữ đã chuyển
+ * thành order mà còn trong wheel chỉ là một lần kiểm tra thừa. Quét định kỳ trong CartCleanupScheduler vẫn giữ làm lưới an toàn.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartHoldWheel {
+
+	static final Duration HOLD = Duration.ofMinutes(15);
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final long MASK = SLOTS - 1;
+	private static final int LEVELS = 3;
+	private static final String ORDER_KEY = "order:";
+	private static final String HOLD_KEY = "hold:";
+
+	private final OrderRepository orderRepository;
+	private final RoomNightRepository roomNightRepository;
+	private final CartCleanupScheduler cartCleanupScheduler;
+
+	// Mọi truy cập đều trong synchronized(this); ô của cấp l nằm ở slots[l * SLOTS + i]
+	private final List<Set<String>> slots = new ArrayList<>(LEVELS * SLOTS);
+	private final Map<String, Hold> holds = new HashMap<>();
+	private long currentTick = nowTick();
+
+	private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "cart-hold-wheel");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	{
+		for (int i = 0; i < LEVELS * SLOTS; i++) {
+			slots.add(new LinkedHashSet<>());
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		int loaded = 0;
+		for (Object[] row : orderRepository.findIdAndCreatedAtByStatus(CART)) {
+			schedule(((Number) row[0]).intValue(), (LocalDateTime) row[1]);
+			loaded++;
+		}
+		for (Object[] row : roomNightRepository.findActiveHoldTokens(LocalDateTime.now())) {
+			scheduleHold((String) row[0], (LocalDateTime) row[1]);
+			loaded++;
+		}
+		log.debug("Loaded {} cart holds into the timing wheel", loaded);
+		ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ticker.shutdownNow();
+	}
+
+	/**
+	 * Đặt (hoặc đặt lại) hạn giữ của một order CART; hạn đã qua thì được nhả ở tick kế tiếp.
+	 */
+	public void schedule(Integer orderId, LocalDateTime createdAt) {
+		LocalDateTime start = createdAt == null ? LocalDateTime.now() : createdAt;
+		schedule(ORDER_KEY + orderId, start.plus(HOLD));
+	}
+
+	/**
+	 * Đặt hạn nhả một lần giữ phòng (room_nights.hold_token) của giỏ hàng trong session.
+	 */
+	public void scheduleHold(String holdToken, LocalDateTime expiresAt) {
+		schedule(HOLD_KEY + holdToken, expiresAt);
+	}
+
+	public void cancelHold(String holdToken) {
+		cancel(HOLD_KEY + holdToken);
+	}
+
+	private synchronized void schedule(String key, LocalDateTime expiresAt) {
+		long deadline = Math.max(toTick(expiresAt), currentTick + 1);
+		cancel(key);
+		holds.put(key, new Hold(deadline, place(key, deadline)));
+	}
+
+	private synchronized void cancel(String key) {
+		Hold hold = holds.remove(key);
+		if (hold != null) {
+			slots.get(hold.slot()).remove(key);
+		}
+	}
+
+	public synchronized int size() {
+		return holds.size();
+	}
+
+	synchronized long currentTick() {
+		return currentTick;
+	}
+
+	private void tick() {
+		try {
+			for (String key : advance(nowTick())) {
+				try {
+					if (key.startsWith(ORDER_KEY)) {
+						cartCleanupScheduler.releaseExpiredHold(Integer.valueOf(key.substring(ORDER_KEY.length())));
+					} else {
+						cartCleanupScheduler.releaseExpiredRoomHold(key.substring(HOLD_KEY.length()));
+					}
+				} catch (RuntimeException e) {
+					// Để lần quét an toàn xử lý lại
+					log.warn("Could not release cart hold {}", key, e);
+				}
+			}
+		} catch (RuntimeException e) {
+			// Lỗi thoát ra ngoài sẽ làm scheduleAtFixedRate dừng hẳn
+			log.error("Cart hold wheel tick failed", e);
+		}
+	}
+
+	/**
+	 * Quay kim tới tick now, trả về các khoá (order / lần giữ) đến hạn.
+	 */
+	synchronized List<String> advance(long now) {
+		List<String> due = new ArrayList<>();
+		if (now - currentTick > (long) SLOTS * SLOTS) {
+			// Bỏ lỡ quá nhiều tick (máy ngủ, GC dài...): xếp lại cả wheel thay vì quay từng tick
+			currentTick = now;
+			slots.forEach(Set::clear);
+			for (Map.Entry<String, Hold> entry : new ArrayList<>(holds.entrySet())) {
+				if (entry.getValue().deadline() <= now) {
+					holds.remove(entry.getKey());
+					due.add(entry.getKey());
+				} else {
+					holds.put(entry.getKey(), new Hold(entry.getValue().deadline(),
+							place(entry.getKey(), entry.getValue().deadline())));
+				}
+			}
+			return due;
+		}
+		while (currentTick < now) {
+			currentTick++;
+			// Cấp trên rải xuống trước để hạn rơi đúng vào ô cấp 0 của tick này cũng được lấy ra ngay
+			for (int level = LEVELS - 1; level >= 1; level--) {
+				if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+					Set<String> bucket = slots.get(level * SLOTS + (int) ((currentTick >> (BITS * level)) & MASK));
+					List<String> moved = new ArrayList<>(bucket);
+					bucket.clear();
+					for (String key : moved) {
+						long deadline = holds.get(key).deadline();
+						holds.put(key, new Hold(deadline, place(key, deadline)));
+					}
+				}
+			}
+			Set<String> bucket = slots.get((int) (currentTick & MASK));
+			for (String key : bucket) {
+				holds.remove(key);
+				due.add(key);
+			}
+			bucket.clear();
+		}
+		return due;
+	}
+
+	// Cấp thấp nhất mà hạn còn nằm trong một vòng của kim cấp đó; quá cả cấp cao nhất thì để ô xa nhất, lúc rải xuống sẽ xếp lại
+	private int place(String key, long deadline) {
+		int level = 0;
+		while (level < LEVELS - 1 && (deadline >> (BITS * level)) - (currentTick >> (BITS * level)) >= SLOTS) {
+			level++;
+		}
+		int shift = BITS * level;
+		long position = Math.min(deadline >> shift, (currentTick >> shift) + SLOTS - 1);
+		int slot = level * SLOTS + (int) (position & MASK);
+		slots.get(slot).add(key);
+		return slot;
+	}
+
+	private static long nowTick() {
+		return System.currentTimeMillis() / 1000;
+	}
+
+	// Làm tròn lên giây để không nhả trước hạn
+	private static long toTick(LocalDateTime time) {
+		Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+		return instant.getNano() == 0 ? instant.getEpochSecond() : instant.getEpochSecond() + 1;
+	}
+
+	private record Hold(long deadline, int slot) {
+	}
+}
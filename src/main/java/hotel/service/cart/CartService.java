@@ -14,9 +14,11 @@ public interface CartService {
     void clearCart(Integer userId);
     int getCartItemCount(Integer userId);
     List<Integer> checkout(Integer userId);
+    List<Integer> persistCartLines(Integer userId, List<Integer> selectedOrderIds);
     int fixLegacyCartStatus(Integer userId);
     List<Discount> getAvailableDiscounts();
     List<Discount> getAvailableDiscountsForCart(Integer userId);
     CartSummaryDto getCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode);
+    CartSummaryDto computeCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode);
     void updateOrderNote(Integer userId, Integer orderId, String note);
 }
@@ -2,14 +2,17 @@ package hotel.service.cart;
 
 import hotel.db.dto.cart.AddToCartRequest;
 import hotel.db.dto.cart.CartItemDto;
+import hotel.db.dto.cart.CartLineDto;
 import hotel.db.dto.cart.CartSummaryDto;
 import hotel.db.entity.*;
 import hotel.db.repository.discount.DiscountRepository;
 import hotel.db.repository.order.OrderRepository;
 import hotel.db.repository.orderdetail.OrderDetailRepository;
 import hotel.db.repository.room.RoomRepository;
-import hotel.db.repository.roomimage.RoomImageRepository;
+import hotel.service.availability.RoomBookingGuard;
+import hotel.service.availability.RoomNightLedger;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,19 +22,27 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static hotel.db.enums.OrderDetailStatus.RESERVED;
+
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
 
 	private final RoomRepository roomRepository;
-	private final RoomImageRepository roomImageRepository;
 	private final OrderRepository orderRepository;
 	private final OrderDetailRepository orderDetailRepository;
 	private final DiscountRepository discountRepository;
+	private final RoomBookingGuard roomBookingGuard;
+	private final RoomNightLedger roomNightLedger;
+	private final CartHoldWheel cartHoldWheel;
+	private final CartSummaryCache cartSummaryCache;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Override
 	@Transactional
@@ -49,6 +60,10 @@ public class CartServiceImpl implements CartService {
 			throw new RuntimeException("Check-out date is required");
 		}
 
+		// Lock trước mọi câu đọc để snapshot của transaction thấy được dữ liệu request trước đã commit.
+		// Chỉ các request cùng phòng mới phải chờ nhau, lock giữ đến khi transaction kết thúc
+		roomBookingGuard.lockRoomUntilCompletion(request.getRoomId());
+
 		// Set default times: check-in at 14:00:00, check-out at 12:00:00
 		LocalDateTime checkInDate = request.getCheckIn().toLocalDate().atTime(14, 0, 0);
 		LocalDateTime checkOutDate = request.getCheckOut().toLocalDate().atTime(12, 0, 0);
@@ -80,7 +95,8 @@ public class CartServiceImpl implements CartService {
 		}
 
 		// Check if room is already reserved by others for these dates
-		List<OrderDetail> reservedDetails = orderDetailRepository.findByRoomIdAndStatus(request.getRoomId(), "RESERVED");
+		List<OrderDetail> reservedDetails = orderDetailRepository.findBookingsByRoomAndDateRange(
+				request.getRoomId(), checkInDate.toLocalDate(), checkOutDate.toLocalDate(), List.of(RESERVED));
 		for (OrderDetail detail : reservedDetails) {
 			LocalDateTime existingCheckIn = detail.getCheckIn();
 			LocalDateTime existingCheckOut = detail.getCheckOut();
@@ -104,6 +120,7 @@ public class CartServiceImpl implements CartService {
 
 		Order savedOrder = orderRepository.save(order);
 		System.out.println("Created cart order with ID: " + savedOrder.getOrderId() + " with totalAmount: " + totalAmount);
+		cartHoldWheel.schedule(savedOrder.getOrderId(), savedOrder.getCreatedAt());
 
 		// Create OrderDetail (không set amount ở đây, sẽ set khi thanh toán thành công)
 		OrderDetail orderDetail = new OrderDetail();
@@ -121,6 +138,10 @@ public class CartServiceImpl implements CartService {
 
 		orderDetailRepository.save(orderDetail);
 
+		// Giữ các đêm ở tầng DB, trùng với node khác sẽ bị unique key chặn và rollback
+		roomNightLedger.writeOrderDetail(orderDetail);
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
+
 		System.out.println("Cart item added successfully to database!");
 	}
 
@@ -128,47 +149,30 @@ public class CartServiceImpl implements CartService {
 	public List<CartItemDto> getCartItems(Integer userId) {
 		System.out.println("=== Getting cart items for userId: " + userId + " ===");
 
-		// Get all orders with status CART
-		List<Order> cartOrders = orderRepository.findByUserIdAndStatus(userId, "CART");
-		System.out.println("Found " + cartOrders.size() + " CART orders");
-
-		List<CartItemDto> cartItems = new ArrayList<>();
-
-		for (Order order : cartOrders) {
-			// Get order details
-			List<OrderDetail> orderDetails = orderDetailRepository.findByOrderId(order.getOrderId());
-
-			for (OrderDetail detail : orderDetails) {
-				Room room = roomRepository.findById(detail.getRoomId()).orElse(null);
-				if (room == null) continue;
-
-				// Calculate nights (based on dates only, not time)
-				long days = ChronoUnit.DAYS.between(detail.getCheckIn().toLocalDate(), detail.getCheckOut().toLocalDate());
-				BigDecimal totalPrice = room.getPrice().multiply(BigDecimal.valueOf(days));
-
-				// Get room image
-				String imageUrl = null;
-				List<RoomImage> roomImages = roomImageRepository.findByRoomIdAndIsDeletedFalse(room.getRoomId());
-				if (!roomImages.isEmpty()) {
-					imageUrl = roomImages.get(0).getRoomImageUrl();
-				}
-
-				// Create CartItemDto
-				CartItemDto cartItem = new CartItemDto();
-				cartItem.setOrderId(order.getOrderId());
-				cartItem.setRoomId(room.getRoomId());
-				cartItem.setRoomType(room.getRoomType());
-				cartItem.setRoomNumber(room.getRoomNumber());
-				cartItem.setPrice(room.getPrice());
-				cartItem.setCheckIn(detail.getCheckIn());
-				cartItem.setCheckOut(detail.getCheckOut());
-				cartItem.setNumberOfDays((int) days);
-				cartItem.setTotalPrice(totalPrice);
-				cartItem.setImageRoom(imageUrl);
-				cartItem.setOrderDescription(detail.getOrderDescription());
-
-				cartItems.add(cartItem);
-			}
+		// Một câu join lấy cả order detail, phòng và ảnh bìa
+		List<CartLineDto> lines = orderRepository.findCartLines(userId, "CART");
+
+		List<CartItemDto> cartItems = new ArrayList<>(lines.size());
+		for (CartLineDto line : lines) {
+			// Calculate nights (based on dates only, not time)
+			long days = ChronoUnit.DAYS.between(line.getCheckIn().toLocalDate(), line.getCheckOut().toLocalDate());
+			BigDecimal totalPrice = line.getPrice().multiply(BigDecimal.valueOf(days));
+
+			// Create CartItemDto
+			CartItemDto cartItem = new CartItemDto();
+			cartItem.setOrderId(line.getOrderId());
+			cartItem.setRoomId(line.getRoomId());
+			cartItem.setRoomType(line.getRoomType());
+			cartItem.setRoomNumber(line.getRoomNumber());
+			cartItem.setPrice(line.getPrice());
+			cartItem.setCheckIn(line.getCheckIn());
+			cartItem.setCheckOut(line.getCheckOut());
+			cartItem.setNumberOfDays((int) days);
+			cartItem.setTotalPrice(totalPrice);
+			cartItem.setImageRoom(line.getImageRoom());
+			cartItem.setOrderDescription(line.getOrderDescription());
+
+			cartItems.add(cartItem);
 		}
 
 		System.out.println("Returning " + cartItems.size() + " cart items");
@@ -211,6 +215,7 @@ public class CartServiceImpl implements CartService {
 						orderRepository.save(order);
 					}
 
+					eventPublisher.publishEvent(new CartChangedEvent(userId));
 					System.out.println("Removed cart item successfully");
 					return;
 				}
@@ -234,14 +239,15 @@ public class CartServiceImpl implements CartService {
 			// Delete the order
 			orderRepository.delete(order);
 		}
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
 
 		System.out.println("Cart cleared successfully");
 	}
 
 	@Override
 	public int getCartItemCount(Integer userId) {
-		List<CartItemDto> items = getCartItems(userId);
-		return items.size();
+		// Badge trên mọi trang: chỉ đếm, không dựng danh sách
+		return (int) orderRepository.countLinesByUserIdAndStatus(userId, "CART");
 	}
 
 	@Override
@@ -272,10 +278,17 @@ public class CartServiceImpl implements CartService {
 			}
 		}
 
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
 		System.out.println("Checkout completed. " + orderIds.size() + " orders created");
 		return orderIds;
 	}
 
+	@Override
+	public List<Integer> persistCartLines(Integer userId, List<Integer> selectedOrderIds) {
+		// Giỏ hàng đã nằm trong DB, không có gì phải ghi thêm
+		return selectedOrderIds;
+	}
+
 	@Override
 	@Transactional
 	public int fixLegacyCartStatus(Integer userId) {
@@ -309,6 +322,9 @@ public class CartServiceImpl implements CartService {
 			}
 		}
 
+		if (fixed > 0) {
+			eventPublisher.publishEvent(new CartChangedEvent(userId));
+		}
 		System.out.println("Fixed " + fixed + " legacy cart orders");
 		return fixed;
 	}
@@ -340,7 +356,11 @@ public class CartServiceImpl implements CartService {
 				.collect(Collectors.toSet());
 
 		System.out.println("Room types in cart: " + roomTypesInCart);
+		return getAvailableDiscountsForRoomTypes(roomTypesInCart);
+	}
 
+	// Discounts khả dụng cho các loại phòng trong giỏ, dùng chung với SessionCartServiceImpl
+	List<Discount> getAvailableDiscountsForRoomTypes(Set<String> roomTypesInCart) {
 		// Lấy discounts khả dụng và lọc theo room type
 		LocalDate today = LocalDate.now();
 
@@ -356,32 +376,53 @@ public class CartServiceImpl implements CartService {
 
 	@Override
 	public CartSummaryDto getCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode) {
+		// Giỏ chưa đổi từ lần tính trước với cùng lựa chọn và mã giảm giá thì lấy lại kết quả cũ
+		return cartSummaryCache.get(userId, String.valueOf(cartSummaryCache.version(userId)), selectedOrderIds, discountCode,
+				() -> computeCartSummary(userId, selectedOrderIds, discountCode));
+	}
+
+	@Override
+	public CartSummaryDto computeCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode) {
+		// Luôn đọc lại orders và discount: dùng khi tính số tiền thanh toán
+		return summarize(cartOrderAmounts(userId), selectedOrderIds, discountCode);
+	}
+
+	/**
+	 * orderId -> Order.totalAmount của các order CART (đã tính khi thêm vào giỏ), dùng chung với SessionCartServiceImpl.
+	 */
+	Map<Integer, BigDecimal> cartOrderAmounts(Integer userId) {
 		System.out.println("=== Calculating cart summary for userId: " + userId + " ===");
 
-		// Get all cart orders
-		List<Order> cartOrders = orderRepository.findByUserIdAndStatus(userId, "CART");
+		Map<Integer, BigDecimal> amountByOrderId = new LinkedHashMap<>();
+		for (Order order : orderRepository.findByUserIdAndStatus(userId, "CART")) {
+			amountByOrderId.put(order.getOrderId(), order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO);
+		}
+		return amountByOrderId;
+	}
 
+	/**
+	 * Tổng tiền giỏ hàng từ số tiền của từng dòng (orderId -> amount), dùng chung với SessionCartServiceImpl.
+	 */
+	CartSummaryDto summarize(Map<Integer, BigDecimal> amountByOrderId, List<Integer> selectedOrderIds, String discountCode) {
 		CartSummaryDto summary = new CartSummaryDto();
-		summary.setTotalOrders(cartOrders.size());
+		summary.setTotalOrders(amountByOrderId.size());
 
+		List<Integer> cartOrderIds = new ArrayList<>(amountByOrderId.keySet());
 		// Filter by selected order IDs if provided
 		if (selectedOrderIds != null && !selectedOrderIds.isEmpty()) {
-			cartOrders = cartOrders.stream()
-					.filter(order -> selectedOrderIds.contains(order.getOrderId()))
+			cartOrderIds = cartOrderIds.stream()
+					.filter(selectedOrderIds::contains)
 					.collect(Collectors.toList());
-			summary.setSelectedOrders(cartOrders.size());
+			summary.setSelectedOrders(cartOrderIds.size());
 			summary.setSelectedOrderIds(selectedOrderIds);
 		} else {
 			// If no selection, select all
-			summary.setSelectedOrders(cartOrders.size());
-			summary.setSelectedOrderIds(cartOrders.stream()
-					.map(Order::getOrderId)
-					.collect(Collectors.toList()));
+			summary.setSelectedOrders(cartOrderIds.size());
+			summary.setSelectedOrderIds(cartOrderIds);
 		}
 
-		// Calculate subtotal from Order.totalAmount (already calculated in backend)
-		BigDecimal subtotal = cartOrders.stream()
-				.map(order -> order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO)
+		BigDecimal subtotal = cartOrderIds.stream()
+				.map(amountByOrderId::get)
 				.reduce(BigDecimal.ZERO, BigDecimal::add);
 
 		summary.setSubtotal(subtotal);
@@ -465,6 +506,7 @@ public class CartServiceImpl implements CartService {
 			OrderDetail detail = orderDetails.get(0); // Mỗi order chỉ có 1 detail (1 phòng)
 			detail.setOrderDescription(note);
 			orderDetailRepository.save(detail);
+			eventPublisher.publishEvent(new CartChangedEvent(userId));
 			System.out.println("Updated order note successfully");
 		}
 	}
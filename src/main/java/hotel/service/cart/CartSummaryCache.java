@@ -0,0 +1,95 @@
+package hotel.service.cart;
+
+import hotel.db.dto.cart.CartSummaryDto;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tổng tiền giỏ hàng đã tính, theo (userId, version giỏ, danh sách chọn, mã giảm giá).
+ * Chỉ dùng cho phần hiển thị (/cart/summary): mỗi lần gõ mã giảm giá với cùng giỏ chỉ còn một lần tra map.
+ * Hiệu lực của mã giảm giá còn phụ thuộc ngày hiện tại và số lượt đã dùng, giỏ còn bị xoá theo lô trong
+ * CartCleanupScheduler.purgeExpired (đều không đổi version giỏ), nên kết quả có thể cũ tới TTL;
+ * số tiền gửi sang PayOS phải tính lại bằng CartService.computeCartSummary.
+ * Version lấy từ một bộ đếm chung và không bao giờ lặp lại, nên bỏ version của một user bất kỳ lúc nào cũng an toàn:
+ * lần sau user nhận version mới và các key cũ không còn ai đọc, tự bị đẩy ra theo LRU.
+ */
+@Component
+public class CartSummaryCache {
+
+	private static final int MAX_ENTRIES = 10_000;
+	private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+	// Theo thứ tự truy cập để bỏ key ít dùng nhất, mọi truy cập trong synchronized(entries)
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+	public long version(Integer userId) {
+		if (versions.size() > MAX_ENTRIES) {
+			// User đã gọi version() nhưng chưa có entry nào (loader lỗi) không bị LRU đẩy ra, dọn hết cho chắc
+			versions.clear();
+		}
+		return versions.computeIfAbsent(userId, id -> sequence.incrementAndGet());
+	}
+
+	/**
+	 * Tổng tiền của giỏ ở version cartVersion; chưa có (hoặc quá TTL) thì tính bằng loader.
+	 * cartVersion phải được lấy trước khi loader đọc giỏ: giỏ đổi giữa chừng thì kết quả nằm dưới version cũ, không ai đọc lại.
+	 * Trả về bản sao vì CartSummaryDto sửa được.
+	 */
+	public CartSummaryDto get(Integer userId, String cartVersion, List<Integer> selectedOrderIds, String discountCode,
+							  Supplier<CartSummaryDto> loader) {
+		Key key = new Key(userId, cartVersion,
+				selectedOrderIds == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(selectedOrderIds)),
+				discountCode == null ? "" : discountCode.trim().toUpperCase());
+		long now = System.nanoTime();
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null || now - entry.loadedAt() > TTL_NANOS) {
+			entry = new Entry(copy(loader.get()), now);
+			synchronized (entries) {
+				entries.put(key, entry);
+				if (entries.size() > MAX_ENTRIES) {
+					Key eldest = entries.keySet().iterator().next();
+					entries.remove(eldest);
+					versions.remove(eldest.userId());
+				}
+			}
+		}
+		return copy(entry.summary());
+	}
+
+	@Order(1)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCartChanged(CartChangedEvent event) {
+		// User chưa có version thì cũng chưa có key nào còn được đọc, lần sau version() sẽ cấp số mới
+		versions.computeIfPresent(event.getUserId(), (id, version) -> sequence.incrementAndGet());
+	}
+
+	private static CartSummaryDto copy(CartSummaryDto summary) {
+		return new CartSummaryDto(summary.getTotalOrders(), summary.getSelectedOrders(), summary.getSubtotal(),
+				summary.getDiscountAmount(), summary.getTotalAmount(),
+				summary.getSelectedOrderIds() == null ? null : new ArrayList<>(summary.getSelectedOrderIds()),
+				summary.getDiscountMessage(), summary.getDiscountValid());
+	}
+
+	private record Key(Integer userId, String cartVersion, List<Integer> selectedOrderIds, String discountCode) {
+	}
+
+	private record Entry(CartSummaryDto summary, long loadedAt) {
+	}
+}
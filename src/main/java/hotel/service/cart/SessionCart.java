@@ -0,0 +1,88 @@
+package hotel.service.cart;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.SessionScope;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Giỏ hàng nằm trong session (app.cart.mode=session): mỗi dòng chỉ giữ id phòng, ngày, ghi chú và mã giữ phòng,
+ * thông tin phòng lấy từ RoomCatalogSnapshot lúc hiển thị.
+ * Id dòng là số âm (-1, -2...) để giao diện vẫn dùng chung trường orderId mà không trùng với order thật trong DB.
+ * Dòng quá hạn giữ tự bị bỏ khi đọc, lần giữ trong room_nights do CartHoldWheel nhả.
+ * version() đổi mỗi khi danh sách dòng đổi, kể cả khi dòng hết hạn, để CartSummaryCache không trả tổng tiền cũ.
+ */
+@Component
+@SessionScope
+public class SessionCart implements Serializable {
+
+	private final List<Line> lines = new ArrayList<>();
+	private final String id = UUID.randomUUID().toString();
+	private int lastLineId;
+	private long revision;
+
+	public synchronized List<Line> lines() {
+		dropExpired();
+		return List.copyOf(lines);
+	}
+
+	/**
+	 * Phân biệt giỏ của từng session và từng lần đổi dòng trong giỏ.
+	 */
+	public synchronized String version() {
+		dropExpired();
+		return id + ":" + revision;
+	}
+
+	public synchronized Line add(Integer roomId, LocalDate checkIn, LocalDate checkOut, String description,
+								 String holdToken, LocalDateTime heldUntil) {
+		Line line = new Line(-(++lastLineId), roomId, checkIn, checkOut, description, holdToken, heldUntil);
+		lines.add(line);
+		revision++;
+		return line;
+	}
+
+	/**
+	 * Bỏ các dòng khớp điều kiện, trả về các dòng đã bỏ.
+	 */
+	public synchronized List<Line> remove(Predicate<Line> filter) {
+		List<Line> removed = lines.stream().filter(filter).toList();
+		if (lines.removeAll(removed)) {
+			revision++;
+		}
+		return removed;
+	}
+
+	public synchronized boolean updateDescription(int lineId, String description) {
+		for (int i = 0; i < lines.size(); i++) {
+			Line line = lines.get(i);
+			if (line.lineId() == lineId) {
+				lines.set(i, new Line(line.lineId(), line.roomId(), line.checkIn(), line.checkOut(), description,
+						line.holdToken(), line.heldUntil()));
+				revision++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void dropExpired() {
+		LocalDateTime now = LocalDateTime.now();
+		if (lines.removeIf(line -> !line.heldUntil().isAfter(now))) {
+			revision++;
+		}
+	}
+
+	/**
+	 * Một phòng trong giỏ: các đêm [checkIn, checkOut) đang được giữ bằng holdToken đến heldUntil.
+	 */
+	public record Line(int lineId, Integer roomId, LocalDate checkIn, LocalDate checkOut, String description,
+					   String holdToken, LocalDateTime heldUntil) implements Serializable {
+	}
+}
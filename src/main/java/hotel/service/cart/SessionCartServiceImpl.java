@@ -0,0 +1,365 @@
+package hotel.service.cart;
+
+import hotel.db.dto.cart.AddToCartRequest;
+import hotel.db.dto.cart.CartItemDto;
+import hotel.db.dto.cart.CartSummaryDto;
+import hotel.db.entity.Discount;
+import hotel.db.entity.Order;
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.Room;
+import hotel.db.repository.order.OrderRepository;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.service.availability.RoomBookingGuard;
+import hotel.service.availability.RoomHoldChangedEvent;
+import hotel.service.availability.RoomNightLedger;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import hotel.service.room.RoomCardLoader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.PENDING;
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+
+/**
+ * Chế độ giỏ hàng trong session (app.cart.mode=session).
+ * Thêm / xoá phòng chỉ đổi SessionCart và ghi một lần giữ nhẹ trong room_nights (không tạo Order / OrderDetail),
+ * nên khách chỉ xem rồi bỏ đi không sinh dòng order nào phải dọn. Order / OrderDetail chỉ được tạo,
+ * trong một transaction, khi khách checkout hoặc tạo link thanh toán.
+ * Order CART đã có sẵn trong DB (tạo trước khi đổi chế độ, hoặc đã tạo link thanh toán nhưng chưa trả)
+ * vẫn hiển thị và xử lý qua CartServiceImpl như cũ.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.cart.mode", havingValue = "session")
+@RequiredArgsConstructor
+public class SessionCartServiceImpl implements CartService {
+
+	private final CartServiceImpl cartServiceImpl;
+	private final SessionCart sessionCart;
+	private final RoomCatalogSnapshot roomCatalogSnapshot;
+	private final RoomCardLoader roomCardLoader;
+	private final RoomRepository roomRepository;
+	private final OrderRepository orderRepository;
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomBookingGuard roomBookingGuard;
+	private final RoomNightLedger roomNightLedger;
+	private final CartHoldWheel cartHoldWheel;
+	private final CartSummaryCache cartSummaryCache;
+	private final ApplicationEventPublisher eventPublisher;
+
+	@Override
+	@Transactional
+	public void addToCart(Integer userId, AddToCartRequest request) {
+		if (request.getRoomId() == null) {
+			throw new RuntimeException("Room ID is required");
+		}
+		if (request.getCheckIn() == null) {
+			throw new RuntimeException("Check-in date is required");
+		}
+		if (request.getCheckOut() == null) {
+			throw new RuntimeException("Check-out date is required");
+		}
+		roomBookingGuard.lockRoomUntilCompletion(request.getRoomId());
+
+		LocalDate checkIn = request.getCheckIn().toLocalDate();
+		LocalDate checkOut = request.getCheckOut().toLocalDate();
+		if (!checkOut.isAfter(checkIn)) {
+			throw new RuntimeException("Check-out date must be after check-in date");
+		}
+		RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+		int i = c.positionOf(request.getRoomId());
+		if (i < 0 || c.deleted[i] || c.systemStatus[i] == c.systemStatusCode(STOPWORKING)) {
+			throw new RuntimeException("Room not found with ID: " + request.getRoomId());
+		}
+		for (SessionCart.Line line : sessionCart.lines()) {
+			if (line.roomId().equals(request.getRoomId())
+					&& checkIn.isBefore(line.checkOut()) && checkOut.isAfter(line.checkIn())) {
+				throw new RuntimeException("Phòng này đã có trong giỏ hàng với ngày trùng lặp");
+			}
+		}
+
+		// Booking, bảo trì và lần giữ khác đều nằm trong room_nights: trùng đêm thì unique key chặn
+		String holdToken = UUID.randomUUID().toString();
+		LocalDateTime heldUntil = LocalDateTime.now().plus(CartHoldWheel.HOLD);
+		roomNightLedger.writeHold(request.getRoomId(), checkIn, checkOut, holdToken, heldUntil);
+		eventPublisher.publishEvent(new RoomHoldChangedEvent(request.getRoomId(),
+				checkIn.atStartOfDay(), checkOut.atStartOfDay()));
+		cartHoldWheel.scheduleHold(holdToken, heldUntil);
+		sessionCart.add(request.getRoomId(), checkIn, checkOut, request.getDescription(), holdToken, heldUntil);
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
+	}
+
+	@Override
+	public List<CartItemDto> getCartItems(Integer userId) {
+		List<CartItemDto> cartItems = new ArrayList<>(cartServiceImpl.getCartItems(userId));
+		List<SessionCart.Line> lines = sessionCart.lines();
+		if (lines.isEmpty()) {
+			return cartItems;
+		}
+
+		RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+		Map<Integer, String> coverImages = roomCardLoader.loadCoverImages(
+				lines.stream().map(SessionCart.Line::roomId).collect(Collectors.toSet()));
+		for (SessionCart.Line line : lines) {
+			int i = c.positionOf(line.roomId());
+			if (i < 0 || c.deleted[i]) {
+				continue;
+			}
+			long days = ChronoUnit.DAYS.between(line.checkIn(), line.checkOut());
+
+			CartItemDto cartItem = new CartItemDto();
+			cartItem.setOrderId(line.lineId());
+			cartItem.setRoomId(line.roomId());
+			cartItem.setRoomType(c.roomTypeOf(i));
+			cartItem.setRoomNumber(c.roomNumber[i]);
+			cartItem.setPrice(c.price[i]);
+			cartItem.setCheckIn(line.checkIn().atTime(14, 0, 0));
+			cartItem.setCheckOut(line.checkOut().atTime(12, 0, 0));
+			cartItem.setNumberOfDays((int) days);
+			cartItem.setTotalPrice(c.price[i].multiply(BigDecimal.valueOf(days)));
+			cartItem.setImageRoom(coverImages.get(line.roomId()));
+			cartItem.setOrderDescription(line.description());
+			cartItems.add(cartItem);
+		}
+		return cartItems;
+	}
+
+	@Override
+	@Transactional
+	public void removeFromCart(Integer userId, Integer roomId) {
+		// Như chế độ DB: bỏ dòng đầu tiên của phòng, ưu tiên dòng trong session
+		SessionCart.Line first = sessionCart.lines().stream()
+				.filter(line -> line.roomId().equals(roomId))
+				.findFirst()
+				.orElse(null);
+		if (first == null) {
+			cartServiceImpl.removeFromCart(userId, roomId);
+			return;
+		}
+		releaseHolds(sessionCart.remove(line -> line.lineId() == first.lineId()));
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
+	}
+
+	@Override
+	@Transactional
+	public void clearCart(Integer userId) {
+		releaseHolds(sessionCart.remove(line -> true));
+		cartServiceImpl.clearCart(userId);
+	}
+
+	@Override
+	public int getCartItemCount(Integer userId) {
+		return cartServiceImpl.getCartItemCount(userId) + sessionCart.lines().size();
+	}
+
+	@Override
+	@Transactional
+	public List<Integer> checkout(Integer userId) {
+		List<Integer> orderIds = new ArrayList<>(persistLines(userId, sessionCart.lines(), PENDING).values());
+		if (orderRepository.findByUserIdAndStatus(userId, CART).isEmpty()) {
+			if (orderIds.isEmpty()) {
+				throw new RuntimeException("Giỏ hàng trống");
+			}
+			return orderIds;
+		}
+		orderIds.addAll(cartServiceImpl.checkout(userId));
+		return orderIds;
+	}
+
+	/**
+	 * Ghi các dòng session được chọn (id âm) thành order CART, trả về danh sách chọn đã đổi sang id order thật.
+	 * Không chọn gì nghĩa là cả giỏ nên ghi mọi dòng.
+	 */
+	@Override
+	@Transactional
+	public List<Integer> persistCartLines(Integer userId, List<Integer> selectedOrderIds) {
+		boolean all = selectedOrderIds == null || selectedOrderIds.isEmpty();
+		List<SessionCart.Line> lines = sessionCart.lines().stream()
+				.filter(line -> all || selectedOrderIds.contains(line.lineId()))
+				.toList();
+		Map<Integer, Integer> orderIdByLineId = persistLines(userId, lines, CART);
+		if (all) {
+			return selectedOrderIds;
+		}
+		return selectedOrderIds.stream()
+				.map(id -> orderIdByLineId.getOrDefault(id, id))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public int fixLegacyCartStatus(Integer userId) {
+		return cartServiceImpl.fixLegacyCartStatus(userId);
+	}
+
+	@Override
+	public List<Discount> getAvailableDiscounts() {
+		return cartServiceImpl.getAvailableDiscounts();
+	}
+
+	@Override
+	public List<Discount> getAvailableDiscountsForCart(Integer userId) {
+		List<CartItemDto> cartItems = getCartItems(userId);
+		if (cartItems.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return cartServiceImpl.getAvailableDiscountsForRoomTypes(cartItems.stream()
+				.map(CartItemDto::getRoomType)
+				.collect(Collectors.toSet()));
+	}
+
+	@Override
+	public CartSummaryDto getCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode) {
+		// Hai session của cùng user có dòng khác nhau nên version gồm cả version giỏ trong DB và version của SessionCart
+		String cartVersion = cartSummaryCache.version(userId) + "/" + sessionCart.version();
+		return cartSummaryCache.get(userId, cartVersion, selectedOrderIds, discountCode,
+				() -> computeCartSummary(userId, selectedOrderIds, discountCode));
+	}
+
+	@Override
+	public CartSummaryDto computeCartSummary(Integer userId, List<Integer> selectedOrderIds, String discountCode) {
+		Map<Integer, BigDecimal> amountByOrderId = cartServiceImpl.cartOrderAmounts(userId);
+		RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+		for (SessionCart.Line line : sessionCart.lines()) {
+			int i = c.positionOf(line.roomId());
+			if (i >= 0 && !c.deleted[i]) {
+				amountByOrderId.put(line.lineId(),
+						c.price[i].multiply(BigDecimal.valueOf(ChronoUnit.DAYS.between(line.checkIn(), line.checkOut()))));
+			}
+		}
+		return cartServiceImpl.summarize(amountByOrderId, selectedOrderIds, discountCode);
+	}
+
+	@Override
+	public void updateOrderNote(Integer userId, Integer orderId, String note) {
+		if (orderId != null && orderId < 0) {
+			if (!sessionCart.updateDescription(orderId, note)) {
+				throw new RuntimeException("Order not found");
+			}
+			eventPublisher.publishEvent(new CartChangedEvent(userId));
+			return;
+		}
+		cartServiceImpl.updateOrderNote(userId, orderId, note);
+	}
+
+	/**
+	 * Tạo Order + OrderDetail cho các dòng session trong transaction hiện tại: một lần saveAll cho orders,
+	 * một lần cho order details, rồi đổi các đêm đang giữ thành đêm của booking trong room_nights.
+	 * Lần giữ đã hết hạn và bị người khác lấy mất đêm thì ném RuntimeException, cả transaction rollback.
+	 * Hẹn giờ trong wheel và session cart chỉ đổi sau khi commit. Trả về lineId -> orderId.
+	 */
+	private Map<Integer, Integer> persistLines(Integer userId, List<SessionCart.Line> lines, String status) {
+		if (lines.isEmpty()) {
+			return Map.of();
+		}
+		Map<Integer, Room> rooms = roomRepository.findAllById(lines.stream().map(SessionCart.Line::roomId).collect(Collectors.toSet()))
+				.stream()
+				.collect(Collectors.toMap(Room::getRoomId, Function.identity()));
+
+		List<Order> orders = new ArrayList<>(lines.size());
+		for (SessionCart.Line line : lines) {
+			Room room = rooms.get(line.roomId());
+			if (room == null) {
+				throw new RuntimeException("Room not found with ID: " + line.roomId());
+			}
+			Order order = new Order();
+			order.setUserId(userId);
+			order.setFloorId(room.getFloorId());
+			order.setCheckIn(line.checkIn().atTime(14, 0, 0));
+			order.setCheckOut(line.checkOut().atTime(12, 0, 0));
+			order.setStatus(status);
+			order.setTotalAmount(room.getPrice().multiply(BigDecimal.valueOf(ChronoUnit.DAYS.between(line.checkIn(), line.checkOut()))));
+			orders.add(order);
+		}
+		orders = orderRepository.saveAll(orders);
+
+		List<OrderDetail> details = new ArrayList<>(lines.size());
+		for (int k = 0; k < lines.size(); k++) {
+			SessionCart.Line line = lines.get(k);
+			Order order = orders.get(k);
+			OrderDetail detail = new OrderDetail();
+			detail.setOrderId(order.getOrderId());
+			detail.setUserId(userId);
+			detail.setRoomId(line.roomId());
+			detail.setFloorId(order.getFloorId());
+			detail.setStartDate(order.getCheckIn());
+			detail.setEndDate(order.getCheckOut());
+			detail.setCheckIn(order.getCheckIn());
+			detail.setCheckOut(order.getCheckOut());
+			detail.setStatus(status);
+			detail.setOrderDescription(line.description());
+			details.add(detail);
+		}
+		details = orderDetailRepository.saveAll(details);
+
+		Map<Integer, Integer> orderIdByLineId = new LinkedHashMap<>();
+		for (int k = 0; k < lines.size(); k++) {
+			SessionCart.Line line = lines.get(k);
+			roomNightLedger.releaseHold(line.holdToken());
+			roomNightLedger.writeOrderDetail(details.get(k));
+			orderIdByLineId.put(line.lineId(), orders.get(k).getOrderId());
+		}
+		List<Order> savedOrders = orders;
+		Set<Integer> persisted = orderIdByLineId.keySet();
+		// Wheel và session cart không rollback được: chỉ đổi khi các order đã commit,
+		// rollback thì lần giữ trong wheel và các dòng session vẫn còn nguyên
+		afterCommit(() -> {
+			for (int k = 0; k < lines.size(); k++) {
+				cartHoldWheel.cancelHold(lines.get(k).holdToken());
+				if (CART.equals(status)) {
+					cartHoldWheel.schedule(savedOrders.get(k).getOrderId(), savedOrders.get(k).getCreatedAt());
+				}
+			}
+			sessionCart.remove(line -> persisted.contains(line.lineId()));
+		});
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
+		return orderIdByLineId;
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			// Chạy trước listener của CartChangedEvent để tổng giỏ tính lại từ session cart đã đổi
+			@Override
+			public int getOrder() {
+				return Ordered.HIGHEST_PRECEDENCE;
+			}
+
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private void releaseHolds(List<SessionCart.Line> lines) {
+		for (SessionCart.Line line : lines) {
+			RoomHoldChangedEvent.of(roomNightLedger.releaseHold(line.holdToken())).forEach(eventPublisher::publishEvent);
+			cartHoldWheel.cancelHold(line.holdToken());
+		}
+	}
+}
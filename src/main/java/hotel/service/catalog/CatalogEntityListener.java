@@ -0,0 +1,44 @@
+package hotel.service.catalog;
+
+import hotel.db.entity.Floor;
+import hotel.db.entity.Room;
+import hotel.db.entity.RoomFurnishing;
+import hotel.db.entity.RoomImage;
+import hotel.db.entity.RoomView;
+import hotel.db.entity.Size;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener gắn vào Room, RoomImage, RoomView, RoomFurnishing, Floor và Size.
+ * Mọi lần ghi qua repository đều phát RoomCatalogChangedEvent cho phòng tương ứng,
+ * tầng và diện tích dùng chung cho nhiều phòng nên phát với roomId null.
+ * Câu UPDATE/DELETE hàng loạt (@Modifying) không đi qua listener, nơi gọi phải tự phát event.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogEntityListener {
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void onChanged(Object entity) {
+		if (entity instanceof Room room) {
+			eventPublisher.publishEvent(new RoomCatalogChangedEvent(room.getRoomId()));
+		} else if (entity instanceof RoomImage image) {
+			eventPublisher.publishEvent(new RoomCatalogChangedEvent(image.getRoomId()));
+		} else if (entity instanceof RoomView view) {
+			eventPublisher.publishEvent(new RoomCatalogChangedEvent(view.getRoomId()));
+		} else if (entity instanceof RoomFurnishing roomFurnishing) {
+			eventPublisher.publishEvent(new RoomCatalogChangedEvent(roomFurnishing.getRoomId()));
+		} else if (entity instanceof Floor || entity instanceof Size) {
+			eventPublisher.publishEvent(new RoomCatalogChangedEvent(null));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package hotel.service.catalog;
+
+import hotel.db.entity.RoomFurnishing;
+import hotel.db.repository.roomfurnishing.RoomFurnishingRepository;
+import hotel.db.repository.roomview.RoomViewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index ngược từ mỗi view / vật dụng sang tập roomId (BitSet, bit thứ roomId bật nếu phòng có thuộc tính đó).
+ * Lọc theo nhiều thuộc tính là phép AND các BitSet, không phải quét bảng room_views/room_furnishings.
+ * Ghi theo kiểu copy-on-write: BitSet đã công bố không bao giờ bị sửa, bên đọc không cần lock.
+ * Cập nhật lại một phòng khi view/vật dụng của phòng đó thay đổi (RoomCatalogChangedEvent).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomAttributeIndex {
+
+	private static final BitSet EMPTY = new BitSet();
+
+	private final RoomViewRepository roomViewRepository;
+	private final RoomFurnishingRepository roomFurnishingRepository;
+
+	private volatile Postings postings = new Postings(Map.of(), Map.of());
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		Map<Integer, BitSet> byView = new HashMap<>();
+		for (Object[] row : roomViewRepository.findAllRoomViewIds()) {
+			if (row[0] != null && row[1] != null) {
+				byView.computeIfAbsent(((Number) row[1]).intValue(), id -> new BitSet()).set(((Number) row[0]).intValue());
+			}
+		}
+		Map<Integer, BitSet> byFurnishing = new HashMap<>();
+		for (RoomFurnishing roomFurnishing : roomFurnishingRepository.findByIsDeletedFalse()) {
+			if (hasQuantity(roomFurnishing)) {
+				byFurnishing.computeIfAbsent(roomFurnishing.getFurnishingId(), id -> new BitSet())
+						.set(roomFurnishing.getRoomId());
+			}
+		}
+		postings = new Postings(Map.copyOf(byView), Map.copyOf(byFurnishing));
+		log.debug("Rebuilt room attribute index: {} views, {} furnishings", byView.size(), byFurnishing.size());
+	}
+
+	@Order(0)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		if (event.getRoomId() == null) {
+			rebuild();
+		} else {
+			refreshRoom(event.getRoomId());
+		}
+	}
+
+	/**
+	 * Đọc lại view và vật dụng của một phòng, chỉ sao chép các BitSet có bit của phòng đó thay đổi.
+	 */
+	public synchronized void refreshRoom(Integer roomId) {
+		Set<Integer> viewIds = new HashSet<>();
+		for (Integer viewId : roomViewRepository.findRoomViewId(roomId)) {
+			if (viewId != null) {
+				viewIds.add(viewId);
+			}
+		}
+		Set<Integer> furnishingIds = new HashSet<>();
+		for (RoomFurnishing roomFurnishing : roomFurnishingRepository.findByRoomIdAndIsDeletedFalse(roomId)) {
+			if (hasQuantity(roomFurnishing)) {
+				furnishingIds.add(roomFurnishing.getFurnishingId());
+			}
+		}
+		Postings current = postings;
+		postings = new Postings(replaceRoom(current.byView(), roomId, viewIds),
+				replaceRoom(current.byFurnishing(), roomId, furnishingIds));
+	}
+
+	/**
+	 * Các phòng có đủ mọi view và mọi vật dụng đã chọn, null nếu không chọn thuộc tính nào (không lọc).
+	 * BitSet trả về là bản riêng của bên gọi.
+	 */
+	public BitSet findRoomsWithAll(Collection<Integer> viewIds, Collection<Integer> furnishingIds) {
+		boolean noViews = viewIds == null || viewIds.isEmpty();
+		boolean noFurnishings = furnishingIds == null || furnishingIds.isEmpty();
+		if (noViews && noFurnishings) {
+			return null;
+		}
+		Postings current = postings;
+		List<BitSet> sets = new ArrayList<>();
+		if (!noViews) {
+			for (Integer viewId : viewIds) {
+				sets.add(current.byView().getOrDefault(viewId, EMPTY));
+			}
+		}
+		if (!noFurnishings) {
+			for (Integer furnishingId : furnishingIds) {
+				sets.add(current.byFurnishing().getOrDefault(furnishingId, EMPTY));
+			}
+		}
+		// AND từ tập nhỏ nhất, dừng sớm khi đã rỗng
+		sets.sort(Comparator.comparingInt(BitSet::cardinality));
+		BitSet result = (BitSet) sets.get(0).clone();
+		for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+			result.and(sets.get(i));
+		}
+		return result;
+	}
+
+	private static boolean hasQuantity(RoomFurnishing roomFurnishing) {
+		return roomFurnishing.getQuantity() == null || roomFurnishing.getQuantity() > 0;
+	}
+
+	private static Map<Integer, BitSet> replaceRoom(Map<Integer, BitSet> current, int roomId, Set<Integer> attributeIds) {
+		Map<Integer, BitSet> next = new HashMap<>(current);
+		current.forEach((attributeId, rooms) -> {
+			if (rooms.get(roomId) && !attributeIds.contains(attributeId)) {
+				BitSet copy = (BitSet) rooms.clone();
+				copy.clear(roomId);
+				if (copy.isEmpty()) {
+					next.remove(attributeId);
+				} else {
+					next.put(attributeId, copy);
+				}
+			}
+		});
+		for (Integer attributeId : attributeIds) {
+			BitSet rooms = next.get(attributeId);
+			if (rooms == null || !rooms.get(roomId)) {
+				BitSet copy = rooms == null ? new BitSet() : (BitSet) rooms.clone();
+				copy.set(roomId);
+				next.put(attributeId, copy);
+			}
+		}
+		return Map.copyOf(next);
+	}
+
+	private record Postings(Map<Integer, BitSet> byView, Map<Integer, BitSet> byFurnishing) {
+	}
+}
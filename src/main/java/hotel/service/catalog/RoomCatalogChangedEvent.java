@@ -0,0 +1,14 @@
+package hotel.service.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi thông tin hiển thị của phòng thay đổi (phòng, giá, trạng thái, ảnh, view...).
+ * roomId null nghĩa là không xác định được phòng, bên nhận nên làm mới toàn bộ.
+ */
+@Getter
+@AllArgsConstructor
+public class RoomCatalogChangedEvent {
+	private final Integer roomId;
+}
@@ -0,0 +1,366 @@
+package hotel.service.catalog;
+
+import hotel.db.entity.Floor;
+import hotel.db.entity.Room;
+import hotel.db.entity.Size;
+import hotel.db.enums.BedType;
+import hotel.db.enums.RoomStatus;
+import hotel.db.enums.RoomSystemStatus;
+import hotel.db.enums.RoomType;
+import hotel.db.repository.floor.FloorRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.size.SizeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Ảnh chụp trong bộ nhớ danh mục phòng dạng cột: mỗi thuộc tính là một mảng nguyên thuỷ, phần tử thứ i là phòng thứ i.
+ * Giá lưu theo đơn vị nhỏ nhất (x100) kiểu long, loại phòng/loại giường/trạng thái mã hoá thành byte theo từ điển,
+ * nên lọc và sắp xếp chỉ là vòng lặp trên mảng, không so sánh BigDecimal/String, không đụng tới entity JPA.
+ * Thứ tự sắp xếp (id, giá, số phòng) được tính sẵn lúc dựng.
+ * Dựng lại toàn bộ rồi thay tham chiếu (copy-on-write), bên đọc không cần lock.
+ * Event thay đổi phòng/tầng/diện tích chỉ đánh dấu ảnh chụp đã cũ; lần đọc đầu tiên sau đó dựng lại một lần,
+ * nên admin sửa N phòng liền nhau chỉ tốn một lần dựng thay vì N lần đọc toàn bảng trên thread commit.
+ * Đánh dấu chạy trước các cache khác (Order 0), nên cache nào nạp lại sau khi bị xoá cũng đọc ảnh chụp mới.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomCatalogSnapshot {
+
+	// Mã của giá trị null, và của giá trị lọc không có trong từ điển (không phòng nào khớp)
+	public static final byte NONE = -1;
+	public static final byte UNKNOWN = -2;
+
+	private final RoomRepository roomRepository;
+	private final FloorRepository floorRepository;
+	private final SizeRepository sizeRepository;
+
+	private volatile Columns columns = new Columns(List.of(), Map.of(), Map.of());
+	// Tăng mỗi lần danh mục đổi; builtGeneration là giá trị đã đọc ngay trước lần dựng gần nhất
+	private final AtomicLong changeGeneration = new AtomicLong();
+	private volatile long builtGeneration = -1;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		// Lấy trước khi đọc DB: event đến giữa lúc dựng vẫn làm lần đọc sau dựng lại
+		long generation = changeGeneration.get();
+		Map<Integer, Integer> floorNumbers = new HashMap<>();
+		for (Floor floor : floorRepository.findAll()) {
+			floorNumbers.put(floor.getFloorId(), floor.getFloorNumber());
+		}
+		Map<Integer, Double> sizeValues = new HashMap<>();
+		for (Size size : sizeRepository.findAll()) {
+			sizeValues.put(size.getSizeId(), size.getSize());
+		}
+		Columns rebuilt = new Columns(roomRepository.findAll(), floorNumbers, sizeValues);
+		columns = rebuilt;
+		builtGeneration = generation;
+		log.debug("Rebuilt room catalog snapshot with {} rooms", rebuilt.size);
+	}
+
+	@Order(0)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		changeGeneration.incrementAndGet();
+	}
+
+	public Columns columns() {
+		if (builtGeneration != changeGeneration.get()) {
+			synchronized (this) {
+				if (builtGeneration != changeGeneration.get()) {
+					rebuild();
+				}
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Giá (đồng) sang đơn vị nhỏ nhất, null thành Long.MIN_VALUE để luôn đứng đầu khi sắp tăng dần như MySQL.
+	 */
+	public static long toMinor(BigDecimal price) {
+		if (price == null) {
+			return Long.MIN_VALUE;
+		}
+		return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+	}
+
+	/**
+	 * Các cột của ảnh chụp, không bao giờ bị sửa sau khi dựng xong.
+	 */
+	public static final class Columns {
+
+		public final int size;
+		public final int[] roomId;
+		public final long[] priceMinor;
+		public final byte[] roomType;
+		public final byte[] bedType;
+		public final byte[] systemStatus;
+		public final byte[] status;
+		public final int[] floorId;
+		public final int[] floorNumber;
+		public final double[] sizeValue;
+		// Số phòng dạng số (room_number_sort), Integer.MIN_VALUE nếu số phòng không phải số
+		public final int[] roomNumberSort;
+		public final boolean[] deleted;
+		// Giá trị gốc để trả ra DTO
+		public final String[] roomNumber;
+		public final String[] roomDescription;
+		public final BigDecimal[] price;
+
+		private final String[] roomTypeDict;
+		private final String[] bedTypeDict;
+		private final String[] systemStatusDict;
+		private final String[] statusDict;
+
+		private final Map<Integer, Integer> positionByRoomId;
+		private final int[] byRoomId;
+		private final int[] byPriceAsc;
+		private final int[] byPriceDesc;
+		private final int[] byRoomNumberAsc;
+		private final int[] byRoomNumberDesc;
+
+		private Columns(List<Room> rooms, Map<Integer, Integer> floorNumbers, Map<Integer, Double> sizeValues) {
+			size = rooms.size();
+			roomId = new int[size];
+			priceMinor = new long[size];
+			roomType = new byte[size];
+			bedType = new byte[size];
+			systemStatus = new byte[size];
+			status = new byte[size];
+			floorId = new int[size];
+			floorNumber = new int[size];
+			sizeValue = new double[size];
+			roomNumberSort = new int[size];
+			deleted = new boolean[size];
+			roomNumber = new String[size];
+			roomDescription = new String[size];
+			price = new BigDecimal[size];
+
+			Dictionary roomTypes = new Dictionary(RoomType.ALL);
+			Dictionary bedTypes = new Dictionary(BedType.ALL);
+			Dictionary systemStatuses = new Dictionary(RoomSystemStatus.ALL);
+			Dictionary statuses = new Dictionary(RoomStatus.ALL);
+			positionByRoomId = new HashMap<>(size * 2);
+
+			for (int i = 0; i < size; i++) {
+				Room room = rooms.get(i);
+				roomId[i] = room.getRoomId();
+				priceMinor[i] = toMinor(room.getPrice());
+				roomType[i] = roomTypes.encode(room.getRoomType());
+				bedType[i] = bedTypes.encode(room.getBedType());
+				systemStatus[i] = systemStatuses.encode(room.getSystemStatus());
+				status[i] = statuses.encode(room.getStatus());
+				floorId[i] = room.getFloorId() == null ? Integer.MIN_VALUE : room.getFloorId();
+				Integer number = room.getFloorId() == null ? null : floorNumbers.get(room.getFloorId());
+				floorNumber[i] = number == null ? Integer.MIN_VALUE : number;
+				Double value = room.getSizeId() == null ? null : sizeValues.get(room.getSizeId());
+				sizeValue[i] = value == null ? Double.NaN : value;
+				roomNumberSort[i] = room.getRoomNumberSort() == null ? Integer.MIN_VALUE : room.getRoomNumberSort();
+				deleted[i] = Boolean.TRUE.equals(room.getIsDeleted());
+				roomNumber[i] = room.getRoomNumber();
+				roomDescription[i] = room.getRoomDescription();
+				price[i] = room.getPrice();
+				positionByRoomId.put(roomId[i], i);
+			}
+
+			roomTypeDict = roomTypes.values();
+			bedTypeDict = bedTypes.values();
+			systemStatusDict = systemStatuses.values();
+			statusDict = statuses.values();
+
+			// Hoà thì theo roomId tăng dần, giống Sort.by(...).and(Sort.by("roomId"))
+			Comparator<Integer> byId = Comparator.comparingInt(i -> roomId[i]);
+			byRoomId = order(byId);
+			byPriceAsc = order(Comparator.<Integer>comparingLong(i -> priceMinor[i]).thenComparing(byId));
+			byPriceDesc = order(Comparator.<Integer>comparingLong(i -> ~priceMinor[i]).thenComparing(byId));
+			byRoomNumberAsc = order(Comparator.<Integer>comparingInt(i -> roomNumberSort[i]).thenComparing(byId));
+			byRoomNumberDesc = order(Comparator.<Integer>comparingInt(i -> ~roomNumberSort[i]).thenComparing(byId));
+		}
+
+		private int[] order(Comparator<Integer> comparator) {
+			return IntStream.range(0, size).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+		}
+
+		public String roomTypeOf(int i) {
+			return decode(roomTypeDict, roomType[i]);
+		}
+
+		public String bedTypeOf(int i) {
+			return decode(bedTypeDict, bedType[i]);
+		}
+
+		public String roomTypeName(int code) {
+			return decode(roomTypeDict, code);
+		}
+
+		public String bedTypeName(int code) {
+			return decode(bedTypeDict, code);
+		}
+
+		public String systemStatusOf(int i) {
+			return decode(systemStatusDict, systemStatus[i]);
+		}
+
+		public String statusOf(int i) {
+			return decode(statusDict, status[i]);
+		}
+
+		public byte roomTypeCode(String value) {
+			return lookup(roomTypeDict, value);
+		}
+
+		public byte bedTypeCode(String value) {
+			return lookup(bedTypeDict, value);
+		}
+
+		public byte systemStatusCode(String value) {
+			return lookup(systemStatusDict, value);
+		}
+
+		public byte statusCode(String value) {
+			return lookup(statusDict, value);
+		}
+
+		/**
+		 * Vị trí của phòng trong các cột, -1 nếu không có.
+		 */
+		public int positionOf(Integer id) {
+			Integer position = id == null ? null : positionByRoomId.get(id);
+			return position == null ? -1 : position;
+		}
+
+		/**
+		 * Đánh dấu vị trí của các phòng trong roomIds, dùng thay cho Set.contains trong vòng lặp lọc.
+		 */
+		public boolean[] mask(Collection<Integer> roomIds) {
+			boolean[] marked = new boolean[size];
+			for (Integer id : roomIds) {
+				int position = positionOf(id);
+				if (position >= 0) {
+					marked[position] = true;
+				}
+			}
+			return marked;
+		}
+
+		/**
+		 * Thứ tự duyệt theo sortKey ("price", "roomNumber", còn lại theo roomId).
+		 */
+		public int[] order(String sortKey, boolean descending) {
+			if ("price".equals(sortKey)) {
+				return descending ? byPriceDesc : byPriceAsc;
+			}
+			if ("roomNumber".equals(sortKey)) {
+				return descending ? byRoomNumberDesc : byRoomNumberAsc;
+			}
+			return byRoomId;
+		}
+
+		/**
+		 * Duyệt theo order, đếm mọi vị trí khớp filter và lấy ra roomId của trang cần hiển thị.
+		 */
+		public Slice page(int[] order, IntPredicate filter, int page, int pageSize) {
+			long from = (long) page * pageSize;
+			long to = from + pageSize;
+			List<Integer> roomIds = new ArrayList<>(pageSize);
+			long total = 0;
+			for (int i : order) {
+				if (filter.test(i)) {
+					if (total >= from && total < to) {
+						roomIds.add(roomId[i]);
+					}
+					total++;
+				}
+			}
+			return new Slice(roomIds, total);
+		}
+
+		/**
+		 * Vị trí của mọi phòng khớp filter theo order.
+		 */
+		public int[] select(int[] order, IntPredicate filter) {
+			int[] selected = new int[size];
+			int count = 0;
+			for (int i : order) {
+				if (filter.test(i)) {
+					selected[count++] = i;
+				}
+			}
+			return Arrays.copyOf(selected, count);
+		}
+
+		private static String decode(String[] dict, int code) {
+			return code < 0 ? null : dict[code];
+		}
+
+		private static byte lookup(String[] dict, String value) {
+			if (value == null) {
+				return NONE;
+			}
+			for (int i = 0; i < dict.length; i++) {
+				if (dict[i].equals(value)) {
+					return (byte) i;
+				}
+			}
+			return UNKNOWN;
+		}
+	}
+
+	public record Slice(List<Integer> roomIds, long total) {
+	}
+
+	/**
+	 * Từ điển giá trị -> mã byte, khởi tạo sẵn các hằng số đã biết rồi thêm giá trị lạ gặp trong DB.
+	 */
+	private static final class Dictionary {
+
+		private final List<String> values = new ArrayList<>();
+		private final Map<String, Byte> codes = new HashMap<>();
+
+		private Dictionary(String[] known) {
+			for (String value : known) {
+				encode(value);
+			}
+		}
+
+		private byte encode(String value) {
+			if (value == null) {
+				return NONE;
+			}
+			Byte code = codes.get(value);
+			if (code == null) {
+				if (values.size() > Byte.MAX_VALUE) {
+					throw new IllegalStateException("Quá nhiều giá trị khác nhau cho một cột phòng: " + value);
+				}
+				code = (byte) values.size();
+				values.add(value);
+				codes.put(value, code);
+			}
+			return code;
+		}
+
+		private String[] values() {
+			return values.toArray(new String[0]);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package hotel.service.catalog;
+
+import hotel.db.entity.User;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số phiên bản của danh mục phòng và của từng phòng, dùng làm ETag / Last-Modified cho GET có điều kiện
+ * mà không cần load entity hay render template.
+ * Tăng sau khi ảnh chụp, index và cache đã cập nhật (Order 2), nên nội dung đọc sau khi lấy phiên bản
+ * không bao giờ cũ hơn phiên bản đó.
+ * Giá trị nằm trong bộ nhớ, khởi động lại thì mọi ETag cũ đều không khớp (có bootId).
+ */
+@Component
+public class RoomVersionStamps {
+
+	private final long bootId = System.currentTimeMillis();
+	private final AtomicLong catalogVersion = new AtomicLong();
+	// Lượt xem / đã bán thay đổi mà không qua event danh mục
+	private final AtomicLong counterVersion = new AtomicLong();
+	private final Map<Integer, Stamp> roomStamps = new ConcurrentHashMap<>();
+	// Event không rõ phòng (roomId null) làm mới mọi phòng
+	private final AtomicLong allRoomsVersion = new AtomicLong();
+	private volatile long catalogLastModified = seconds(bootId);
+	private volatile long allRoomsLastModified = seconds(bootId);
+
+	@Order(2)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		touch(event.getRoomId());
+	}
+
+	@Order(2)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		touch(event.getRoomId());
+	}
+
+	public void countersChanged() {
+		counterVersion.incrementAndGet();
+	}
+
+	public long counterVersion() {
+		return counterVersion.get();
+	}
+
+	/**
+	 * ETag cho dữ liệu của cả danh mục (danh sách phòng, /api/list), tính theo ngày vì lịch trống đổi khi sang ngày mới.
+	 */
+	public String catalogEtag(boolean withCounters, User user) {
+		return etag("catalog", catalogVersion.get(), 0, withCounters ? counterVersion.get() : 0, user);
+	}
+
+	public long catalogLastModified() {
+		return Math.max(catalogLastModified, startOfToday());
+	}
+
+	/**
+	 * ETag cho trang chi tiết của một phòng.
+	 * Không gồm lượt xem: bộ đếm đổi mỗi lần flush (5 giây) và chính lượt xem trả 304 cũng cộng vào đó,
+	 * nên có lượt xem thì ETag gần như không bao giờ khớp. Số lượt xem trên trang được cập nhật ở lần phòng thay đổi
+	 * hoặc sang ngày mới; số đã bán đổi cùng booking nên đã theo event lịch phòng.
+	 */
+	public String roomEtag(Integer roomId, User user) {
+		Stamp stamp = roomStamps.get(roomId);
+		return etag("room-" + roomId, allRoomsVersion.get(), stamp == null ? 0 : stamp.version(), 0, user);
+	}
+
+	public long roomLastModified(Integer roomId) {
+		Stamp stamp = roomStamps.get(roomId);
+		long lastModified = Math.max(allRoomsLastModified, startOfToday());
+		return Math.max(lastModified, stamp == null ? 0 : stamp.lastModified());
+	}
+
+	private void touch(Integer roomId) {
+		long now = seconds(System.currentTimeMillis());
+		if (roomId == null) {
+			allRoomsVersion.incrementAndGet();
+			allRoomsLastModified = now;
+		} else {
+			roomStamps.compute(roomId, (id, stamp) -> new Stamp(stamp == null ? 1 : stamp.version() + 1, now));
+		}
+		catalogVersion.incrementAndGet();
+		catalogLastModified = now;
+	}
+
+	// Header của trang khác nhau theo người đăng nhập (tên, vai trò) nên phải nằm trong ETag
+	private String etag(String scope, long version, long subVersion, long counters, User user) {
+		String userTag = user == null ? "-" : user.getUserId() + ":" + user.getRole() + ":" + user.getFirstName();
+		String raw = bootId + "|" + scope + "|" + version + "|" + subVersion + "|" + counters + "|" + LocalDate.now()
+				+ "|" + userTag;
+		return "W/\"" + DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	private static long startOfToday() {
+		return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	// Last-Modified chỉ chính xác tới giây
+	private static long seconds(long millis) {
+		return millis / 1000 * 1000;
+	}
+
+	private record Stamp(long version, long lastModified) {
+	}
+}
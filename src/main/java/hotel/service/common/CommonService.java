@@ -43,4 +43,8 @@ public interface CommonService {
     
     void sendCancellationEmail(String toEmail, String fullName, String roomNumber, 
                                String startDate, String endDate, String reason);
+
+    // Báo cho khách trong danh sách chờ là phòng đã trống cho khoảng ngày họ đăng ký
+    void sendWaitlistAvailableEmail(String toEmail, String fullName, String roomNumber,
+                                    String startDate, String endDate);
 }
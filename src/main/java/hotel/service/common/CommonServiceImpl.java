@@ -482,5 +482,37 @@ public class CommonServiceImpl implements CommonService {
 			e.printStackTrace();
 		}
 	}
-}
 
+	@Override
+	public void sendWaitlistAvailableEmail(String toEmail, String fullName, String roomNumber,
+	                                       String startDate, String endDate) {
+		try {
+			MimeMessage message = mailSender.createMimeMessage();
+			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+			helper.setTo(toEmail);
+			helper.setSubject("Phòng bạn chờ đã trống - " + roomNumber);
+			helper.setText(
+					"<div style='font-family: Arial, sans-serif; padding: 20px; background-color: #f5f5f5;'>" +
+					"<div style='max-width: 600px; margin: 0 auto; background-color: white; padding: 30px; border-radius: 10px;'>" +
+					"<h2 style='color: #198754;'>Tin vui cho quý khách!</h2>" +
+					"<p>Kính gửi <strong>" + fullName + "</strong>,</p>" +
+					"<p>Phòng quý khách đăng ký chờ vừa có chỗ trống:</p>" +
+					"<div style='background-color: #d1e7dd; padding: 15px; border-left: 4px solid #198754; margin: 20px 0;'>" +
+					"<p style='margin: 5px 0;'><strong>Phòng:</strong> " + roomNumber + "</p>" +
+					"<p style='margin: 5px 0;'><strong>Từ ngày:</strong> " + startDate + "</p>" +
+					"<p style='margin: 5px 0;'><strong>Đến ngày:</strong> " + endDate + "</p>" +
+					"</div>" +
+					"<p>Phòng chưa được giữ riêng cho quý khách, vui lòng đặt phòng sớm để không bỏ lỡ.</p>" +
+					"<p style='margin-top: 30px;'>Trân trọng,<br><strong>Hotel Booking Team</strong></p>" +
+					"</div>" +
+					"</div>",
+					true
+			);
+
+			mailSender.send(message);
+		} catch (MessagingException e) {
+			e.printStackTrace();
+		}
+	}
+}
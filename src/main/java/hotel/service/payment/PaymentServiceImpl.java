@@ -10,8 +10,11 @@ import hotel.db.entity.Room;
 import hotel.db.repository.order.OrderRepository;
 import hotel.db.repository.orderdetail.OrderDetailRepository;
 import hotel.db.repository.room.RoomRepository;
+import hotel.service.cart.CartChangedEvent;
 import hotel.service.cart.CartService;
+import hotel.service.room.RoomSoldEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import vn.payos.PayOS;
@@ -35,9 +38,13 @@ public class PaymentServiceImpl implements PaymentService {
 	private final OrderRepository orderRepository;
 	private final OrderDetailRepository orderDetailRepository;
 	private final RoomRepository roomRepository;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Override
 	public CreatePaymentLinkResponse createPaymentLink(Integer userId, CreatePaymentLinkRequestBody requestBody) throws Exception {
+		// Giỏ hàng trong session (app.cart.mode=session) được ghi thành order CART trong một transaction trước khi tạo link
+		requestBody.setSelectedOrderIds(cartService.persistCartLines(userId, requestBody.getSelectedOrderIds()));
+
 		// Get cart items
 		List<CartItemDto> cartItems = cartService.getCartItems(userId);
 
@@ -79,8 +86,8 @@ public class PaymentServiceImpl implements PaymentService {
 		}
 		
 		if (discountCodeToUse != null && !discountCodeToUse.trim().isEmpty()) {
-			// Use CartService to get summary with discount validation
-			CartSummaryDto summary = cartService.getCartSummary(
+			// Tính lại từ dữ liệu hiện tại (không qua CartSummaryCache) để số tiền gửi PayOS khớp với cartItems
+			CartSummaryDto summary = cartService.computeCartSummary(
 					userId, 
 					requestBody.getSelectedOrderIds(), 
 					discountCodeToUse
@@ -230,6 +237,8 @@ public class PaymentServiceImpl implements PaymentService {
 				// Update order detail status to RESERVED
 				detail.setStatus("RESERVED");
 				orderDetailRepository.save(detail);
+				// Cộng số đã bán sau khi commit (bảng xếp hạng + ghi DB theo batch)
+				eventPublisher.publishEvent(new RoomSoldEvent(detail.getRoomId()));
 			}
 
 			// totalAmount đã được tính và lưu khi thêm vào giỏ hàng, chỉ cần save order
@@ -238,6 +247,7 @@ public class PaymentServiceImpl implements PaymentService {
 			System.out.println("Updated order " + order.getOrderId() + " to COMPLETED status with total amount: " + order.getTotalAmount() + " VND and " + orderDetails.size() + " RESERVED rooms");
 		}
 
+		eventPublisher.publishEvent(new CartChangedEvent(userId));
 		System.out.println("=== Successfully updated " + cartOrders.size() + " orders to COMPLETED ===");
 	}
 }
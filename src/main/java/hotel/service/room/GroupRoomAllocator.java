@@ -0,0 +1,200 @@
+package hotel.service.room;
+
+import hotel.db.dto.room.GroupAllocatedRoomDto;
+import hotel.db.dto.room.GroupAllocationDto;
+import hotel.db.dto.room.GroupRoomRequirementDto;
+import hotel.db.entity.Room;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Chia phòng cho đoàn: chọn một bộ phòng trống thoả số lượng theo loại phòng / loại giường,
+ * ưu tiên ở cùng một tầng (tầng ưu tiên trước), sau đó là tổng giá thấp nhất.
+ *
+ * Không duyệt tổ hợp: mỗi lần "fill" là một lượt tham lam theo giá, yêu cầu ít phòng khớp nhất lấy trước;
+ * lượt tham lam còn thiếu thì chạy thêm một lượt ghép cặp (đường tăng, như ghép cặp hai phía) để đổi chỗ
+ * các phòng đã lấy, nên chỉ báo thiếu khi thật sự không có cách chia nào.
+ * Mỗi lần "fill" tối đa O(số phòng cần x số phòng x số phòng cần), chạy tối đa (số tầng + 2) lần,
+ * nên thời gian chạy bị chặn và đủ nhanh để gọi trực tiếp từ màn hình lễ tân.
+ */
+@Component
+public class GroupRoomAllocator {
+
+	/**
+	 * @param candidates phòng trống cho cả kỳ ở, đã sắp theo giá tăng dần
+	 */
+	public GroupAllocationDto allocate(List<Room> candidates, List<GroupRoomRequirementDto> requirements,
+									   Integer preferredFloorId, int nights) {
+		// Chuỗi rỗng coi như "loại nào cũng được", giống null
+		List<Need> needs = requirements.stream()
+				.filter(requirement -> requirement.getCount() != null && requirement.getCount() > 0)
+				.map(requirement -> new Need(blankToNull(requirement.getRoomType()), blankToNull(requirement.getBedType()),
+						requirement.getCount()))
+				.toList();
+
+		Map<Integer, List<Room>> roomsByFloor = new LinkedHashMap<>();
+		for (Room room : candidates) {
+			roomsByFloor.computeIfAbsent(room.getFloorId(), floorId -> new ArrayList<>()).add(room);
+		}
+
+		// 1. Cả đoàn trên một tầng: tầng ưu tiên nếu đủ, không thì tầng đủ phòng rẻ nhất.
+		// Phòng chưa gán tầng không phải là một tầng nên không xét ở lượt này
+		Plan best = null;
+		Map<Integer, Integer> coverage = new LinkedHashMap<>();
+		for (Map.Entry<Integer, List<Room>> entry : roomsByFloor.entrySet()) {
+			if (entry.getKey() == null) {
+				continue;
+			}
+			Plan plan = fill(needs, entry.getValue());
+			coverage.put(entry.getKey(), plan.rooms().size());
+			if (!plan.shortages().isEmpty()) {
+				continue;
+			}
+			if (Objects.equals(entry.getKey(), preferredFloorId)) {
+				return toDto(plan, nights);
+			}
+			if (best == null || plan.total().compareTo(best.total()) < 0) {
+				best = plan;
+			}
+		}
+		if (best != null) {
+			return toDto(best, nights);
+		}
+
+		// 2. Nhiều tầng: lấy dần từ tầng ưu tiên, rồi tầng đáp ứng được nhiều phòng nhất, để số tầng ít nhất;
+		// phòng chưa gán tầng lấy sau cùng
+		List<Integer> floorOrder = new ArrayList<>(roomsByFloor.keySet());
+		floorOrder.sort(Comparator.<Integer, Boolean>comparing(Objects::isNull)
+				.thenComparing(floorId -> floorId == null || !floorId.equals(preferredFloorId))
+				.thenComparing(floorId -> -coverage.getOrDefault(floorId, 0)));
+		List<Room> pool = new ArrayList<>();
+		floorOrder.forEach(floorId -> pool.addAll(roomsByFloor.get(floorId)));
+		return toDto(fill(needs, pool), nights);
+	}
+
+	// Mỗi phòng cần là một "chỗ"; lấy các phòng chưa dùng theo thứ tự trong pool, yêu cầu ít phòng khớp nhất trước
+	private Plan fill(List<Need> needs, List<Room> pool) {
+		List<Need> ordered = needs.stream()
+				.sorted(Comparator.comparingLong(need -> pool.stream().filter(need::matches).count()))
+				.toList();
+		List<Need> slots = new ArrayList<>();
+		for (Need need : ordered) {
+			for (int i = 0; i < need.count(); i++) {
+				slots.add(need);
+			}
+		}
+
+		Room[] assigned = new Room[slots.size()];
+		Map<Integer, Integer> slotByRoomId = new HashMap<>();
+		for (int slot = 0; slot < slots.size(); slot++) {
+			for (Room room : pool) {
+				if (!slotByRoomId.containsKey(room.getRoomId()) && slots.get(slot).matches(room)) {
+					assigned[slot] = room;
+					slotByRoomId.put(room.getRoomId(), slot);
+					break;
+				}
+			}
+		}
+		// Chỗ còn trống: thử đổi phòng của các chỗ đã có sang phòng khác cũng khớp để nhường phòng
+		for (int slot = 0; slot < slots.size(); slot++) {
+			if (assigned[slot] == null) {
+				augment(slot, slots, pool, assigned, slotByRoomId, new HashSet<>());
+			}
+		}
+
+		List<Room> rooms = new ArrayList<>();
+		Map<Need, Integer> missing = new HashMap<>();
+		BigDecimal total = BigDecimal.ZERO;
+		for (int slot = 0; slot < slots.size(); slot++) {
+			Room room = assigned[slot];
+			if (room == null) {
+				missing.merge(slots.get(slot), 1, Integer::sum);
+			} else {
+				rooms.add(room);
+				total = total.add(room.getPrice() == null ? BigDecimal.ZERO : room.getPrice());
+			}
+		}
+		List<String> shortages = new ArrayList<>();
+		for (Need need : needs) {
+			Integer remaining = missing.remove(need);
+			if (remaining != null) {
+				shortages.add(need.label() + ": thiếu " + remaining);
+			}
+		}
+		return new Plan(rooms, shortages, total);
+	}
+
+	// Tìm đường tăng cho chỗ slot: lấy phòng trống khớp, hoặc phòng của chỗ khác nếu chỗ đó đổi được sang phòng khác
+	private boolean augment(int slot, List<Need> slots, List<Room> pool, Room[] assigned,
+							Map<Integer, Integer> slotByRoomId, Set<Integer> visited) {
+		for (Room room : pool) {
+			if (!slots.get(slot).matches(room) || !visited.add(room.getRoomId())) {
+				continue;
+			}
+			Integer holder = slotByRoomId.get(room.getRoomId());
+			if (holder == null || augment(holder, slots, pool, assigned, slotByRoomId, visited)) {
+				assigned[slot] = room;
+				slotByRoomId.put(room.getRoomId(), slot);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.isBlank() ? null : value;
+	}
+
+	private GroupAllocationDto toDto(Plan plan, int nights) {
+		List<GroupAllocatedRoomDto> rooms = plan.rooms().stream()
+				.sorted(Comparator.comparing(Room::getFloorId, Comparator.nullsLast(Comparator.naturalOrder()))
+						.thenComparing(Room::getRoomNumberSort, Comparator.nullsLast(Comparator.naturalOrder())))
+				.map(room -> new GroupAllocatedRoomDto(room.getRoomId(), room.getRoomNumber(), room.getRoomType(),
+						room.getBedType(), room.getFloorId(), room.getPrice()))
+				.toList();
+		long floorCount = plan.rooms().stream().map(Room::getFloorId).distinct().count();
+		return new GroupAllocationDto(plan.shortages().isEmpty(), rooms, nights,
+				plan.total().multiply(BigDecimal.valueOf(nights)), (int) floorCount, plan.shortages());
+	}
+
+	private record Plan(List<Room> rooms, List<String> shortages, BigDecimal total) {
+	}
+
+	// Yêu cầu đã chuẩn hoá, null = loại nào cũng được. Là class (không phải record) để hai yêu cầu giống hệt nhau
+	// vẫn đếm thiếu riêng
+	private static final class Need {
+		private final String roomType;
+		private final String bedType;
+		private final int count;
+
+		private Need(String roomType, String bedType, int count) {
+			this.roomType = roomType;
+			this.bedType = bedType;
+			this.count = count;
+		}
+
+		int count() {
+			return count;
+		}
+
+		boolean matches(Room room) {
+			return (roomType == null || roomType.equals(room.getRoomType()))
+					&& (bedType == null || bedType.equals(room.getBedType()));
+		}
+
+		String label() {
+			String label = roomType == null ? "Bất kỳ" : roomType;
+			return bedType == null ? label : label + "/" + bedType;
+		}
+	}
+}
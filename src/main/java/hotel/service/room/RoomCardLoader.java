@@ -0,0 +1,64 @@
+package hotel.service.room;
+
+import hotel.db.entity.RoomImage;
+import hotel.db.repository.roomimage.RoomImageRepository;
+import hotel.db.repository.roomview.RoomViewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nạp ảnh và view cho một trang phòng bằng query IN (...) thay vì query từng phòng.
+ * Dùng chung cho danh sách phòng, top phòng trang chủ, chi tiết phòng và giỏ hàng.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomCardLoader {
+
+	private final RoomImageRepository roomImageRepository;
+	private final RoomViewRepository roomViewRepository;
+
+	/**
+	 * Toàn bộ ảnh (chưa xoá) của các phòng, theo thứ tự upload.
+	 */
+	public Map<Integer, List<String>> loadImageUrls(Collection<Integer> roomIds) {
+		if (roomIds == null || roomIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<Integer, List<String>> result = new HashMap<>();
+		for (RoomImage image : roomImageRepository.findByRoomIdInAndIsDeletedFalseOrderByRoomImageIdAsc(roomIds)) {
+			result.computeIfAbsent(image.getRoomId(), id -> new ArrayList<>()).add(image.getRoomImageUrl());
+		}
+		return result;
+	}
+
+	/**
+	 * Ảnh đầu tiên của mỗi phòng, phòng không có ảnh sẽ không có trong map.
+	 */
+	public Map<Integer, String> loadCoverImages(Collection<Integer> roomIds) {
+		Map<Integer, String> result = new HashMap<>();
+		loadImageUrls(roomIds).forEach((roomId, urls) -> result.put(roomId, urls.get(0)));
+		return result;
+	}
+
+	/**
+	 * Tên các view của mỗi phòng.
+	 */
+	public Map<Integer, List<String>> loadViewNames(Collection<Integer> roomIds) {
+		if (roomIds == null || roomIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<Integer, List<String>> result = new HashMap<>();
+		for (Object[] row : roomViewRepository.findViewTypesByRoomIds(roomIds)) {
+			Integer roomId = ((Number) row[0]).intValue();
+			result.computeIfAbsent(roomId, id -> new ArrayList<>()).add((String) row[1]);
+		}
+		return result;
+	}
+}
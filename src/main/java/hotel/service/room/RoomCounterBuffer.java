@@ -0,0 +1,103 @@
+package hotel.service.room;
+
+import hotel.service.catalog.RoomVersionStamps;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đệm ghi sau cho các bộ đếm của phòng (lượt xem, đã bán).
+ * Tăng chỉ là cộng LongAdder trong bộ nhớ, mỗi FLUSH_INTERVAL_MS gộp thành một batch UPDATE ... = x + ? trong một transaction,
+ * nên một lượt xem không còn là một lần ghi vào dòng rooms (dòng mà đặt phòng cũng đang cập nhật).
+ * Batch lỗi thì cộng trả lại để lần sau ghi tiếp, tắt ứng dụng thì ghi nốt phần còn lại;
+ * ứng dụng chết đột ngột thì mất tối đa một khoảng flush.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomCounterBuffer {
+
+	private static final long FLUSH_INTERVAL_MS = 5_000;
+	private static final String VIEW_SQL = "UPDATE rooms SET view = COALESCE(view, 0) + ? WHERE room_id = ?";
+	private static final String SOLD_SQL = "UPDATE rooms SET sold = COALESCE(sold, 0) + ? WHERE room_id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final PlatformTransactionManager transactionManager;
+	private final RoomVersionStamps roomVersionStamps;
+
+	private final Map<Integer, LongAdder> pendingViews = new ConcurrentHashMap<>();
+	private final Map<Integer, LongAdder> pendingSold = new ConcurrentHashMap<>();
+
+	public void addView(Integer roomId) {
+		pendingViews.computeIfAbsent(roomId, id -> new LongAdder()).increment();
+	}
+
+	public void addSold(Integer roomId, long delta) {
+		pendingSold.computeIfAbsent(roomId, id -> new LongAdder()).add(delta);
+	}
+
+	/**
+	 * Phần đã cộng trong bộ nhớ nhưng chưa ghi xuống DB.
+	 */
+	public long pendingViews(Integer roomId) {
+		return pending(pendingViews, roomId);
+	}
+
+	public long pendingSold(Integer roomId) {
+		return pending(pendingSold, roomId);
+	}
+
+	@Scheduled(fixedDelay = FLUSH_INTERVAL_MS)
+	public void flush() {
+		flush(pendingViews, VIEW_SQL);
+		flush(pendingSold, SOLD_SQL);
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		flush();
+		log.info("Flushed room counters on shutdown");
+	}
+
+	private static long pending(Map<Integer, LongAdder> pending, Integer roomId) {
+		LongAdder adder = pending.get(roomId);
+		return adder == null ? 0 : adder.sum();
+	}
+
+	private synchronized void flush(Map<Integer, LongAdder> pending, String sql) {
+		// Lấy phần chênh bằng sum rồi trừ đi đúng phần đó: lượt cộng chen vào giữa vẫn còn lại cho lần sau
+		List<Object[]> batch = new ArrayList<>();
+		pending.forEach((roomId, adder) -> {
+			long delta = adder.sum();
+			if (delta != 0) {
+				adder.add(-delta);
+				batch.add(new Object[]{delta, roomId});
+			}
+		});
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			new TransactionTemplate(transactionManager)
+					.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+			roomVersionStamps.countersChanged();
+			log.debug("Flushed {} room counter rows", batch.size());
+		} catch (RuntimeException e) {
+			for (Object[] row : batch) {
+				pending.computeIfAbsent((Integer) row[1], id -> new LongAdder()).add((Long) row[0]);
+			}
+			log.warn("Could not flush {} room counter rows, will retry", batch.size(), e);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package hotel.service.room;
+
+import hotel.db.dto.room.RoomDetailPageDto;
+import hotel.db.dto.room.RoomDetailResponseDto;
+import hotel.db.dto.room.RoomUnavailableDatesDto;
+import hotel.db.entity.Room;
+import hotel.db.entity.Size;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.size.SizeRepository;
+import hotel.service.availability.RoomUnavailableDatesCache;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ghép trang chi tiết phòng: thông tin phòng đọc trên thread của request, ảnh / view / lịch ngày bị chặn
+ * đọc song song trên một pool giới hạn rồi chờ tối đa PART_TIMEOUT_MS.
+ * Ảnh / view quá hạn hoặc lỗi thì trả rỗng và ghi log, trang vẫn hiển thị được.
+ * Lịch ngày bị chặn thì không được trả rỗng (lịch sẽ hiện đêm đã đặt là trống): quá hạn hoặc lỗi thì đọc lại
+ * trên thread của request, lần đọc đó lỗi thì request lỗi theo.
+ * Phần quá hạn bị huỷ: task còn trong hàng đợi được bỏ khỏi pool, task đang chạy bị interrupt
+ * (query JDBC đang chạy có thể vẫn chạy tới khi xong).
+ * Lượt xem chỉ cộng vào bộ nhớ (RoomCounterBuffer), không nằm trên đường đi của request.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomDetailComposer {
+
+	private static final long PART_TIMEOUT_MS = 2000;
+	private static final int POOL_SIZE = 8;
+	private static final int QUEUE_SIZE = 200;
+
+	private final RoomRepository roomRepository;
+	private final SizeRepository sizeRepository;
+	private final RoomCardLoader roomCardLoader;
+	private final RoomUnavailableDatesCache roomUnavailableDatesCache;
+	private final RoomPopularityBoard roomPopularityBoard;
+	private final RoomCounterBuffer roomCounterBuffer;
+
+	private final ThreadPoolExecutor executor = newExecutor();
+
+	/**
+	 * Thông tin phòng kèm ảnh và view, null nếu phòng không tồn tại.
+	 */
+	public RoomDetailResponseDto loadDetail(Integer roomId) {
+		RoomDetailPageDto page = compose(roomId, false);
+		return page == null ? null : page.getRoom();
+	}
+
+	/**
+	 * Đủ dữ liệu cho trang chi tiết phòng, null nếu phòng không tồn tại.
+	 */
+	public RoomDetailPageDto loadPage(Integer roomId) {
+		return compose(roomId, true);
+	}
+
+	/**
+	 * Ghi nhận lượt xem: cộng vào bảng xếp hạng và bộ đệm ghi sau, không chạm DB trên request.
+	 */
+	public void recordView(Integer roomId) {
+		roomPopularityBoard.recordView(roomId);
+		roomCounterBuffer.addView(roomId);
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	private RoomDetailPageDto compose(Integer roomId, boolean withUnavailableDates) {
+		List<Integer> roomIds = List.of(roomId);
+		Future<List<String>> images = submit(() -> roomCardLoader.loadImageUrls(roomIds)
+				.getOrDefault(roomId, new ArrayList<>()));
+		Future<List<String>> views = submit(() -> roomCardLoader.loadViewNames(roomIds)
+				.getOrDefault(roomId, new ArrayList<>()));
+		Future<RoomUnavailableDatesDto> unavailableDates = withUnavailableDates
+				? submit(() -> roomUnavailableDatesCache.get(roomId)) : null;
+
+		// Phần chính đọc ngay trên thread hiện tại trong lúc các phần phụ đang chạy
+		Room room = roomRepository.findByRoomId(roomId);
+		if (room == null) {
+			cancel(images);
+			cancel(views);
+			if (unavailableDates != null) {
+				cancel(unavailableDates);
+			}
+			return null;
+		}
+		Size size = room.getSizeId() == null ? null : sizeRepository.findById(room.getSizeId()).orElse(null);
+
+		RoomDetailResponseDto dto = new RoomDetailResponseDto();
+		dto.setRoomId(room.getRoomId());
+		dto.setRoomNumber(room.getRoomNumber());
+		dto.setRoomType(room.getRoomType());
+		dto.setBedType(room.getBedType());
+		dto.setFloorNumber(room.getFloorId());
+		dto.setSize(size != null ? size.getSize() : null);
+		dto.setPrice(room.getPrice());
+		dto.setStatus(room.getStatus());
+		dto.setSold(room.getSold());
+		dto.setView(room.getView());
+		dto.setRoomDescription(room.getRoomDescription());
+		dto.setMaxSizePeople(room.getMaxSizePeople());
+
+		// Các phần phụ dùng chung một hạn chót tính từ lúc bắt đầu chờ
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PART_TIMEOUT_MS);
+		dto.setImages(join(images, deadline, new ArrayList<>(), "images", roomId));
+		dto.setRoomViews(join(views, deadline, new ArrayList<>(), "views", roomId));
+		RoomUnavailableDatesDto dates = null;
+		if (unavailableDates != null) {
+			dates = join(unavailableDates, deadline, null, "unavailable dates", roomId);
+			if (dates == null) {
+				dates = roomUnavailableDatesCache.get(roomId);
+			}
+		}
+		return new RoomDetailPageDto(dto, dates);
+	}
+
+	private <T> Future<T> submit(Supplier<T> task) {
+		try {
+			// FutureTask (không phải CompletableFuture) để cancel(true) interrupt được thread đang chạy
+			return executor.submit(task::get);
+		} catch (RejectedExecutionException e) {
+			// Pool đầy: tự chạy trên thread của request thay vì báo lỗi;
+			// phần phụ lỗi thì trả future lỗi để join() dùng giá trị mặc định như khi chạy trong pool
+			try {
+				return CompletableFuture.completedFuture(task.get());
+			} catch (RuntimeException failure) {
+				return CompletableFuture.failedFuture(failure);
+			}
+		}
+	}
+
+	private <T> T join(Future<T> future, long deadline, T fallback, String part, Integer roomId) {
+		try {
+			return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			cancel(future);
+			log.warn("Loading {} of room {} timed out after {} ms", part, roomId, PART_TIMEOUT_MS);
+		} catch (ExecutionException e) {
+			log.warn("Loading {} of room {} failed", part, roomId, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return fallback;
+	}
+
+	private void cancel(Future<?> future) {
+		future.cancel(true);
+		if (future instanceof Runnable task) {
+			// Task chưa chạy thì bỏ khỏi hàng đợi ngay, không chiếm chỗ tới lượt bị lấy ra
+			executor.remove(task);
+		}
+	}
+
+	private static ThreadPoolExecutor newExecutor() {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+			Thread thread = new Thread(runnable, "room-detail-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+}
@@ -0,0 +1,112 @@
+package hotel.service.room;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import hotel.service.catalog.RoomVersionStamps;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON danh sách phòng cho /api/list (workflow n8n) dựng sẵn thành byte[], kèm bản gzip và ETag theo nội dung.
+ * Request chỉ trả lại mảng byte đã có, không load entity, không serialize.
+ * Phòng/tầng/diện tích thay đổi chỉ đánh dấu feed đã cũ (Order 3, sau các cache khác); request đầu tiên sau đó
+ * dựng lại một lần, nên nhiều event liền nhau chỉ tốn một lần serialize + gzip và không chạy trên thread commit.
+ * Lượt xem/đã bán đã ghi xuống DB thì dựng lại định kỳ theo nhịp flush của RoomCounterBuffer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomListFeed {
+
+	private final RoomService roomService;
+	private final RoomVersionStamps roomVersionStamps;
+	private final ObjectMapper objectMapper;
+
+	private volatile Feed feed;
+	private final AtomicLong catalogGeneration = new AtomicLong();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		// Lấy phiên bản trước khi đọc DB: danh mục / bộ đếm đổi trong lúc dựng thì lần kiểm tra sau dựng lại
+		long generation = catalogGeneration.get();
+		long counterVersion = roomVersionStamps.counterVersion();
+		byte[] json;
+		try {
+			json = objectMapper.writeValueAsBytes(Map.of("data", roomService.getAllRoomForSearch()));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize room list", e);
+		}
+		feed = new Feed(json, gzip(json), DigestUtils.md5DigestAsHex(json), System.currentTimeMillis() / 1000 * 1000,
+				generation, counterVersion);
+		log.debug("Rebuilt room list feed: {} bytes, {} gzipped", json.length, feed.gzip().length);
+	}
+
+	@Order(3)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		catalogGeneration.incrementAndGet();
+	}
+
+	@Scheduled(fixedDelay = 5_000)
+	public void refreshCounters() {
+		Feed current = feed;
+		if (current != null && current.counterVersion() != roomVersionStamps.counterVersion()) {
+			rebuild();
+		}
+	}
+
+	public Feed current() {
+		Feed current = feed;
+		if (current == null || current.catalogGeneration() != catalogGeneration.get()) {
+			synchronized (this) {
+				current = feed;
+				if (current == null || current.catalogGeneration() != catalogGeneration.get()) {
+					rebuild();
+					current = feed;
+				}
+			}
+		}
+		return current;
+	}
+
+	private static byte[] gzip(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Một phiên bản của feed, không bao giờ bị sửa sau khi dựng.
+	 */
+	public record Feed(byte[] json, byte[] gzip, String hash, long lastModified, long catalogGeneration,
+					   long counterVersion) {
+
+		// ETag mạnh nên bản gzip phải có ETag khác bản gốc
+		public String etag(boolean gzipped) {
+			return "\"" + hash + (gzipped ? "-gzip" : "") + "\"";
+		}
+
+		public byte[] body(boolean gzipped) {
+			return gzipped ? gzip : json;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package hotel.service.room;
+
+import hotel.db.entity.Room;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static hotel.db.enums.OrderDetailStatus.CANCELLED;
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.PENDING;
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+
+/**
+ * Bảng xếp hạng phòng phổ biến giữ trong bộ nhớ: đã bán, lượt xem và xu hướng 7 ngày gần nhất.
+ * Mỗi bảng là một min-heap K phần tử, cập nhật ngay khi có lượt bán / lượt xem nên đọc top không phải quét phòng.
+ * Số đã bán và lượt xem được ghi xuống DB theo batch qua RoomCounterBuffer.
+ * Điểm xu hướng giảm khi sang ngày mới nên bảng xu hướng dựng lại một lần mỗi ngày.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomPopularityBoard {
+
+	public enum Ranking {
+		SOLD, VIEWED, TRENDING
+	}
+
+	// Giữ nhiều hơn số cần hiển thị để còn đủ phòng sau khi bỏ phòng đã xoá / dừng hoạt động
+	public static final int CAPACITY = 20;
+	private static final int TREND_DAYS = 7;
+	// Trong điểm xu hướng, 1 lượt đặt phòng bằng 20 lượt xem
+	private static final long SOLD_WEIGHT = 20;
+
+	private final RoomRepository roomRepository;
+	private final OrderDetailRepository orderDetailRepository;
+	private final RoomCounterBuffer roomCounterBuffer;
+	private final RoomCatalogSnapshot roomCatalogSnapshot;
+
+	// Mọi thay đổi đều trong synchronized(this)
+	private final Map<Integer, Counters> counters = new HashMap<>();
+	private final Map<Ranking, TopK> boards = new EnumMap<>(Ranking.class);
+	private LocalDate trendDay = LocalDate.now();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void load() {
+		counters.clear();
+		for (Room room : roomRepository.findAll()) {
+			Counters c = new Counters();
+			c.sold = valueOf(room.getSold()) + roomCounterBuffer.pendingSold(room.getRoomId());
+			c.views = valueOf(room.getView()) + roomCounterBuffer.pendingViews(room.getRoomId());
+			counters.put(room.getRoomId(), c);
+		}
+		// Lượt bán 7 ngày gần nhất lấy lại từ order_details, lượt xem theo ngày không lưu DB nên bắt đầu từ 0
+		trendDay = LocalDate.now();
+		LocalDateTime from = trendDay.minusDays(TREND_DAYS - 1).atStartOfDay();
+		for (Object[] row : orderDetailRepository.findRoomIdsBookedSince(from, List.of(CART, PENDING, CANCELLED))) {
+			Counters c = counters.get((Integer) row[0]);
+			if (c != null && row[1] != null) {
+				c.addTrend(((LocalDateTime) row[1]).toLocalDate(), SOLD_WEIGHT);
+			}
+		}
+		rebuildBoards();
+		log.debug("Loaded popularity counters for {} rooms", counters.size());
+	}
+
+	public synchronized void recordView(Integer roomId) {
+		Counters c = counters.get(roomId);
+		if (c == null) {
+			return;
+		}
+		rollDayIfNeeded();
+		c.views++;
+		c.addTrend(trendDay, 1);
+		offerAll(roomId);
+	}
+
+	@TransactionalEventListener
+	public void onRoomSold(RoomSoldEvent event) {
+		roomCounterBuffer.addSold(event.getRoomId(), 1);
+		synchronized (this) {
+			Counters c = counters.get(event.getRoomId());
+			if (c == null) {
+				return;
+			}
+			rollDayIfNeeded();
+			c.sold++;
+			c.addTrend(trendDay, SOLD_WEIGHT);
+			offerAll(event.getRoomId());
+		}
+	}
+
+	/**
+	 * Phòng được thêm / sửa / xoá (admin có thể sửa số đã bán): đọc lại số đếm của phòng rồi xếp hạng lại.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		if (event.getRoomId() == null) {
+			load();
+			return;
+		}
+		Room room = roomRepository.findById(event.getRoomId()).orElse(null);
+		synchronized (this) {
+			if (room == null) {
+				counters.remove(event.getRoomId());
+			} else {
+				Counters c = counters.computeIfAbsent(room.getRoomId(), id -> new Counters());
+				c.sold = valueOf(room.getSold()) + roomCounterBuffer.pendingSold(room.getRoomId());
+				c.views = valueOf(room.getView()) + roomCounterBuffer.pendingViews(room.getRoomId());
+			}
+			rebuildBoards();
+		}
+	}
+
+	/**
+	 * Tối đa limit roomId theo thứ hạng giảm dần, bỏ qua phòng đã xoá hoặc dừng hoạt động.
+	 */
+	public List<Integer> top(Ranking ranking, int limit) {
+		List<Integer> ranked;
+		synchronized (this) {
+			rollDayIfNeeded();
+			ranked = boards.get(ranking).ranked();
+		}
+		RoomCatalogSnapshot.Columns columns = roomCatalogSnapshot.columns();
+		byte stopWorking = columns.systemStatusCode(STOPWORKING);
+		List<Integer> result = new ArrayList<>();
+		for (Integer roomId : ranked) {
+			int i = columns.positionOf(roomId);
+			if (i >= 0 && !columns.deleted[i] && columns.systemStatus[i] != stopWorking) {
+				result.add(roomId);
+				if (result.size() == limit) {
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private void rollDayIfNeeded() {
+		LocalDate today = LocalDate.now();
+		if (!today.equals(trendDay)) {
+			trendDay = today;
+			boards.get(Ranking.TRENDING).rebuild();
+		}
+	}
+
+	private void rebuildBoards() {
+		Map<Integer, Counters> view = counters;
+		boards.put(Ranking.SOLD, new TopK(Comparator.<Integer>comparingLong(id -> view.get(id).sold)
+				.thenComparingLong(id -> view.get(id).views)));
+		boards.put(Ranking.VIEWED, new TopK(Comparator.<Integer>comparingLong(id -> view.get(id).views)
+				.thenComparingLong(id -> view.get(id).sold)));
+		boards.put(Ranking.TRENDING, new TopK(Comparator.<Integer>comparingLong(id -> view.get(id).trendScore(trendDay))
+				.thenComparingLong(id -> view.get(id).sold)));
+		boards.values().forEach(TopK::rebuild);
+	}
+
+	private void offerAll(Integer roomId) {
+		boards.values().forEach(board -> board.offer(roomId));
+	}
+
+	private static long valueOf(Integer value) {
+		return value == null ? 0 : value;
+	}
+
+	/**
+	 * Số đếm của một phòng; điểm xu hướng chia theo ngày trong vòng TREND_DAYS ô, ô cũ được ghi đè khi quay vòng.
+	 */
+	private static final class Counters {
+		private long sold;
+		private long views;
+		private final long[] trendScore = new long[TREND_DAYS];
+		private final long[] trendEpochDay = new long[TREND_DAYS];
+
+		private void addTrend(LocalDate day, long points) {
+			long epochDay = day.toEpochDay();
+			int slot = (int) Math.floorMod(epochDay, (long) TREND_DAYS);
+			if (trendEpochDay[slot] != epochDay) {
+				trendEpochDay[slot] = epochDay;
+				trendScore[slot] = 0;
+			}
+			trendScore[slot] += points;
+		}
+
+		private long trendScore(LocalDate today) {
+			long todayEpochDay = today.toEpochDay();
+			long total = 0;
+			for (int slot = 0; slot < TREND_DAYS; slot++) {
+				if (todayEpochDay - trendEpochDay[slot] < TREND_DAYS) {
+					total += trendScore[slot];
+				}
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * Min-heap K phòng tốt nhất theo order (hoà thì roomId nhỏ hơn xếp trên).
+	 * Điểm chỉ tăng giữa hai lần rebuild, nên chỉ cần đẩy lại đúng phòng vừa đổi điểm.
+	 */
+	private final class TopK {
+		private final Comparator<Integer> order;
+		private final PriorityQueue<Integer> heap;
+		private final Set<Integer> members = new HashSet<>();
+
+		private TopK(Comparator<Integer> score) {
+			this.order = score.thenComparing(Comparator.<Integer>reverseOrder());
+			this.heap = new PriorityQueue<>(CAPACITY, order);
+		}
+
+		private void offer(Integer roomId) {
+			if (members.contains(roomId)) {
+				heap.remove(roomId);
+				heap.add(roomId);
+			} else if (heap.size() < CAPACITY) {
+				heap.add(roomId);
+				members.add(roomId);
+			} else if (order.compare(roomId, heap.peek()) > 0) {
+				members.remove(heap.poll());
+				heap.add(roomId);
+				members.add(roomId);
+			}
+		}
+
+		private void rebuild() {
+			heap.clear();
+			members.clear();
+			counters.keySet().forEach(this::offer);
+		}
+
+		private List<Integer> ranked() {
+			List<Integer> ranked = new ArrayList<>(heap);
+			ranked.sort(order.reversed());
+			return ranked;
+		}
+	}
+}
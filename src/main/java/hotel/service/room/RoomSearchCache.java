@@ -0,0 +1,247 @@
+package hotel.service.room;
+
+import hotel.db.dto.room.CacheStatsDto;
+import hotel.db.dto.room.RoomBookListDto;
+import hotel.db.dto.room.RoomFacetsDto;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Cache kết quả tìm phòng phía customer (HomePageController.viewListRooms) và số đếm bộ lọc đi kèm.
+ * Key là bộ lọc đã chuẩn hoá, kết quả là danh sách roomId của trang theo đúng thứ tự cùng tổng số phòng.
+ * Thẻ phòng (RoomBookListDto) được cache riêng theo roomId nên trang trúng cache không cần đọc MySQL.
+ *
+ * - Giới hạn MAX_ENTRIES, loại bỏ theo LRU, hết hạn sau TTL_MILLIS.
+ * - Phòng / giá / ảnh / view thay đổi: xoá toàn bộ kết quả và thẻ của phòng đó.
+ * - Booking / bảo trì thay đổi: chỉ xoá các kết quả có lọc ngày giao với khoảng ngày bị ảnh hưởng.
+ */
+@Component
+public class RoomSearchCache {
+
+	private static final int MAX_ENTRIES = 500;
+	private static final long TTL_MILLIS = 5 * 60 * 1000L;
+
+	private final TimedLruCache<Entry> results = new TimedLruCache<>("roomSearch");
+	private final TimedLruCache<RoomFacetsDto> facets = new TimedLruCache<>("roomFacets");
+	private final Map<Integer, RoomBookListDto> cards = new ConcurrentHashMap<>();
+
+	// Tăng mỗi lần invalidate, kết quả tính từ trước lần invalidate sẽ không được put vào cache
+	private final AtomicLong generation = new AtomicLong();
+
+	public Key key(BigDecimal minPrice, BigDecimal maxPrice, String roomType, Integer floor, String bedType,
+				   List<Integer> viewIds, List<Integer> furnishingIds, String sortBy, int page, int size, String date) {
+		LocalDate checkIn = null;
+		LocalDate checkOut = null;
+		if (date != null && !date.isBlank()) {
+			String[] dateArr = date.split(" - ");
+			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+			try {
+				checkIn = LocalDate.parse(dateArr[0].trim(), formatter);
+				checkOut = LocalDate.parse(dateArr[1].trim(), formatter);
+			} catch (DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+				// Ngày sai định dạng: không cache, để service báo lỗi như cũ
+				return null;
+			}
+		}
+		return new Key(normalize(minPrice), normalize(maxPrice), normalize(roomType), floor, normalize(bedType),
+				normalize(viewIds), normalize(furnishingIds), normalize(sortBy), page, size, checkIn, checkOut);
+	}
+
+	// Số đếm bộ lọc không phụ thuộc sort và trang
+	public Key facetKey(BigDecimal minPrice, BigDecimal maxPrice, String roomType, Integer floor, String bedType,
+						List<Integer> viewIds, List<Integer> furnishingIds, String date) {
+		return key(minPrice, maxPrice, roomType, floor, bedType, viewIds, furnishingIds, null, 0, 0, date);
+	}
+
+	public long currentGeneration() {
+		return generation.get();
+	}
+
+	public Entry get(Key key) {
+		return results.get(key);
+	}
+
+	/**
+	 * Chỉ lưu nếu không có invalidate nào xảy ra từ lúc bắt đầu truy vấn (generationAtStart).
+	 */
+	public void put(Key key, List<Integer> roomIds, long total, long generationAtStart) {
+		results.put(key, new Entry(List.copyOf(roomIds), total), generationAtStart);
+	}
+
+	public RoomFacetsDto getFacets(Key key) {
+		return facets.get(key);
+	}
+
+	public void putFacets(Key key, RoomFacetsDto value, long generationAtStart) {
+		facets.put(key, value, generationAtStart);
+	}
+
+	public RoomBookListDto getCard(Integer roomId) {
+		return cards.get(roomId);
+	}
+
+	public void putCards(Collection<RoomBookListDto> roomCards, long generationAtStart) {
+		if (generation.get() != generationAtStart) {
+			return;
+		}
+		for (RoomBookListDto card : roomCards) {
+			cards.put(card.getRoomId(), card);
+		}
+	}
+
+	// Chạy sau RoomCatalogSnapshot để số đếm tính lại luôn dùng ảnh chụp mới
+	@Order(1)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(RoomCatalogChangedEvent event) {
+		generation.incrementAndGet();
+		results.clear();
+		facets.clear();
+		if (event.getRoomId() == null) {
+			cards.clear();
+		} else {
+			cards.remove(event.getRoomId());
+		}
+	}
+
+	// Chạy sau RoomAvailabilityIndex để kết quả tính lại luôn dùng index mới
+	@Order(1)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		LocalDate from = event.getStartDate() == null ? null : event.getStartDate().toLocalDate();
+		LocalDate to = event.getEndDate() == null ? null : event.getEndDate().toLocalDate();
+		// Không rõ khoảng ngày thì xoá mọi kết quả có lọc ngày
+		Predicate<Key> affected = key -> key.checkIn() != null
+				&& (from == null || to == null || (key.checkIn().isBefore(to) && key.checkOut().isAfter(from)));
+		generation.incrementAndGet();
+		results.removeIf(affected);
+		facets.removeIf(affected);
+	}
+
+	public List<CacheStatsDto> stats() {
+		return List.of(results.stats(), facets.stats());
+	}
+
+	private String normalize(String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+
+	private BigDecimal normalize(BigDecimal value) {
+		return value == null ? null : value.stripTrailingZeros();
+	}
+
+	// Thứ tự chọn không ảnh hưởng kết quả: bỏ trùng và sắp tăng dần
+	private List<Integer> normalize(List<Integer> ids) {
+		return ids == null ? List.of() : ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+	}
+
+	public record Key(BigDecimal minPrice, BigDecimal maxPrice, String roomType, Integer floor, String bedType,
+					  List<Integer> viewIds, List<Integer> furnishingIds, String sortBy, int page, int size, LocalDate checkIn, LocalDate checkOut) {
+	}
+
+	public record Entry(List<Integer> roomIds, long total) {
+	}
+
+	/**
+	 * LinkedHashMap theo thứ tự truy cập (LRU) có TTL, mọi thao tác synchronized trên map.
+	 */
+	private class TimedLruCache<V> {
+
+		private final String name;
+		private final LinkedHashMap<Key, Timed<V>> map = new LinkedHashMap<>(64, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Timed<V>> eldest) {
+				if (size() > MAX_ENTRIES) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private final LongAdder invalidations = new LongAdder();
+
+		TimedLruCache(String name) {
+			this.name = name;
+		}
+
+		V get(Key key) {
+			if (key == null) {
+				return null;
+			}
+			synchronized (map) {
+				Timed<V> timed = map.get(key);
+				if (timed != null && System.currentTimeMillis() - timed.createdAt() > TTL_MILLIS) {
+					map.remove(key);
+					evictions.increment();
+					timed = null;
+				}
+				if (timed == null) {
+					misses.increment();
+					return null;
+				}
+				hits.increment();
+				return timed.value();
+			}
+		}
+
+		void put(Key key, V value, long generationAtStart) {
+			if (key == null) {
+				return;
+			}
+			synchronized (map) {
+				if (generation.get() == generationAtStart) {
+					map.put(key, new Timed<>(value, System.currentTimeMillis()));
+				}
+			}
+		}
+
+		void clear() {
+			synchronized (map) {
+				invalidations.add(map.size());
+				map.clear();
+			}
+		}
+
+		void removeIf(Predicate<Key> predicate) {
+			synchronized (map) {
+				int before = map.size();
+				map.keySet().removeIf(predicate);
+				invalidations.add(before - map.size());
+			}
+		}
+
+		CacheStatsDto stats() {
+			long hitCount = hits.sum();
+			long missCount = misses.sum();
+			int size;
+			synchronized (map) {
+				size = map.size();
+			}
+			double hitRate = hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount);
+			return new CacheStatsDto(name, size, hitCount, missCount, evictions.sum(), invalidations.sum(), hitRate);
+		}
+	}
+
+	private record Timed<V>(V value, long createdAt) {
+	}
+}
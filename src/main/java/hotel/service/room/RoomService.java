@@ -21,17 +21,34 @@ public interface RoomService {
     void saveMaintenance(Integer roomId, String checkInDate, String checkOutDate,
                          String description, Integer createBy);
 
-    List<String> getDateToDisableRoom(Integer roomId);
+    //Lấy các khoảng ngày không chọn được cho check-in, check-out và dừng hoạt động (có cache theo phòng)
+    RoomUnavailableDatesDto getUnavailableDates(Integer roomId);
 
-    //Lấy các ngày cho phép check-in
-    List<String> getBookedDatesForBookingRoom(Integer roomId);
+    //Khoảng trống sớm nhất của mọi phòng (hoặc theo loại phòng), dùng cho lễ tân gợi ý phòng thay thế
+    List<RoomFreeWindowDto> getEarliestFreeWindows(String roomType, String fromDate, Integer nights);
 
-    //Lấy các ngày cho phép check-out
-    List<String> getBookedDatesForCheckOut(Integer roomId);
+    // Lưới phòng x ngày của một tháng (MM/yyyy, mặc định tháng hiện tại) cho một tầng hoặc cả khách sạn
+    TapeChartDto getTapeChart(String month, Integer floorId);
 
-    //Method filter dùng cho Room-BookingList bên phía customer.
+    //Số phòng theo loại phòng, loại giường, tầng, khoảng giá cho bộ lọc hiện tại (có cache)
+    RoomFacetsDto getRoomFacets(BigDecimal minPrice, BigDecimal maxPrice, String roomType,
+                                Integer floor, String bedType, List<Integer> viewIds, List<Integer> furnishingIds,
+                                String date);
+
+    //Số liệu hit/miss của các cache phía phòng
+    List<CacheStatsDto> getCacheStats();
+
+    //Chia phòng cho đoàn: đủ số phòng theo loại phòng/loại giường, ưu tiên cùng tầng, rồi tổng giá thấp nhất
+    GroupAllocationDto allocateGroupRooms(GroupBookingRequestDto request);
+
+    //Tìm ngày linh hoạt: các ngày nhận phòng còn trống đủ số đêm trong N ngày tới, theo phòng và loại phòng, giá tăng dần
+    FlexibleDateSearchDto searchFlexibleDates(Integer nights, Integer days, BigDecimal minPrice, BigDecimal maxPrice,
+                                              String roomType, Integer floor, String bedType);
+
+    //Method filter dùng cho Room-BookingList bên phía customer, viewIds/furnishingIds: phòng phải có đủ mọi view/vật dụng đã chọn.
     Page<RoomBookListDto> getRoomListWithFiltersAndPagination(BigDecimal minPrice, BigDecimal maxPrice,String roomType,
-                                                              Integer floor, String bedType, String sortBy, int page, int size, String date);
+                                                              Integer floor, String bedType, List<Integer> viewIds,
+                                                              List<Integer> furnishingIds, String sortBy, int page, int size, String date);
 
     //Tăng view lên khi người dùng xem phòng.
     void incrementView(Integer roomId);
@@ -75,7 +92,13 @@ public interface RoomService {
 
 	List<RoomHomepageResponseDto> getTop3Rooms();
 
+	// Phòng phổ biến theo ranking: sold | viewed | trending (đặt + xem 7 ngày gần nhất), tối đa 20 phòng
+	List<RoomHomepageResponseDto> getPopularRooms(String ranking, int limit);
+
 	RoomDetailResponseDto getRoomDetailById(Integer roomId);
+
+	// Dữ liệu trang chi tiết phòng (phòng, ảnh, view, ngày bị chặn) đọc song song, null nếu phòng không tồn tại
+	RoomDetailPageDto getRoomDetailPage(Integer roomId);
 	
 	void disableRoom(Integer roomId, String disableStartDate, String disableEndDate, String description, Integer createdBy);
 	
@@ -3,37 +3,53 @@ package hotel.service.room;
 import hotel.db.dto.furnishing.FurnishingFormDto;
 import hotel.db.dto.room.*;
 import hotel.db.entity.*;
+import hotel.db.enums.BedType;
+import hotel.db.enums.RoomType;
 import hotel.db.repository.floor.FloorRepository;
 import hotel.db.repository.furnishing.FurnishingRepository;
 import hotel.db.repository.order.OrderRepository;
 import hotel.db.repository.roomfurnishing.RoomFurnishingRepository;
 import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
-import hotel.db.repository.roomview.RoomViewRepository;
+import hotel.db.repository.size.SizeRepository;
 import hotel.db.repository.user.UserRepository;
-import hotel.db.repository.view.ViewRepository;
+import hotel.service.availability.DateRanges;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import hotel.service.availability.RoomAvailabilityIndex;
+import hotel.service.availability.RoomTapeChart;
+import hotel.service.availability.RoomUnavailableDatesCache;
+import hotel.service.catalog.RoomAttributeIndex;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import hotel.service.catalog.RoomCatalogSnapshot;
 import hotel.service.cloudinary.CloudinaryService;
 import hotel.service.common.CommonService;
 import hotel.service.image.ImageService;
 import hotel.service.size.SizeService;
 import hotel.db.repository.orderdetail.OrderDetailRepository;
 import hotel.db.repository.room.RoomRepository;
-import hotel.db.repository.roomimage.RoomImageRepository;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 import static hotel.db.enums.BedType.KING;
@@ -55,13 +71,31 @@ import static hotel.db.enums.RoomType.*;
 @Transactional
 public class RoomServiceImpl implements RoomService {
 
+    // Chỉ tìm khoảng trống trong vòng 1 năm kể từ ngày bắt đầu
+    private static final int FREE_WINDOW_HORIZON_DAYS = 365;
+    // Tìm ngày linh hoạt mặc định trong 60 ngày tới, tối đa 180 ngày
+    private static final int FLEXIBLE_DEFAULT_DAYS = 60;
+    private static final int FLEXIBLE_MAX_DAYS = 180;
+    // Mốc khoảng giá cho bộ lọc (VNĐ/đêm): [0, 500k), [500k, 1tr), [1tr, 2tr), [2tr, 5tr), [5tr, ...)
+    private static final BigDecimal[] PRICE_BUCKET_BOUNDS = {
+            BigDecimal.ZERO, new BigDecimal("500000"), new BigDecimal("1000000"),
+            new BigDecimal("2000000"), new BigDecimal("5000000")
+    };
+    private static final long[] PRICE_BUCKET_BOUNDS_MINOR = Arrays.stream(PRICE_BUCKET_BOUNDS)
+            .mapToLong(RoomCatalogSnapshot::toMinor).toArray();
+
     private final RoomRepository roomRepository;
     private final FloorRepository floorRepository;
     private final OrderDetailRepository orderDetailRepository;
-    private final RoomImageRepository roomImageRepository;
-    private final RoomViewRepository roomViewRepository;
-    private final ViewRepository viewRepository;
+    private final RoomCardLoader roomCardLoader;
+    private final RoomDetailComposer roomDetailComposer;
+    private final RoomPopularityBoard roomPopularityBoard;
+    private final GroupRoomAllocator groupRoomAllocator;
+    private final RoomSearchCache roomSearchCache;
+    private final RoomCatalogSnapshot roomCatalogSnapshot;
+    private final RoomAttributeIndex roomAttributeIndex;
     private final SizeService sizeService;
+    private final SizeRepository sizeRepository;
     private final RoomMaintenanceRepository roomMaintenanceRepository;
     private final RoomFurnishingRepository roomFurnishingRepository;
     private final FurnishingRepository furnishingRepository;
@@ -70,12 +104,10 @@ public class RoomServiceImpl implements RoomService {
     private final CloudinaryService cloudinaryService;
     private final ImageService imageService;
     private final OrderRepository orderRepository;
-
-    public List<String> getRoomViewList(Integer roomId) {
-        return roomViewRepository.findRoomViewId(roomId).stream().map(viewId ->
-                viewRepository.findViewTypeByViewId(viewId)).collect(Collectors.toList());
-    }
-
+    private final RoomAvailabilityIndex roomAvailabilityIndex;
+    private final RoomTapeChart roomTapeChart;
+    private final RoomUnavailableDatesCache roomUnavailableDatesCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<FurnishingFormDto> getFurnishingsForForm(Integer roomId) {
@@ -177,280 +209,396 @@ public class RoomServiceImpl implements RoomService {
     }
 
     @Override
-    public List<String> getDateToDisableRoom(Integer roomId) {
-        LocalDateTime fromDate = LocalDateTime.now();
-        LocalDateTime toDate = fromDate.plusMonths(2);
-
-        List<OrderDetail> bookings = orderDetailRepository.findBookingsByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(RESERVED, CART)
-        );
-
-        List<RoomMaintenance> maintenances = roomMaintenanceRepository.findMaintenancesByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(STOPWORKING)
-        );
+    public RoomUnavailableDatesDto getUnavailableDates(Integer roomId) {
+        return roomUnavailableDatesCache.get(roomId);
+    }
 
-        List<String> disableDates = new ArrayList<>();
+    @Override
+    public RoomFacetsDto getRoomFacets(BigDecimal minPrice, BigDecimal maxPrice, String roomType,
+                                       Integer floor, String bedType, List<Integer> viewIds,
+                                       List<Integer> furnishingIds, String date) {
+        RoomSearchCache.Key cacheKey = roomSearchCache.facetKey(minPrice, maxPrice, roomType, floor, bedType,
+                viewIds, furnishingIds, date);
+        long generation = roomSearchCache.currentGeneration();
+        RoomFacetsDto cached = roomSearchCache.getFacets(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
 
-        for (OrderDetail booking : bookings) {
-            LocalDate start = booking.getStartDate().toLocalDate();
-            LocalDate end = booking.getEndDate().toLocalDate();
+        Set<Integer> unavailableRoomIds = Collections.emptySet();
+        if (date != null && !date.isEmpty()) {
+            String[] dateArr = date.split(" - ");
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            unavailableRoomIds = roomAvailabilityIndex.findUnavailableRoomIds(
+                    LocalDate.parse(dateArr[0], formatter), LocalDate.parse(dateArr[1], formatter));
+        }
 
-            LocalDate current = start;
-            while (current.isBefore(end)) { // Không bao gồm ngày end
-                disableDates.add(current.toString()); // Format: yyyy-MM-dd
-                current = current.plusDays(1);
+        Map<String, Long> roomTypeCounts = new LinkedHashMap<>();
+        for (String type : RoomType.ALL) {
+            roomTypeCounts.put(type, 0L);
+        }
+        Map<String, Long> bedTypeCounts = new LinkedHashMap<>();
+        for (String type : BedType.ALL) {
+            bedTypeCounts.put(type, 0L);
+        }
+        Map<Integer, Long> floorCounts = new TreeMap<>();
+        long[] priceCounts = new long[PRICE_BUCKET_BOUNDS.length];
+        long total = 0;
+
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+        boolean[] unavailable = c.mask(unavailableRoomIds);
+        BitSet withAttributes = roomAttributeIndex.findRoomsWithAll(viewIds, furnishingIds);
+        byte stopWorking = c.systemStatusCode(STOPWORKING);
+        byte roomTypeCode = roomType == null || roomType.isEmpty() ? RoomCatalogSnapshot.NONE : c.roomTypeCode(roomType);
+        byte bedTypeCode = bedType == null || bedType.isEmpty() ? RoomCatalogSnapshot.NONE : c.bedTypeCode(bedType);
+        long minPriceMinor = minPrice == null ? Long.MIN_VALUE : RoomCatalogSnapshot.toMinor(minPrice);
+        long maxPriceMinor = maxPrice == null ? Long.MAX_VALUE : RoomCatalogSnapshot.toMinor(maxPrice);
+        boolean anyPrice = minPrice == null && maxPrice == null;
+        // Đếm theo mã từ điển rồi mới đổi sang tên
+        long[] typeCounts = new long[Byte.MAX_VALUE + 1];
+        long[] bedCounts = new long[Byte.MAX_VALUE + 1];
+
+        // Một lượt qua các cột của ảnh chụp: mỗi nhóm đếm các phòng khớp mọi bộ lọc trừ bộ lọc của chính nhóm đó
+        for (int i = 0; i < c.size; i++) {
+            if (c.systemStatus[i] == stopWorking || unavailable[i]
+                    || (withAttributes != null && !withAttributes.get(c.roomId[i]))) {
+                continue;
+            }
+            boolean hasPrice = c.priceMinor[i] != Long.MIN_VALUE;
+            boolean matchRoomType = roomTypeCode == RoomCatalogSnapshot.NONE || c.roomType[i] == roomTypeCode;
+            boolean matchBedType = bedTypeCode == RoomCatalogSnapshot.NONE || c.bedType[i] == bedTypeCode;
+            boolean matchFloor = floor == null || c.floorId[i] == floor;
+            boolean matchPrice = anyPrice
+                    || (hasPrice && c.priceMinor[i] >= minPriceMinor && c.priceMinor[i] <= maxPriceMinor);
+
+            if (matchBedType && matchFloor && matchPrice && c.roomType[i] >= 0) {
+                typeCounts[c.roomType[i]]++;
+            }
+            if (matchRoomType && matchFloor && matchPrice && c.bedType[i] >= 0) {
+                bedCounts[c.bedType[i]]++;
+            }
+            if (matchRoomType && matchBedType && matchPrice && c.floorId[i] != Integer.MIN_VALUE) {
+                floorCounts.merge(c.floorId[i], 1L, Long::sum);
+            }
+            if (matchRoomType && matchBedType && matchFloor && hasPrice) {
+                priceCounts[priceBucketOf(c.priceMinor[i])]++;
+            }
+            if (matchRoomType && matchBedType && matchFloor && matchPrice) {
+                total++;
             }
         }
-        for (RoomMaintenance disableDate : maintenances) {
-            LocalDate start = disableDate.getStartDate().toLocalDate();
-            LocalDate end = disableDate.getEndDate().toLocalDate();
-            LocalDate current = start;
-            while (current.isBefore(end)) {
-                disableDates.add(current.toString());
-                current = current.plusDays(1);
+        for (int code = 0; code <= Byte.MAX_VALUE; code++) {
+            if (typeCounts[code] > 0) {
+                roomTypeCounts.put(c.roomTypeName(code), typeCounts[code]);
+            }
+            if (bedCounts[code] > 0) {
+                bedTypeCounts.put(c.bedTypeName(code), bedCounts[code]);
             }
         }
 
-        return disableDates;
-    }
-
-
-    @Override
-    public List<String> getBookedDatesForBookingRoom(Integer roomId) {
-        LocalDateTime fromDate = LocalDateTime.now();
-        LocalDateTime toDate = fromDate.plusMonths(2);
-
-        List<OrderDetail> bookings = orderDetailRepository.findBookingsByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(RESERVED, CART)
-        );
-
-        List<RoomMaintenance> maintenances = roomMaintenanceRepository.findMaintenancesByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(MAINTENANCE)
-        );
-
-        List<String> bookedDates = new ArrayList<>();
+        List<PriceBucketDto> priceBuckets = new ArrayList<>();
+        for (int i = 0; i < PRICE_BUCKET_BOUNDS.length; i++) {
+            BigDecimal upper = i + 1 < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[i + 1] : null;
+            priceBuckets.add(new PriceBucketDto(PRICE_BUCKET_BOUNDS[i], upper, priceCounts[i]));
+        }
 
-        for (OrderDetail booking : bookings) {
-            LocalDate start = booking.getStartDate().toLocalDate();
-            LocalDate end = booking.getEndDate().toLocalDate();
+        RoomFacetsDto facets = new RoomFacetsDto(total, roomTypeCounts, bedTypeCounts, floorCounts, priceBuckets);
+        roomSearchCache.putFacets(cacheKey, facets, generation);
+        return facets;
+    }
 
-            LocalDate current = start;
-            while (!current.isAfter(end)) { // BAO GỒM cả ngày end (vì checkout 12:00, không thể checkin cùng ngày)
-                bookedDates.add(current.toString()); // Format: yyyy-MM-dd
-                current = current.plusDays(1);
-            }
-        }
-        for (RoomMaintenance maintenance : maintenances) {
-            LocalDate start = maintenance.getStartDate().toLocalDate();
-            LocalDate end = maintenance.getEndDate().toLocalDate();
-            LocalDate current = start;
-            while (!current.isAfter(end)) { // BAO GỒM cả ngày end
-                bookedDates.add(current.toString());
-                current = current.plusDays(1);
+    private int priceBucketOf(long priceMinor) {
+        for (int i = PRICE_BUCKET_BOUNDS.length - 1; i > 0; i--) {
+            if (priceMinor >= PRICE_BUCKET_BOUNDS_MINOR[i]) {
+                return i;
             }
         }
-
-        return bookedDates;
+        return 0;
     }
 
     @Override
-    public List<String> getBookedDatesForCheckOut(Integer roomId) {
-        LocalDateTime fromDate = LocalDateTime.now();
-        LocalDateTime toDate = fromDate.plusMonths(2);
-
-        List<OrderDetail> bookings = orderDetailRepository.findBookingsByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(RESERVED, CART)
-        );
+    public List<CacheStatsDto> getCacheStats() {
+        return roomSearchCache.stats();
+    }
 
-        List<RoomMaintenance> maintenances = roomMaintenanceRepository.findMaintenancesByRoomAndDateRange(
-                roomId,
-                fromDate,
-                toDate,
-                Arrays.asList(MAINTENANCE)
-        );
+    @Override
+    public GroupAllocationDto allocateGroupRooms(GroupBookingRequestDto request) {
+        if (request.getCheckIn() == null || request.getCheckOut() == null) {
+            throw new RuntimeException("Vui lòng chọn ngày nhận phòng và trả phòng");
+        }
+        if (request.getRequirements() == null || request.getRequirements().isEmpty()) {
+            throw new RuntimeException("Vui lòng nhập số lượng phòng cần đặt");
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        LocalDate checkIn = LocalDate.parse(request.getCheckIn(), formatter);
+        LocalDate checkOut = LocalDate.parse(request.getCheckOut(), formatter);
+        int nights = (int) ChronoUnit.DAYS.between(checkIn, checkOut);
+        if (nights <= 0) {
+            throw new RuntimeException("Ngày trả phòng phải sau ngày nhận phòng");
+        }
 
-        List<String> bookedDates = new ArrayList<>();
+        // Một lần đọc index + một query phòng trống, sắp theo giá để bộ chia phòng lấy phòng rẻ trước
+        Set<Integer> unavailableRoomIds = roomAvailabilityIndex.findUnavailableRoomIds(checkIn, checkOut);
+        Specification<Room> spec = customerRoomSpec(null, null, null, null, null, unavailableRoomIds)
+                .and((root, query, cb) -> cb.isFalse(root.get("isDeleted")));
+        List<Room> candidates = roomRepository.findAll(spec,
+                Sort.by("price").ascending().and(Sort.by("roomNumberSort")));
 
-        for (OrderDetail booking : bookings) {
-            LocalDate start = booking.getStartDate().toLocalDate();
-            LocalDate end = booking.getEndDate().toLocalDate();
+        return groupRoomAllocator.allocate(candidates, request.getRequirements(), request.getPreferredFloorId(), nights);
+    }
 
-            LocalDate current = start.plusDays(1); // Bắt đầu từ ngày sau start
-            while (current.isBefore(end)) { // Dừng trước ngày end
-                bookedDates.add(current.toString()); // Format: yyyy-MM-dd
-                current = current.plusDays(1);
-            }
-        }
-        for (RoomMaintenance maintenance : maintenances) {
-            LocalDate start = maintenance.getStartDate().toLocalDate();
-            LocalDate end = maintenance.getEndDate().toLocalDate();
-            LocalDate current = start.plusDays(1);
-            while (current.isBefore(end)) {
-                bookedDates.add(current.toString());
-                current = current.plusDays(1);
-            }
+    @Override
+    public FlexibleDateSearchDto searchFlexibleDates(Integer nights, Integer days, BigDecimal minPrice, BigDecimal maxPrice,
+                                                     String roomType, Integer floor, String bedType) {
+        int length = (nights == null || nights < 1) ? 1 : nights;
+        int horizonDays = (days == null || days < 1) ? FLEXIBLE_DEFAULT_DAYS : Math.min(days, FLEXIBLE_MAX_DAYS);
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(horizonDays);
+
+        // Phòng thoả bộ lọc, đã sắp theo giá tăng dần ngay trong DB
+        List<Room> rooms = roomRepository.findAll(
+                customerRoomSpec(minPrice, maxPrice, roomType, floor, bedType, Collections.emptySet()),
+                Sort.by("price").ascending().and(Sort.by("roomNumberSort")));
+
+        // Quét khoảng trống của từng phòng song song trên ForkJoinPool chung, index chỉ đọc nên không cần lock
+        Map<Integer, List<LocalDate[]>> windowsByRoom = rooms.parallelStream()
+                .collect(Collectors.toConcurrentMap(Room::getRoomId,
+                        room -> roomAvailabilityIndex.findCheckInWindows(room.getRoomId(), from, length, to)));
+
+        List<Room> availableRooms = rooms.stream()
+                .filter(room -> !windowsByRoom.get(room.getRoomId()).isEmpty())
+                .toList();
+        Map<Integer, String> coverImages = roomCardLoader.loadCoverImages(
+                availableRooms.stream().map(Room::getRoomId).toList());
+
+        List<RoomFlexibleWindowDto> roomResults = new ArrayList<>();
+        Map<String, List<Room>> roomsByType = new LinkedHashMap<>();
+        for (Room room : availableRooms) {
+            roomResults.add(new RoomFlexibleWindowDto(room.getRoomId(), room.getRoomNumber(), room.getRoomType(),
+                    room.getBedType(), room.getPrice(), coverImages.get(room.getRoomId()),
+                    DateRanges.merge(windowsByRoom.get(room.getRoomId()))));
+            roomsByType.computeIfAbsent(room.getRoomType(), type -> new ArrayList<>()).add(room);
         }
 
-        return bookedDates;
+        // Theo loại phòng: gộp ngày nhận phòng của mọi phòng cùng loại, giá thấp nhất là phòng đầu tiên (đã sort)
+        List<RoomTypeFlexibleWindowDto> roomTypeResults = new ArrayList<>();
+        roomsByType.forEach((type, typeRooms) -> {
+            List<LocalDate[]> windows = new ArrayList<>();
+            typeRooms.forEach(room -> windows.addAll(windowsByRoom.get(room.getRoomId())));
+            roomTypeResults.add(new RoomTypeFlexibleWindowDto(type, typeRooms.get(0).getPrice(), typeRooms.size(),
+                    DateRanges.merge(windows)));
+        });
+
+        return new FlexibleDateSearchDto(length, from, to, roomResults, roomTypeResults);
     }
 
     @Override
+    // Không mở transaction: trang trúng cache không cần lấy connection MySQL
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<RoomBookListDto> getRoomListWithFiltersAndPagination(BigDecimal minPrice, BigDecimal maxPrice, String roomType,
-                                                                     Integer floor, String bedType, String sortBy, int page, int size, String date) {
-        List<Room> rooms = roomRepository.findAll();
-
-        //Filter theo roomType (Loại phòng)
-        if (roomType != null && !roomType.isEmpty()) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getRoomType().equals(roomType))
-                    .collect(Collectors.toList());
+                                                                     Integer floor, String bedType, List<Integer> viewIds,
+                                                                     List<Integer> furnishingIds, String sortBy, int page, int size, String date) {
+        // Trúng cache: chỉ ghép thẻ phòng đã cache, không đọc MySQL
+        RoomSearchCache.Key cacheKey = roomSearchCache.key(minPrice, maxPrice, roomType, floor, bedType,
+                viewIds, furnishingIds, sortBy, page, size, date);
+        long generation = roomSearchCache.currentGeneration();
+        RoomSearchCache.Entry cached = roomSearchCache.get(cacheKey);
+        if (cached != null) {
+            return new PageImpl<>(loadRoomCards(cached.roomIds(), generation), PageRequest.of(page, size), cached.total());
         }
-        //Filter theo giá min
-        if (minPrice != null) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getPrice().compareTo(minPrice) >= 0)
-                    .collect(Collectors.toList());
-        }
-        //Filter theo giá trần
-        if (maxPrice != null) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getPrice().compareTo(maxPrice) <= 0)
-                    .collect(Collectors.toList());
-        }
-        //Filter theo tầng
-        if (floor != null) {
-            rooms = rooms.stream()
-                    .filter(x -> floor.equals(x.getFloorId()))
-                    .collect(Collectors.toList());
-        }
-        //Filter theo bedtype
-        if (bedType != null && !bedType.isEmpty()) {
-            rooms = rooms.stream()
-                    .filter(x -> bedType.equals(x.getBedType()))
-                    .collect(Collectors.toList());
+
+        //Filter theo StartDate EndDate: lấy các phòng bị chiếm từ index, loại trừ khi duyệt ảnh chụp
+        Set<Integer> unavailableRoomIds;
+        if (date != null && !date.isEmpty()) {
+            String[] dateArr = date.split(" - ");
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            // Khách nhận phòng 14:00 ngày đầu, trả phòng 12:00 ngày cuối => các đêm [checkIn, checkOut)
+            LocalDate checkIn = LocalDate.parse(dateArr[0], formatter);
+            LocalDate checkOut = LocalDate.parse(dateArr[1], formatter);
+            unavailableRoomIds = roomAvailabilityIndex.findUnavailableRoomIds(checkIn, checkOut);
+        } else {
+            unavailableRoomIds = Collections.emptySet();
         }
-        //Thêm đk Sort
+
+        //Lọc và sort trên các cột của ảnh chụp danh mục, sắp số phòng theo room_number_sort, không parse String
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+        int[] order = c.order(null, false);
         if (sortBy != null) {
             switch (sortBy) {
                 case "price-asc":
-                    rooms.sort(Comparator.comparing(Room::getPrice));
+                    order = c.order("price", false);
                     break;
                 case "price-desc":
-                    rooms.sort(Comparator.comparing(Room::getPrice).reversed());
+                    order = c.order("price", true);
                     break;
                 case "room-asc":
-                    // So sánh theo số, không phải String
-                    rooms.sort(Comparator.comparingInt(r -> Integer.parseInt(r.getRoomNumber())));
+                    order = c.order("roomNumber", false);
                     break;
                 case "room-desc":
-                    // So sánh theo số, không phải String
-                    rooms.sort(Comparator.comparingInt((Room r) -> Integer.parseInt(r.getRoomNumber())).reversed());
+                    order = c.order("roomNumber", true);
                     break;
             }
         }
-        //Filter theo StartDate EndDate
-        if (date != null && !date.isEmpty()) {
-            String[] dateArr = date.split(" - ");
-            String startDate = dateArr[0];
-            String endDate = dateArr[1];
-            System.out.println(endDate + "-" + startDate);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            LocalDateTime filterStartDate = LocalDate.parse(startDate, formatter).atTime(14, 0); //Thêm nghiệp vụ để để filter chuẩn phòng khách có thể book.
-            LocalDateTime filterEndDate = LocalDate.parse(endDate, formatter).atTime(12, 0);
+        //Filter theo view/vật dụng: AND các bitmap của index thuộc tính
+        BitSet withAttributes = roomAttributeIndex.findRoomsWithAll(viewIds, furnishingIds);
+        RoomCatalogSnapshot.Slice slice = c.page(order, customerRoomFilter(c, minPrice, maxPrice, roomType, floor, bedType,
+                unavailableRoomIds, withAttributes), page, size);
+
+        // Thẻ phòng của trang: ảnh và view đọc 2 query, phần còn lại lấy từ ảnh chụp
+        List<RoomBookListDto> cards = loadRoomCards(slice.roomIds(), generation);
+        roomSearchCache.put(cacheKey, slice.roomIds(), slice.total(), generation);
+        return new PageImpl<>(cards, PageRequest.of(page, size), slice.total());
+    }
 
-            // Lấy danh sách room_id có booking CONFLICT với filter date
-            List<Integer> bookedRoomIds = orderDetailRepository.findRoomIdsByFilterEndateAndStatdate(filterStartDate, filterEndDate);
+    /*
+    Lấy thẻ phòng theo đúng thứ tự roomIds, thẻ chưa có trong cache thì đọc DB một lần cho cả nhóm
+    */
+    private List<RoomBookListDto> loadRoomCards(List<Integer> roomIds, long generation) {
+        List<Integer> missingIds = roomIds.stream().filter(id -> roomSearchCache.getCard(id) == null).toList();
+        Map<Integer, RoomBookListDto> loaded = new HashMap<>();
+        if (!missingIds.isEmpty()) {
+            RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+            Map<Integer, String> coverImages = roomCardLoader.loadCoverImages(missingIds);
+            Map<Integer, List<String>> roomViews = roomCardLoader.loadViewNames(missingIds);
+            for (Integer roomId : missingIds) {
+                int i = c.positionOf(roomId);
+                if (i >= 0) {
+                    loaded.put(roomId, toRoomBookDto(c, i, coverImages, roomViews));
+                }
+            }
+            roomSearchCache.putCards(loaded.values(), generation);
+        }
 
-            // LOẠI BỎ các phòng đã có booking conflict (chỉ giữ lại phòng trống)
-            rooms = rooms.stream()
-                    .filter(x -> !bookedRoomIds.contains(x.getRoomId()))
-                    .collect(Collectors.toList());
+        List<RoomBookListDto> cards = new ArrayList<>();
+        for (Integer roomId : roomIds) {
+            RoomBookListDto card = loaded.containsKey(roomId) ? loaded.get(roomId) : roomSearchCache.getCard(roomId);
+            if (card != null) {
+                cards.add(card);
+            }
         }
-        List<RoomBookListDto> BookList = rooms.stream() //Lấy Listcác phòng đã được lọc field qua Dto
-                .filter(x -> !STOPWORKING.equals(x.getSystemStatus()))
-                .map(x -> {
-                    return toRoomBookDto(x);
-                }).collect(Collectors.toList());
+        return cards;
+    }
 
-        //Paging thủ công
-        int startpage = page * size;
-        int endpage = Math.min(startpage + size, BookList.size());
+    /*
+    Điều kiện lọc phòng phía customer trên ảnh chụp, giống customerRoomSpec nhưng so sánh mã byte và giá long
+    */
+    private IntPredicate customerRoomFilter(RoomCatalogSnapshot.Columns c, BigDecimal minPrice, BigDecimal maxPrice,
+                                            String roomType, Integer floor, String bedType, Set<Integer> unavailableRoomIds,
+                                            BitSet withAttributes) {
+        boolean[] unavailable = c.mask(unavailableRoomIds);
+        byte stopWorking = c.systemStatusCode(STOPWORKING);
+        byte roomTypeCode = roomType == null || roomType.isEmpty() ? RoomCatalogSnapshot.NONE : c.roomTypeCode(roomType);
+        byte bedTypeCode = bedType == null || bedType.isEmpty() ? RoomCatalogSnapshot.NONE : c.bedTypeCode(bedType);
+        long minPriceMinor = minPrice == null ? Long.MIN_VALUE : RoomCatalogSnapshot.toMinor(minPrice);
+        long maxPriceMinor = maxPrice == null ? Long.MAX_VALUE : RoomCatalogSnapshot.toMinor(maxPrice);
+        boolean anyPrice = minPrice == null && maxPrice == null;
+        int floorId = floor == null ? 0 : floor;
+        return i -> c.systemStatus[i] != stopWorking
+                && !unavailable[i]
+                && (withAttributes == null || withAttributes.get(c.roomId[i]))
+                && (roomTypeCode == RoomCatalogSnapshot.NONE || c.roomType[i] == roomTypeCode)
+                && (bedTypeCode == RoomCatalogSnapshot.NONE || c.bedType[i] == bedTypeCode)
+                && (floor == null || c.floorId[i] == floorId)
+                && (anyPrice || (c.priceMinor[i] != Long.MIN_VALUE
+                        && c.priceMinor[i] >= minPriceMinor && c.priceMinor[i] <= maxPriceMinor));
+    }
 
-        List<RoomBookListDto> pageDtos = BookList.subList(startpage, endpage);
+    /*
+    Điều kiện lọc phòng phía customer: bỏ phòng dừng hoạt động và các phòng trong unavailableRoomIds
+    */
+    private Specification<Room> customerRoomSpec(BigDecimal minPrice, BigDecimal maxPrice, String roomType,
+                                                 Integer floor, String bedType, Set<Integer> unavailableRoomIds) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.or(cb.isNull(root.get("systemStatus")), cb.notEqual(root.get("systemStatus"), STOPWORKING)));
+
+            //Filter theo roomType (Loại phòng)
+            if (roomType != null && !roomType.isEmpty()) {
+                predicates.add(cb.equal(root.get("roomType"), roomType));
+            }
+            //Filter theo giá min
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            //Filter theo giá trần
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            //Filter theo tầng
+            if (floor != null) {
+                predicates.add(cb.equal(root.get("floorId"), floor));
+            }
+            //Filter theo bedtype
+            if (bedType != null && !bedType.isEmpty()) {
+                predicates.add(cb.equal(root.get("bedType"), bedType));
+            }
+            // LOẠI BỎ các phòng đã có booking conflict (chỉ giữ lại phòng trống)
+            if (!unavailableRoomIds.isEmpty()) {
+                predicates.add(cb.not(root.get("roomId").in(unavailableRoomIds)));
+            }
 
-        return new PageImpl<>(pageDtos, PageRequest.of(page, size), BookList.size());
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
     }
 
     /*
     //Dto trả về field cho trang hiển thị danh sách phòng cho bên customer booking
     */
-    private RoomBookListDto toRoomBookDto(Room x) {
+    private RoomBookListDto toRoomBookDto(RoomCatalogSnapshot.Columns c, int i, Map<Integer, String> coverImages,
+                                          Map<Integer, List<String>> roomViews) {
         RoomBookListDto dto = new RoomBookListDto();
-        dto.setRoomId(x.getRoomId());
-        dto.setRoomNumber(x.getRoomNumber());
-        dto.setRoomType(x.getRoomType());
-        dto.setPrice(x.getPrice());
-        dto.setRoomDescription(x.getRoomDescription());
-        dto.setRoomViews(getRoomViewList(x.getRoomId()));
-
-        // Lấy ảnh đầu tiên từ database (URL từ Cloudinary)
-        List<RoomImage> images = roomImageRepository.findByRoomId(x.getRoomId());
-        if (images != null && !images.isEmpty()) {
-            dto.setImageRoom(images.get(0).getRoomImageUrl());
-        } else {
-            dto.setImageRoom(null); // Sẽ dùng ảnh mặc định trong HTML
-        }
-
+        dto.setRoomId(c.roomId[i]);
+        dto.setRoomNumber(c.roomNumber[i]);
+        dto.setRoomType(c.roomTypeOf(i));
+        dto.setPrice(c.price[i]);
+        dto.setRoomDescription(c.roomDescription[i]);
+        dto.setRoomViews(roomViews.getOrDefault(c.roomId[i], new ArrayList<>()));
+        // Ảnh đầu tiên (URL từ Cloudinary), null sẽ dùng ảnh mặc định trong HTML
+        dto.setImageRoom(coverImages.get(c.roomId[i]));
         return dto;
     }
 
-    /*
-    Tìm ngày trống thoả mãn điều kiện booking đầu tiên
-    */
-    private LocalDate findNextAvailableDate(Integer roomId, LocalDateTime startFrom) {
-        // Lấy tất cả booking từ startFrom trở đi
-        List<OrderDetail> bookings = orderDetailRepository.findUpcomingBookingsByRoomId(
-                roomId,
-                startFrom
-        );
-
-        // Bắt đầu check từ ngày startFrom
-        LocalDate checkDate = startFrom.toLocalDate();
-
-        // Giới hạn check tối đa 365 ngày (tránh loop vô hạn)
-        for (int i = 0; i < 365; i++) {
-            LocalDateTime checkin = checkDate.atTime(14, 0);
-            LocalDateTime checkout = checkDate.plusDays(1).atTime(12, 0);
-
-            // Check xem có booking nào conflict không
-            boolean hasConflict = bookings.stream().anyMatch(booking ->
-                    booking.getStartDate().isBefore(checkout) &&
-                            booking.getEndDate().isAfter(checkin)
-            );
+    @Override
+    public TapeChartDto getTapeChart(String month, Integer floorId) {
+        YearMonth yearMonth = (month == null || month.isEmpty())
+                ? YearMonth.now()
+                : YearMonth.parse(month, DateTimeFormatter.ofPattern("MM/yyyy"));
+        return roomTapeChart.getMonth(yearMonth, floorId);
+    }
 
-            if (!hasConflict) {
-                return checkDate; // Tìm thấy ngày trống
+    @Override
+    public List<RoomFreeWindowDto> getEarliestFreeWindows(String roomType, String fromDate, Integer nights) {
+        LocalDate from = (fromDate == null || fromDate.isEmpty())
+                ? LocalDate.now()
+                : LocalDate.parse(fromDate, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        // Không ở quá khoảng tìm kiếm, số lớn hơn không bao giờ có phòng trống
+        int length = (nights == null || nights < 1) ? 1 : Math.min(nights, FREE_WINDOW_HORIZON_DAYS);
+
+        Map<Integer, Room> rooms = new LinkedHashMap<>();
+        for (Room room : roomRepository.findAllByIsDeletedFalse()) {
+            if (STOPWORKING.equals(room.getSystemStatus())) {
+                continue;
             }
-
-            checkDate = checkDate.plusDays(1); // Check ngày tiếp theo
+            if (roomType != null && !roomType.isEmpty() && !roomType.equals(room.getRoomType())) {
+                continue;
+            }
+            rooms.put(room.getRoomId(), room);
         }
 
-        return null; // chưa có khách book phòng.
+        // Một lượt quét khoảng trống trên index cho tất cả phòng, không query booking
+        Map<Integer, LocalDate> earliest = roomAvailabilityIndex.findEarliestFreeNights(
+                rooms.keySet(), from, length, from.plusDays(FREE_WINDOW_HORIZON_DAYS));
+
+        List<RoomFreeWindowDto> result = new ArrayList<>();
+        earliest.forEach((roomId, checkIn) -> {
+            Room room = rooms.get(roomId);
+            result.add(new RoomFreeWindowDto(roomId, room.getRoomNumber(), room.getRoomType(), room.getBedType(),
+                    room.getPrice(), checkIn, checkIn.plusDays(length)));
+        });
+        // Phòng trống sớm nhất lên trước, cùng ngày thì phòng rẻ hơn lên trước
+        result.sort(Comparator.comparing(RoomFreeWindowDto::getCheckIn)
+                .thenComparing(RoomFreeWindowDto::getPrice, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
     }
 
     /*
@@ -458,9 +606,12 @@ public class RoomServiceImpl implements RoomService {
     */
     @Override
     public List<RoomListDto> getRoomList() {
-        return roomRepository.findAllByIsDeletedFalse().stream()
-                .map(this::toListDto)
-                .collect(Collectors.toList());
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+        List<RoomListDto> rooms = new ArrayList<>();
+        for (int i : c.select(c.order(null, false), i -> !c.deleted[i])) {
+            rooms.add(toListDto(c, i));
+        }
+        return rooms;
     }
 
     /*
@@ -470,137 +621,57 @@ public class RoomServiceImpl implements RoomService {
     public Page<RoomListDto> getRoomListForManagement(String search, String roomType, String status, String systemstatus,
                                                       Integer floor, Double size, BigDecimal minPrice,
                                                       BigDecimal maxPrice, String sortBy, int page, int pageSize) {
-        List<Room> rooms = roomRepository.findAllByIsDeletedFalse();
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+        String pattern = search != null && !search.trim().isEmpty() ? search.trim().toLowerCase() : null;
+        byte roomTypeCode = roomType != null && !roomType.isEmpty() ? c.roomTypeCode(roomType) : RoomCatalogSnapshot.NONE;
+        byte systemStatusCode = systemstatus != null && !systemstatus.isEmpty()
+                ? c.systemStatusCode(systemstatus) : RoomCatalogSnapshot.NONE;
+        byte statusCode = status != null && !status.isEmpty() ? c.statusCode(status) : RoomCatalogSnapshot.NONE;
+        long minPriceMinor = minPrice == null ? Long.MIN_VALUE : RoomCatalogSnapshot.toMinor(minPrice);
+        long maxPriceMinor = maxPrice == null ? Long.MAX_VALUE : RoomCatalogSnapshot.toMinor(maxPrice);
+        boolean anyPrice = minPrice == null && maxPrice == null;
+        int floorNumber = floor == null ? 0 : floor;
+        double sizeValue = size == null ? 0 : size;
+
+        IntPredicate filter = i -> !c.deleted[i]
+                // Filter theo loại phòng, tình trạng phòng, trạng thái: so sánh mã byte
+                && (roomTypeCode == RoomCatalogSnapshot.NONE || c.roomType[i] == roomTypeCode)
+                && (systemStatusCode == RoomCatalogSnapshot.NONE || c.systemStatus[i] == systemStatusCode)
+                && (statusCode == RoomCatalogSnapshot.NONE || c.status[i] == statusCode)
+                // Filter theo tầng (số tầng) và diện tích đã được ghép sẵn vào ảnh chụp
+                && (floor == null || c.floorNumber[i] == floorNumber)
+                && (size == null || c.sizeValue[i] == sizeValue)
+                && (anyPrice || (c.priceMinor[i] != Long.MIN_VALUE
+                        && c.priceMinor[i] >= minPriceMinor && c.priceMinor[i] <= maxPriceMinor))
+                // Filter theo search (số phòng)
+                && (pattern == null || (c.roomNumber[i] != null && c.roomNumber[i].toLowerCase().contains(pattern)));
 
-        // Filter theo search (số phòng)
-        if (search != null && !search.trim().isEmpty()) {
-            String searchLower = search.trim().toLowerCase();
-            rooms = rooms.stream()
-                    .filter(x -> x.getRoomNumber().toLowerCase().contains(searchLower))
-                    .collect(Collectors.toList());
-        }
-        // Filter theo loại phòng
-        if (roomType != null && !roomType.isEmpty()) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getRoomType().equals(roomType))
-                    .collect(Collectors.toList());
-        }
-        // Filter theo Tình trạng phòng
-        if (systemstatus != null && !systemstatus.isEmpty()) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getSystemStatus().equals(systemstatus))
-                    .collect(Collectors.toList());
-        }
-        // Filter theo trạng thái
-        if (status != null && !status.isEmpty()) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getStatus().equals(status))
-                    .collect(Collectors.toList());
-        }
-        // Filter theo tầng
-        if (floor != null) {
-            rooms = rooms.stream()
-                    .filter(x -> {
-                        Integer roomFloorId = x.getFloorId();
-                        if (roomFloorId == null) return false;
-                        return floorRepository.findById(roomFloorId)
-                                .map(f -> f.getFloorNumber().equals(floor))
-                                .orElse(false);
-                    })
-                    .collect(Collectors.toList());
-        }
-        // Filter theo diện tích
-        if (size != null) {
-            rooms = rooms.stream()
-                    .filter(x -> {
-                        Integer roomSizeId = x.getSizeId();
-                        if (roomSizeId == null) return false;
-                        try {
-                            Size sizeEntity = sizeService.getSizeById(roomSizeId);
-                            return sizeEntity != null && sizeEntity.getSize().equals(size);
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        }
-        // Filter theo giá min
-        if (minPrice != null) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getPrice().compareTo(minPrice) >= 0)
-                    .collect(Collectors.toList());
-        }
-        // Filter theo giá max
-        if (maxPrice != null) {
-            rooms = rooms.stream()
-                    .filter(x -> x.getPrice().compareTo(maxPrice) <= 0)
-                    .collect(Collectors.toList());
-        }
         // Sort
+        int[] order = c.order(null, false);
         if (sortBy != null && !sortBy.isEmpty()) {
             String[] sortParams = sortBy.split(",");
-            String field = sortParams[0];
-            String direction = sortParams.length > 1 ? sortParams[1] : "asc";
-
-            Comparator<Room> comparator = null;
-
-            if ("roomNumber".equals(field)) {
-                // So sánh theo số, không phải String
-                comparator = Comparator.comparingInt(r -> Integer.parseInt(r.getRoomNumber()));
-            } else if ("price".equals(field)) {
-                comparator = Comparator.comparing(Room::getPrice);
-            }
-
-            if (comparator != null) {
-                if ("desc".equals(direction)) {
-                    comparator = comparator.reversed();
-                }
-                rooms.sort(comparator);
-            }
-        }
-        // Convert to DTO
-        List<RoomListDto> roomDtos = rooms.stream()
-                .map(this::toListDto)
-                .collect(Collectors.toList());
-
-        // Pagination thủ công
-        int startPage = page * pageSize;
-        int endPage = Math.min(startPage + pageSize, roomDtos.size());
-
-        List<RoomListDto> pagedDtos = roomDtos.subList(startPage, endPage);
-
-        return new PageImpl<>(pagedDtos, PageRequest.of(page, pageSize), roomDtos.size());
-    }
-
-    private RoomListDto toListDto(Room room) {
-        // Query floor number từ repository
-        Integer floorNumber = null;
-        if (room.getFloorId() != null) {
-            floorNumber = floorRepository.findById(room.getFloorId())
-                    .map(floor -> floor.getFloorNumber())
-                    .orElse(null);
+            // roomNumber so sánh theo số (cột room_number_sort), không phải String
+            order = c.order(sortParams[0], sortParams.length > 1 && "desc".equals(sortParams[1]));
         }
 
-        // Query size từ repository
-        Double sizeValue = null;
-        if (room.getSizeId() != null) {
-            try {
-                Size sizeEntity = sizeService.getSizeById(room.getSizeId());
-                sizeValue = sizeEntity != null ? sizeEntity.getSize() : null;
-            } catch (Exception e) {
-                sizeValue = null;
-            }
+        RoomCatalogSnapshot.Slice slice = c.page(order, filter, page, pageSize);
+        List<RoomListDto> rooms = new ArrayList<>();
+        for (Integer roomId : slice.roomIds()) {
+            rooms.add(toListDto(c, c.positionOf(roomId)));
         }
+        return new PageImpl<>(rooms, PageRequest.of(page, pageSize), slice.total());
+    }
 
+    private RoomListDto toListDto(RoomCatalogSnapshot.Columns c, int i) {
         return new RoomListDto(
-                room.getRoomId(),
-                room.getRoomNumber(),
-                room.getRoomType(),
-                floorNumber,
-                sizeValue,
-                room.getPrice(),
-                room.getStatus(),
-                room.getSystemStatus()
+                c.roomId[i],
+                c.roomNumber[i],
+                c.roomTypeOf(i),
+                c.floorNumber[i] == Integer.MIN_VALUE ? null : c.floorNumber[i],
+                Double.isNaN(c.sizeValue[i]) ? null : c.sizeValue[i],
+                c.price[i],
+                c.statusOf(i),
+                c.systemStatusOf(i)
         );
     }
 
@@ -736,6 +807,8 @@ public class RoomServiceImpl implements RoomService {
     @Override
     public void DeleteRoom(Integer id) {
         roomRepository.softDeleteById(id);
+        // Câu UPDATE hàng loạt không đi qua entity listener
+        eventPublisher.publishEvent(new RoomCatalogChangedEvent(id));
     }
 
     private String validateRoomNumber(String roomNumber, Integer floorId, Integer sizeId, String roomType, String bedType, BigDecimal price, Integer roomId) {
@@ -844,13 +917,10 @@ public class RoomServiceImpl implements RoomService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void incrementView(Integer roomId) {
-        Room room = roomRepository.findById(roomId).orElse(null);
-        if (room != null) {
-            Integer currentView = room.getView() != null ? room.getView() : 0;
-            room.setView(currentView + 1);
-            roomRepository.save(room);
-        }
+        // Chỉ cộng LongAdder trong bộ nhớ, ghi xuống DB theo batch vài giây một lần, không load entity
+        roomDetailComposer.recordView(roomId);
     }
 
     @Override
@@ -882,33 +952,28 @@ public class RoomServiceImpl implements RoomService {
             return new ListRoomResponse(Collections.emptyList());
         }
 
+        // Tầng và diện tích đọc 1 lần cho cả danh sách thay vì 2 query mỗi phòng
+        Map<Integer, Integer> floorNumbers = new HashMap<>();
+        for (Floor floor : floorRepository.findAll()) {
+            floorNumbers.put(floor.getFloorId(), floor.getFloorNumber());
+        }
+        Map<Integer, Double> sizeValues = new HashMap<>();
+        for (Size size : sizeRepository.findAll()) {
+            sizeValues.put(size.getSizeId(), size.getSize());
+        }
+
         List<RoomResponseDto> roomDtos = rooms.stream()
-                .map(this::buildRoomResponse)
+                .map(room -> buildRoomResponse(room, floorNumbers, sizeValues))
                 .collect(Collectors.toList());
 
         return new ListRoomResponse(roomDtos);
     }
 
-    private RoomResponseDto buildRoomResponse(Room room) {
+    private RoomResponseDto buildRoomResponse(Room room, Map<Integer, Integer> floorNumbers, Map<Integer, Double> sizeValues) {
         if (room == null) return null;
 
-        // Query floor và size từ repository
-        Integer floorNumber = null;
-        if (room.getFloorId() != null) {
-            floorNumber = floorRepository.findById(room.getFloorId())
-                    .map(floor -> floor.getFloorNumber())
-                    .orElse(null);
-        }
-
-        Double size = null;
-        if (room.getSizeId() != null) {
-            try {
-                Size sizeEntity = sizeService.getSizeById(room.getSizeId());
-                size = sizeEntity != null ? sizeEntity.getSize() : null;
-            } catch (Exception e) {
-                size = null;
-            }
-        }
+        Integer floorNumber = room.getFloorId() != null ? floorNumbers.get(room.getFloorId()) : null;
+        Double size = room.getSizeId() != null ? sizeValues.get(room.getSizeId()) : null;
 
         return RoomResponseDto.builder()
                 .roomId(room.getRoomId() != null ? room.getRoomId().longValue() : null)
@@ -1000,9 +1065,12 @@ public class RoomServiceImpl implements RoomService {
 
         // Xóa order details liên quan đến room này
         roomRepository.deleteOrderDetailsByRoomId(roomId);
+        // Native delete không đi qua entity listener nên phải tự báo cho index
+        eventPublisher.publishEvent(new RoomAvailabilityChangedEvent(roomId, null, null, null, null));
 
         // Cuối cùng xóa room
         roomRepository.hardDeleteRoom(roomId);
+        eventPublisher.publishEvent(new RoomCatalogChangedEvent(roomId));
         log.info("Hard deleted room with ID: {}", roomId);
     }
 
@@ -1015,20 +1083,33 @@ public class RoomServiceImpl implements RoomService {
 
     @Override
     public List<RoomHomepageResponseDto> getTop3Rooms() {
-        List<Room> rooms = roomRepository.findTop3ByOrderBySoldDesc();
+        return getPopularRooms("sold", 3);
+    }
+
+    @Override
+    public List<RoomHomepageResponseDto> getPopularRooms(String ranking, int limit) {
+        RoomPopularityBoard.Ranking by = switch (ranking == null ? "" : ranking.toLowerCase()) {
+            case "viewed" -> RoomPopularityBoard.Ranking.VIEWED;
+            case "trending" -> RoomPopularityBoard.Ranking.TRENDING;
+            default -> RoomPopularityBoard.Ranking.SOLD;
+        };
+        List<Integer> roomIds = roomPopularityBoard.top(by,
+                Math.max(1, Math.min(limit, RoomPopularityBoard.CAPACITY)));
+        Map<Integer, String> coverImages = roomCardLoader.loadCoverImages(roomIds);
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
         List<RoomHomepageResponseDto> results = new ArrayList<>();
 
-        for (Room room : rooms) {
-            RoomHomepageResponseDto dto = new RoomHomepageResponseDto();
-            dto.setRoomId(room.getRoomId());
-            dto.setPrice(room.getPrice());
-            dto.setRoomType(room.getRoomType());
-            dto.setRoomDescription(room.getRoomDescription());
-
-            List<RoomImage> roomImages = roomImageRepository.findByRoomId(room.getRoomId());
-            if (roomImages != null && !roomImages.isEmpty()) {
-                dto.setImageRoom(roomImages.get(0).getRoomImageUrl());
+        for (Integer roomId : roomIds) {
+            int i = c.positionOf(roomId);
+            if (i < 0) {
+                continue;
             }
+            RoomHomepageResponseDto dto = new RoomHomepageResponseDto();
+            dto.setRoomId(roomId);
+            dto.setPrice(c.price[i]);
+            dto.setRoomType(c.roomTypeOf(i));
+            dto.setRoomDescription(c.roomDescription[i]);
+            dto.setImageRoom(coverImages.get(roomId));
 
             results.add(dto);
         }
@@ -1038,51 +1119,16 @@ public class RoomServiceImpl implements RoomService {
 
 
     @Override
+    // Không mở transaction: các phần của trang đọc song song, mỗi phần tự lấy connection
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public RoomDetailResponseDto getRoomDetailById(Integer roomId) {
-        Room room = roomRepository.findByRoomId(roomId);
-        if (room == null) {
-            return null;
-        }
-
-        // Lấy thông tin kích thước phòng (size)
-        Size size;
-        try {
-            size = sizeService.getSizeById(room.getSizeId());
-        } catch (Exception e) {
-            size = null;
-        }
-
-        // Tạo DTO trả về
-        RoomDetailResponseDto dto = new RoomDetailResponseDto();
-        dto.setRoomId(room.getRoomId());
-        dto.setRoomNumber(room.getRoomNumber());
-        dto.setRoomType(room.getRoomType());
-        dto.setBedType(room.getBedType());
-        dto.setFloorNumber(room.getFloorId());
-        dto.setSize(size != null ? size.getSize() : null);
-        dto.setPrice(room.getPrice());
-        dto.setStatus(room.getStatus());
-        dto.setSold(room.getSold());
-        dto.setView(room.getView());
-        dto.setRoomDescription(room.getRoomDescription());
-        dto.setMaxSizePeople(room.getMaxSizePeople());
-
-        List<RoomImage> roomImages = roomImageRepository.findByRoomId(room.getRoomId());
-        List<String> imageUrls = new ArrayList<>();
-
-        if (roomImages != null && !roomImages.isEmpty()) {
-            for (RoomImage roomImage : roomImages) {
-                imageUrls.add(roomImage.getRoomImageUrl());
-            }
-        }
-
-        dto.setImages(imageUrls);
-
-        // Lấy danh sách room views
-        List<String> roomViews = getRoomViewList(room.getRoomId());
-        dto.setRoomViews(roomViews);
+        return roomDetailComposer.loadDetail(roomId);
+    }
 
-        return dto;
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public RoomDetailPageDto getRoomDetailPage(Integer roomId) {
+        return roomDetailComposer.loadPage(roomId);
     }
 
     @Override
@@ -1098,11 +1144,11 @@ public class RoomServiceImpl implements RoomService {
         LocalDateTime disableEndDateTime = endDateParsed.atTime(12, 0); // 12:00
 
         // Tìm tất cả bookings bị TRÙNG với khoảng thời gian dừng hoạt động
-        // Logic: booking.startDate < disableEndDate AND booking.endDate > disableStartDate
+        // Logic: booking có ít nhất một đêm trong [ngày bắt đầu, ngày kết thúc)
         List<OrderDetail> bookingsToCancel = orderDetailRepository.findBookingsToCancel(
                 roomId,
-                disableStartDateTime,
-                disableEndDateTime
+                startDateParsed,
+                endDateParsed
         );
 
         log.info("Found {} bookings overlapping with disable period", bookingsToCancel.size());
@@ -0,0 +1,14 @@
+package hotel.service.room;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi một phòng được thanh toán thành công (mỗi order detail chuyển sang RESERVED là một lượt bán).
+ * Bên nhận nên xử lý sau commit để không đếm các thanh toán bị rollback.
+ */
+@Getter
+@AllArgsConstructor
+public class RoomSoldEvent {
+	private final Integer roomId;
+}
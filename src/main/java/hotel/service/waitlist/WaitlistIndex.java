@@ -0,0 +1,155 @@
+package hotel.service.waitlist;
+
+import hotel.db.entity.Waitlist;
+import hotel.db.repository.waitlist.WaitlistRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static hotel.db.enums.WaitlistStatus.WAITING;
+
+/**
+ * Index khoảng thời gian cho các đăng ký chờ còn hiệu lực, chia theo khoá "phòng" hoặc "loại phòng".
+ * Mỗi khoá giữ một TreeMap đêm -> các đăng ký cần đêm đó (giống sổ room_nights), nên tìm đăng ký
+ * chồng lên một khoảng vừa được giải phóng chỉ duyệt đúng các đêm trong khoảng, không quét cả danh sách chờ.
+ * Đăng ký giới hạn số đêm (WaitlistServiceImpl.MAX_NIGHTS) nên số ô của mỗi đăng ký nhỏ.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WaitlistIndex {
+
+	private final WaitlistRepository waitlistRepository;
+
+	// Mọi truy cập đều trong synchronized(this)
+	private final Map<String, NavigableMap<LocalDate, Set<Integer>>> nightsByKey = new HashMap<>();
+	private final Map<Integer, Entry> entries = new HashMap<>();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		nightsByKey.clear();
+		entries.clear();
+		for (Waitlist waitlist : waitlistRepository.findByStatusAndIsDeletedFalseAndEndDateAfter(WAITING, LocalDate.now())) {
+			add(Entry.of(waitlist));
+		}
+		log.debug("Built waitlist index with {} entries", entries.size());
+	}
+
+	public synchronized void add(Entry entry) {
+		remove(entry.waitlistId());
+		entries.put(entry.waitlistId(), entry);
+		NavigableMap<LocalDate, Set<Integer>> nights = nightsByKey.computeIfAbsent(entry.key(), key -> new TreeMap<>());
+		for (LocalDate night = entry.startDate(); night.isBefore(entry.endDate()); night = night.plusDays(1)) {
+			nights.computeIfAbsent(night, n -> new LinkedHashSet<>()).add(entry.waitlistId());
+		}
+	}
+
+	/**
+	 * Bỏ đăng ký khỏi index, trả về true nếu nó còn trong index (dùng để "giành" đăng ký trước khi gửi thông báo).
+	 */
+	public synchronized boolean remove(Integer waitlistId) {
+		Entry entry = entries.remove(waitlistId);
+		if (entry == null) {
+			return false;
+		}
+		NavigableMap<LocalDate, Set<Integer>> nights = nightsByKey.get(entry.key());
+		if (nights != null) {
+			nights.subMap(entry.startDate(), true, entry.endDate(), false).values().removeIf(ids -> {
+				ids.remove(waitlistId);
+				return ids.isEmpty();
+			});
+			if (nights.isEmpty()) {
+				nightsByKey.remove(entry.key());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Các đăng ký cho phòng roomId hoặc cho loại phòng roomType cần ít nhất một đêm trong [from, to).
+	 * from / to null nghĩa là mọi đêm (thay đổi hàng loạt của phòng).
+	 */
+	public synchronized List<Entry> findOverlapping(Integer roomId, String roomType, LocalDate from, LocalDate to) {
+		Set<Integer> ids = new LinkedHashSet<>();
+		collect(roomKey(roomId), from, to, ids);
+		if (roomType != null) {
+			collect(typeKey(roomType), from, to, ids);
+		}
+		List<Entry> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			result.add(entries.get(id));
+		}
+		return result;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	// Đăng ký hết hạn khi đêm cuối đã qua; các ô đêm quá khứ bỏ luôn
+	@Scheduled(cron = "0 5 0 * * *")
+	public synchronized void evictExpired() {
+		LocalDate today = LocalDate.now();
+		entries.values().stream()
+				.filter(entry -> !entry.endDate().isAfter(today))
+				.map(Entry::waitlistId)
+				.toList()
+				.forEach(this::remove);
+		for (NavigableMap<LocalDate, Set<Integer>> nights : nightsByKey.values()) {
+			nights.headMap(today, false).clear();
+		}
+		nightsByKey.values().removeIf(Map::isEmpty);
+	}
+
+	private void collect(String key, LocalDate from, LocalDate to, Set<Integer> ids) {
+		NavigableMap<LocalDate, Set<Integer>> nights = nightsByKey.get(key);
+		if (nights == null) {
+			return;
+		}
+		NavigableMap<LocalDate, Set<Integer>> range = nights;
+		if (from != null && to != null) {
+			if (!from.isBefore(to)) {
+				return;
+			}
+			range = nights.subMap(from, true, to, false);
+		}
+		range.values().forEach(ids::addAll);
+	}
+
+	private static String roomKey(Integer roomId) {
+		return "room:" + roomId;
+	}
+
+	private static String typeKey(String roomType) {
+		return "type:" + roomType;
+	}
+
+	/**
+	 * Bản sao bất biến của một đăng ký chờ; đúng một trong roomId / roomType khác null.
+	 */
+	public record Entry(Integer waitlistId, Integer userId, Integer roomId, String roomType,
+						LocalDate startDate, LocalDate endDate) {
+
+		public static Entry of(Waitlist waitlist) {
+			return new Entry(waitlist.getWaitlistId(), waitlist.getUserId(), waitlist.getRoomId(),
+					waitlist.getRoomType(), waitlist.getStartDate(), waitlist.getEndDate());
+		}
+
+		private String key() {
+			return roomId != null ? roomKey(roomId) : typeKey(roomType);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package hotel.service.waitlist;
+
+import hotel.db.entity.User;
+import hotel.db.entity.Waitlist;
+import hotel.db.repository.user.UserRepository;
+import hotel.db.repository.waitlist.WaitlistRepository;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import hotel.service.availability.RoomAvailabilityIndex;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import hotel.service.common.CommonService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+import static hotel.db.enums.WaitlistStatus.NOTIFIED;
+import static hotel.db.enums.WaitlistStatus.WAITING;
+
+/**
+ * Ghép lịch phòng vừa thay đổi với danh sách chờ.
+ * Mọi thay đổi booking / bảo trì (giỏ hàng hết hạn, huỷ đơn, xoá lịch bảo trì...) đều phát RoomAvailabilityChangedEvent;
+ * sau khi RoomAvailabilityIndex đã cập nhật (Order 3), lấy các đăng ký chồng lên khoảng ngày đó từ WaitlistIndex
+ * và chỉ báo cho đăng ký nào mà phòng giờ trống trọn khoảng của họ. Booking mới cũng phát event nhưng không khớp được.
+ * Gửi thông báo (cập nhật DB + email) chạy trên một thread riêng qua hàng đợi giới hạn, không nằm trong request.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WaitlistNotifier {
+
+	private static final int QUEUE_SIZE = 1000;
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+	private final WaitlistIndex waitlistIndex;
+	private final RoomAvailabilityIndex roomAvailabilityIndex;
+	private final RoomCatalogSnapshot roomCatalogSnapshot;
+	private final WaitlistRepository waitlistRepository;
+	private final UserRepository userRepository;
+	private final CommonService commonService;
+	private final PlatformTransactionManager transactionManager;
+
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+		Thread thread = new Thread(runnable, "waitlist-notifier");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@Order(3)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+		Integer roomId = event.getRoomId();
+		RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+		int i = c.positionOf(roomId);
+		if (i < 0 || c.deleted[i] || c.systemStatus[i] == c.systemStatusCode(STOPWORKING)) {
+			return;
+		}
+		// Một đêm tính theo ngày nhận phòng: [start, end) chiếm các đêm start .. end - 1
+		LocalDate from = event.getStartDate() == null ? null : event.getStartDate().toLocalDate();
+		LocalDate to = event.getEndDate() == null ? null : event.getEndDate().toLocalDate();
+		if (from != null && from.isBefore(LocalDate.now())) {
+			from = LocalDate.now();
+		}
+
+		for (WaitlistIndex.Entry entry : waitlistIndex.findOverlapping(roomId, c.roomTypeOf(i), from, to)) {
+			// remove() thành công nghĩa là chưa có event nào khác giành đăng ký này
+			if (roomAvailabilityIndex.isAvailable(roomId, entry.startDate(), entry.endDate())
+					&& waitlistIndex.remove(entry.waitlistId())) {
+				enqueue(entry, roomId, c.roomNumber[i]);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	private void enqueue(WaitlistIndex.Entry entry, Integer roomId, String roomNumber) {
+		try {
+			executor.execute(() -> sendNotification(entry, roomId, roomNumber));
+		} catch (RejectedExecutionException e) {
+			// Hàng đợi đầy: trả đăng ký về index để lần giải phóng sau báo tiếp
+			waitlistIndex.add(entry);
+			log.warn("Waitlist notification queue is full, keeping entry {} waiting", entry.waitlistId());
+		}
+	}
+
+	private void sendNotification(WaitlistIndex.Entry entry, Integer roomId, String roomNumber) {
+		Boolean claimed;
+		try {
+			claimed = new TransactionTemplate(transactionManager).execute(status -> {
+				Waitlist waitlist = waitlistRepository.findById(entry.waitlistId()).orElse(null);
+				if (waitlist == null || !WAITING.equals(waitlist.getStatus()) || Boolean.TRUE.equals(waitlist.getIsDeleted())) {
+					return false;
+				}
+				waitlist.setStatus(NOTIFIED);
+				waitlist.setNotifiedRoomId(roomId);
+				waitlist.setNotifiedAt(LocalDateTime.now());
+				waitlistRepository.save(waitlist);
+				return true;
+			});
+		} catch (RuntimeException e) {
+			waitlistIndex.add(entry);
+			log.warn("Could not mark waitlist entry {} as notified", entry.waitlistId(), e);
+			return;
+		}
+		if (!Boolean.TRUE.equals(claimed)) {
+			return;
+		}
+		try {
+			User user = userRepository.findById(entry.userId()).orElse(null);
+			if (user != null && user.getEmail() != null) {
+				commonService.sendWaitlistAvailableEmail(user.getEmail(), user.getFirstName() + " " + user.getLastName(),
+						roomNumber, entry.startDate().format(DATE_FORMAT), entry.endDate().format(DATE_FORMAT));
+			}
+			log.info("Notified waitlist entry {} that room {} is free", entry.waitlistId(), roomId);
+		} catch (RuntimeException e) {
+			// Đã ghi NOTIFIED, khách vẫn thấy trạng thái trong danh sách chờ của mình
+			log.warn("Could not send waitlist email for entry {}", entry.waitlistId(), e);
+		}
+	}
+}
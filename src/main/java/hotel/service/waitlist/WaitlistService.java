@@ -0,0 +1,17 @@
+package hotel.service.waitlist;
+
+import hotel.db.dto.waitlist.WaitlistRequest;
+import hotel.db.entity.Waitlist;
+import hotel.util.MessageResponse;
+
+import java.util.List;
+
+public interface WaitlistService {
+
+    // Đăng ký chờ một phòng hoặc một loại phòng cho khoảng ngày đang kín
+    MessageResponse join(Integer userId, WaitlistRequest request);
+
+    MessageResponse cancel(Integer userId, Integer waitlistId);
+
+    List<Waitlist> getMyWaitlist(Integer userId);
+}
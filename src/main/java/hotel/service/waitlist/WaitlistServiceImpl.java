@@ -0,0 +1,112 @@
+package hotel.service.waitlist;
+
+import hotel.db.dto.waitlist.WaitlistRequest;
+import hotel.db.entity.Waitlist;
+import hotel.db.enums.RoomType;
+import hotel.db.repository.waitlist.WaitlistRepository;
+import hotel.service.availability.RoomAvailabilityIndex;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import hotel.util.MessageResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+import static hotel.db.enums.WaitlistStatus.CANCELLED;
+import static hotel.db.enums.WaitlistStatus.WAITING;
+
+@Service
+@RequiredArgsConstructor
+public class WaitlistServiceImpl implements WaitlistService {
+
+    // Giới hạn số đêm của một đăng ký (mỗi đêm là một ô trong WaitlistIndex) và số đăng ký đang chờ của một khách
+    static final int MAX_NIGHTS = 30;
+    private static final int MAX_ACTIVE_PER_USER = 10;
+
+    private final WaitlistRepository waitlistRepository;
+    private final WaitlistIndex waitlistIndex;
+    private final RoomCatalogSnapshot roomCatalogSnapshot;
+    private final RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Override
+    public MessageResponse join(Integer userId, WaitlistRequest request) {
+        if (request.getCheckIn() == null || request.getCheckOut() == null) {
+            return new MessageResponse(false, "Vui lòng chọn ngày nhận phòng và trả phòng");
+        }
+        if (request.getCheckIn().isBefore(LocalDate.now())) {
+            return new MessageResponse(false, "Ngày nhận phòng không được ở quá khứ");
+        }
+        long nights = ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+        if (nights <= 0) {
+            return new MessageResponse(false, "Ngày trả phòng phải sau ngày nhận phòng");
+        }
+        if (nights > MAX_NIGHTS) {
+            return new MessageResponse(false, "Chỉ đăng ký chờ tối đa " + MAX_NIGHTS + " đêm");
+        }
+        boolean byRoom = request.getRoomId() != null;
+        if (byRoom == (request.getRoomType() != null && !request.getRoomType().isBlank())) {
+            return new MessageResponse(false, "Vui lòng chọn một phòng hoặc một loại phòng");
+        }
+        if (waitlistRepository.countByUserIdAndStatusAndIsDeletedFalse(userId, WAITING) >= MAX_ACTIVE_PER_USER) {
+            return new MessageResponse(false, "Bạn chỉ được chờ tối đa " + MAX_ACTIVE_PER_USER + " phòng cùng lúc");
+        }
+
+        RoomCatalogSnapshot.Columns c = roomCatalogSnapshot.columns();
+        byte stopWorking = c.systemStatusCode(STOPWORKING);
+        if (byRoom) {
+            int i = c.positionOf(request.getRoomId());
+            if (i < 0 || c.deleted[i] || c.systemStatus[i] == stopWorking) {
+                return new MessageResponse(false, "Phòng không tồn tại");
+            }
+            if (roomAvailabilityIndex.isAvailable(request.getRoomId(), request.getCheckIn(), request.getCheckOut())) {
+                return new MessageResponse(false, "Phòng đang trống trong khoảng ngày này, bạn có thể đặt ngay");
+            }
+        } else {
+            if (!Arrays.asList(RoomType.ALL).contains(request.getRoomType())) {
+                return new MessageResponse(false, "Loại phòng không hợp lệ");
+            }
+            byte roomType = c.roomTypeCode(request.getRoomType());
+            for (int i = 0; i < c.size; i++) {
+                if (c.roomType[i] == roomType && !c.deleted[i] && c.systemStatus[i] != stopWorking
+                        && roomAvailabilityIndex.isAvailable(c.roomId[i], request.getCheckIn(), request.getCheckOut())) {
+                    return new MessageResponse(false, "Loại phòng này đang còn phòng trống, bạn có thể đặt ngay");
+                }
+            }
+        }
+
+        Waitlist waitlist = new Waitlist();
+        waitlist.setUserId(userId);
+        waitlist.setRoomId(byRoom ? request.getRoomId() : null);
+        waitlist.setRoomType(byRoom ? null : request.getRoomType());
+        waitlist.setStartDate(request.getCheckIn());
+        waitlist.setEndDate(request.getCheckOut());
+        waitlist.setStatus(WAITING);
+        waitlist = waitlistRepository.save(waitlist);
+        waitlistIndex.add(WaitlistIndex.Entry.of(waitlist));
+        return new MessageResponse(true, "Đã thêm vào danh sách chờ, chúng tôi sẽ báo qua email khi có phòng trống");
+    }
+
+    @Override
+    public MessageResponse cancel(Integer userId, Integer waitlistId) {
+        Waitlist waitlist = waitlistRepository.findById(waitlistId).orElse(null);
+        if (waitlist == null || !waitlist.getUserId().equals(userId) || Boolean.TRUE.equals(waitlist.getIsDeleted())) {
+            return new MessageResponse(false, "Không tìm thấy đăng ký chờ");
+        }
+        if (!WAITING.equals(waitlist.getStatus())) {
+            return new MessageResponse(false, "Đăng ký này không còn ở trạng thái chờ");
+        }
+        waitlist.setStatus(CANCELLED);
+        waitlistRepository.save(waitlist);
+        waitlistIndex.remove(waitlistId);
+        return new MessageResponse(true, "Đã huỷ đăng ký chờ");
+    }
+
+    @Override
+    public List<Waitlist> getMyWaitlist(Integer userId) {
+        return waitlistRepository.findByUserIdAndIsDeletedFalseOrderByCreatedAtDesc(userId);
+    }
+}
@@ -0,0 +1,3 @@
+-- Giỏ hàng và badge giỏ hàng lọc orders theo (user_id, status) rồi join order_details theo order_id
+CREATE INDEX idx_orders_user_status ON orders (user_id, status);
+CREATE INDEX idx_order_details_order ON order_details (order_id);
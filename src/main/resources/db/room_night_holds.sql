@@ -0,0 +1,11 @@
+-- Giữ phòng nhẹ cho chế độ giỏ hàng trong session (app.cart.mode=session):
+-- mỗi đêm được giữ là một dòng room_nights có hold_token (không có order_detail_id) và hết hạn ở hold_expires_at.
+-- Dòng giữ chiếm booking_slot như booking nên unique (room_id, night, booking_slot) vẫn chặn giữ trùng.
+ALTER TABLE room_nights
+    ADD COLUMN hold_token VARCHAR(64) NULL,
+    ADD COLUMN hold_expires_at DATETIME NULL,
+    MODIFY COLUMN booking_slot TINYINT
+        AS (CASE WHEN order_detail_id IS NOT NULL OR hold_token IS NOT NULL THEN 1 END) STORED;
+
+CREATE INDEX idx_room_nights_hold_token ON room_nights (hold_token);
+CREATE INDEX idx_room_nights_hold_expires ON room_nights (hold_expires_at);
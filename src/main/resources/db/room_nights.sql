@@ -0,0 +1,26 @@
+-- Mỗi đêm phòng đã bị giữ là một dòng, unique (room_id, night) chặn đặt trùng phòng giữa nhiều node
+CREATE TABLE room_nights (
+    room_night_id   BIGINT AUTO_INCREMENT PRIMARY KEY,
+    room_id         INT  NOT NULL,
+    night           DATE NOT NULL,
+    order_detail_id INT  NULL,
+    CONSTRAINT uk_room_nights_room_night UNIQUE (room_id, night)
+);
+
+CREATE INDEX idx_room_nights_order_detail ON room_nights (order_detail_id);
+
+-- Backfill các booking còn hiệu lực (booking trùng sẵn có sẽ bị bỏ qua)
+INSERT IGNORE INTO room_nights (room_id, night, order_detail_id)
+WITH RECURSIVE nights AS (
+    SELECT order_detail_id, room_id, DATE(start_date) AS night, DATE(end_date) AS end_night
+    FROM order_details
+    WHERE status NOT IN ('CANCELLED', 'COMPLETED')
+      AND is_deleted = 0
+      AND end_date > NOW()
+      AND DATE(start_date) < DATE(end_date)
+    UNION ALL
+    SELECT order_detail_id, room_id, night + INTERVAL 1 DAY, end_night
+    FROM nights
+    WHERE night + INTERVAL 1 DAY < end_night
+)
+SELECT room_id, night, order_detail_id FROM nights;
@@ -0,0 +1,29 @@
+-- Mở rộng room_nights thành sổ tồn kho theo đêm: thêm lịch bảo trì và trạng thái.
+-- Unique chỉ áp dụng cho booking: booking_slot = 1 với booking, NULL với bảo trì (MySQL cho phép nhiều NULL).
+ALTER TABLE room_nights
+    ADD COLUMN room_maintenance_id INT NULL,
+    ADD COLUMN status VARCHAR(50) NULL,
+    ADD COLUMN booking_slot TINYINT AS (CASE WHEN order_detail_id IS NOT NULL THEN 1 END) STORED;
+
+ALTER TABLE room_nights DROP INDEX uk_room_nights_room_night;
+ALTER TABLE room_nights ADD CONSTRAINT uk_room_nights_booking UNIQUE (room_id, night, booking_slot);
+
+CREATE INDEX idx_room_nights_maintenance ON room_nights (room_maintenance_id);
+
+UPDATE room_nights rn
+JOIN order_details od ON od.order_detail_id = rn.order_detail_id
+SET rn.status = od.status;
+
+-- Lịch bảo trì còn hiệu lực; phần còn lại (booking quá khứ) do RoomNightBackfillJob lấp khi khởi động
+INSERT INTO room_nights (room_id, night, room_maintenance_id, status)
+WITH RECURSIVE nights AS (
+    SELECT maintenance_id, room_id, status, DATE(start_date) AS night, DATE(end_date) AS end_night
+    FROM room_maintenance
+    WHERE is_deleted = 0
+      AND DATE(start_date) < DATE(end_date)
+    UNION ALL
+    SELECT maintenance_id, room_id, status, night + INTERVAL 1 DAY, end_night
+    FROM nights
+    WHERE night + INTERVAL 1 DAY < end_night
+)
+SELECT room_id, night, maintenance_id, status FROM nights;
@@ -0,0 +1,9 @@
+-- Khoá số cho room_number (VARCHAR) để sort/paging phía DB
+ALTER TABLE rooms ADD COLUMN room_number_sort INT NULL;
+
+UPDATE rooms
+SET room_number_sort = CAST(room_number AS UNSIGNED)
+WHERE room_number REGEXP '^[0-9]{1,9}$';
+
+CREATE INDEX idx_rooms_room_number_sort ON rooms (room_number_sort);
+CREATE INDEX idx_rooms_price ON rooms (price);
@@ -0,0 +1,18 @@
+-- Danh sách chờ phòng: khách đăng ký một phòng hoặc một loại phòng cho các đêm [start_date, end_date)
+CREATE TABLE waitlists (
+    waitlist_id      INT AUTO_INCREMENT PRIMARY KEY,
+    user_id          INT         NOT NULL,
+    room_id          INT         NULL,
+    room_type        VARCHAR(50) NULL,
+    start_date       DATE        NOT NULL,
+    end_date         DATE        NOT NULL,
+    status           VARCHAR(20) NOT NULL DEFAULT 'WAITING',
+    notified_room_id INT         NULL,
+    notified_at      DATETIME    NULL,
+    created_at       DATETIME    NULL,
+    updated_at       DATETIME    NULL,
+    is_deleted       BIT(1)      NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_waitlists_status_end ON waitlists (status, end_date);
+CREATE INDEX idx_waitlists_user ON waitlists (user_id, created_at);
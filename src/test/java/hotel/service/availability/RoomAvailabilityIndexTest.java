@@ -0,0 +1,175 @@
+package hotel.service.availability;
+
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.RoomMaintenance;
+import hotel.db.entity.RoomNight;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoomAvailabilityIndexTest {
+
+	private final LocalDate today = LocalDate.now();
+
+	private OrderDetailRepository orderDetailRepository;
+	private RoomMaintenanceRepository roomMaintenanceRepository;
+	private RoomNightRepository roomNightRepository;
+	private RoomAvailabilityIndex index;
+
+	@BeforeEach
+	void setUp() {
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		roomMaintenanceRepository = mock(RoomMaintenanceRepository.class);
+		roomNightRepository = mock(RoomNightRepository.class);
+		index = new RoomAvailabilityIndex(orderDetailRepository, roomMaintenanceRepository, roomNightRepository);
+	}
+
+	@Test
+	void marksBookingMaintenanceAndHoldNightsOnRebuild() {
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any())).thenReturn(List.of(booking(1, 2, 4)));
+		when(roomMaintenanceRepository.findActiveMaintenancesEndingAfter(any())).thenReturn(List.of(maintenance(2, 0, 1)));
+		when(roomNightRepository.findActiveHolds(any())).thenReturn(List.of(hold(3, 5)));
+
+		index.rebuild();
+
+		// Booking chiếm đêm 2, 3; ngày trả phòng (4) vẫn nhận phòng được
+		assertTrue(index.isAvailable(1, day(0), day(2)));
+		assertFalse(index.isAvailable(1, day(3), day(4)));
+		assertTrue(index.isAvailable(1, day(4), day(6)));
+		assertFalse(index.isAvailable(2, day(0), day(1)));
+		assertFalse(index.isAvailable(3, day(5), day(6)));
+		assertTrue(index.isAvailable(4, day(0), day(30)));
+		assertEquals(Set.of(1, 2), index.findUnavailableRoomIds(day(0), day(3)));
+	}
+
+	@Test
+	void countsNightsOfBookingsThatStartedBeforeTheOrigin() {
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any())).thenReturn(List.of(booking(1, -10, 1)));
+
+		index.rebuild();
+
+		assertFalse(index.isAvailable(1, day(0), day(1)));
+		assertTrue(index.isAvailable(1, day(1), day(2)));
+	}
+
+	@Test
+	void refreshReplacesTheNightsOfOneRoom() {
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any())).thenReturn(List.of(booking(1, 2, 4), booking(2, 2, 4)));
+		index.rebuild();
+
+		// Booking của phòng 1 bị huỷ
+		index.refreshRoom(1);
+
+		assertTrue(index.isAvailable(1, day(2), day(4)));
+		assertFalse(index.isAvailable(2, day(2), day(4)));
+	}
+
+	@Test
+	void keepsAChangeThatArrivesWhileARebuildIsReading() {
+		when(orderDetailRepository.findActiveBookingsByRoomId(eq(1), any())).thenReturn(List.of(booking(1, 2, 4)));
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any())).thenAnswer(invocation -> {
+			// Booking được ghi sau khi rebuild đã đọc xong danh sách cũ
+			index.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1, null, null, 10, null));
+			return List.of();
+		});
+
+		index.rebuild();
+
+		assertFalse(index.isAvailable(1, day(2), day(4)));
+	}
+
+	@Test
+	void aLaterRefreshOfTheSameRoomIsNotOverwrittenByAnEarlierRead() throws InterruptedException {
+		Thread[] later = new Thread[1];
+		when(orderDetailRepository.findActiveBookingsByRoomId(eq(1), any()))
+				.thenAnswer(invocation -> {
+					// Booking bị huỷ và lần refresh thứ hai bắt đầu trong lúc lần đầu vẫn đang đọc
+					later[0] = new Thread(() -> index.refreshRoom(1));
+					later[0].start();
+					later[0].join(200);
+					return List.of(booking(1, 2, 4));
+				})
+				.thenReturn(List.of());
+
+		index.refreshRoom(1);
+		later[0].join();
+
+		assertTrue(index.isAvailable(1, day(2), day(4)));
+	}
+
+	@Test
+	void findsTheEarliestGapLongEnoughForTheStay() {
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any()))
+				.thenReturn(List.of(booking(1, 1, 3), booking(1, 4, 6), booking(2, 0, 30)));
+		index.rebuild();
+
+		Map<Integer, LocalDate> earliest = index.findEarliestFreeNights(List.of(1, 2, 3), day(1), 2, day(20));
+
+		// Phòng 1 trống đêm 3 nhưng chỉ một đêm, khoảng hai đêm đầu tiên bắt đầu từ ngày 6; phòng 2 kín cả khoảng
+		assertEquals(Map.of(1, day(6), 3, day(1)), earliest);
+	}
+
+	@Test
+	void findsNoGapForAStayLongerThanTheHorizon() {
+		index.rebuild();
+
+		assertEquals(Map.of(), index.findEarliestFreeNights(List.of(1), day(1), Integer.MAX_VALUE, day(20)));
+		assertEquals(List.of(), index.findCheckInWindows(1, day(1), Integer.MAX_VALUE, day(20)));
+	}
+
+	@Test
+	void listsCheckInWindowsInsideTheHorizon() {
+		when(orderDetailRepository.findActiveBookingsEndingAfter(any())).thenReturn(List.of(booking(1, 3, 5)));
+		index.rebuild();
+
+		List<String> windows = index.findCheckInWindows(1, day(0), 2, day(10)).stream()
+				.map(Arrays::toString)
+				.toList();
+
+		assertEquals(List.of(Arrays.toString(new LocalDate[]{day(0), day(2)}),
+				Arrays.toString(new LocalDate[]{day(5), day(9)})), windows);
+	}
+
+	private LocalDate day(int offset) {
+		return today.plusDays(offset);
+	}
+
+	private OrderDetail booking(int roomId, int from, int to) {
+		OrderDetail booking = new OrderDetail();
+		booking.setRoomId(roomId);
+		booking.setStartDate(day(from).atTime(14, 0));
+		booking.setEndDate(day(to).atTime(12, 0));
+		return booking;
+	}
+
+	private RoomMaintenance maintenance(int roomId, int from, int to) {
+		RoomMaintenance maintenance = new RoomMaintenance();
+		maintenance.setRoomId(roomId);
+		maintenance.setStartDate(day(from).atStartOfDay());
+		maintenance.setEndDate(day(to).atStartOfDay());
+		return maintenance;
+	}
+
+	private RoomNight hold(int roomId, int night) {
+		RoomNight hold = new RoomNight();
+		hold.setRoomId(roomId);
+		hold.setNight(day(night));
+		return hold;
+	}
+}
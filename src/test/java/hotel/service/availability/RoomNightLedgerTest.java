@@ -0,0 +1,78 @@
+package hotel.service.availability;
+
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomNightLedgerTest {
+
+	private OrderDetailRepository orderDetailRepository;
+	private RoomNightRepository roomNightRepository;
+	private RoomNightLedger ledger;
+	private RoomUnavailableDatesCache roomUnavailableDatesCache;
+
+	@BeforeEach
+	void setUp() {
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		roomNightRepository = mock(RoomNightRepository.class);
+		RoomMaintenanceRepository roomMaintenanceRepository = mock(RoomMaintenanceRepository.class);
+		roomUnavailableDatesCache = new RoomUnavailableDatesCache(orderDetailRepository, roomMaintenanceRepository);
+		ledger = new RoomNightLedger(roomNightRepository, orderDetailRepository, roomMaintenanceRepository,
+				mock(PlatformTransactionManager.class), roomUnavailableDatesCache);
+	}
+
+	@Test
+	void retriesAFailedSyncAndQueuesTheRoomForReconciliation() {
+		when(orderDetailRepository.findById(10)).thenThrow(new RuntimeException("connection reset"));
+
+		ledger.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1, null, null, 10, null));
+
+		verify(orderDetailRepository, times(3)).findById(10);
+		verify(roomNightRepository, never()).releaseStaleRowsByRoomId(1);
+
+		ledger.reconcilePending();
+		ledger.reconcilePending();
+
+		verify(roomNightRepository, times(1)).releaseStaleRowsByRoomId(1);
+	}
+
+	@Test
+	void dropsTheCachedCalendarOnceTheRoomIsReconciled() {
+		when(orderDetailRepository.findById(10)).thenThrow(new RuntimeException("connection reset"));
+		ledger.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1, null, null, 10, null));
+		// Lịch được tính từ sổ còn thiếu booking trong lúc chờ đối soát
+		roomUnavailableDatesCache.get(1);
+		roomUnavailableDatesCache.get(1);
+
+		ledger.reconcilePending();
+		roomUnavailableDatesCache.get(1);
+
+		verify(orderDetailRepository, times(2)).findBookingsByRoomAndDateRange(eq(1), any(), any(), any());
+	}
+
+	@Test
+	void keepsTheRoomQueuedWhileReconciliationKeepsFailing() {
+		when(orderDetailRepository.findById(10)).thenReturn(Optional.empty());
+		when(roomNightRepository.deleteByOrderDetailId(10)).thenThrow(new RuntimeException("lock wait timeout"));
+		when(roomNightRepository.releaseStaleRowsByRoomId(1)).thenThrow(new RuntimeException("lock wait timeout"));
+		ledger.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1, null, null, 10, null));
+
+		ledger.reconcilePending();
+		ledger.reconcilePending();
+
+		verify(roomNightRepository, times(2)).releaseStaleRowsByRoomId(1);
+	}
+}
@@ -0,0 +1,166 @@
+package hotel.service.availability;
+
+import hotel.db.dto.room.TapeChartDto;
+import hotel.db.dto.room.TapeChartRowDto;
+import hotel.db.entity.Floor;
+import hotel.db.entity.Room;
+import hotel.db.repository.floor.FloorRepository;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.size.SizeRepository;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomTapeChartTest {
+
+	private static final YearMonth MARCH = YearMonth.of(2026, 3);
+
+	private OrderDetailRepository orderDetailRepository;
+	private RoomTapeChart tapeChart;
+
+	@BeforeEach
+	void setUp() {
+		RoomRepository roomRepository = mock(RoomRepository.class);
+		FloorRepository floorRepository = mock(FloorRepository.class);
+		SizeRepository sizeRepository = mock(SizeRepository.class);
+		when(roomRepository.findAll()).thenReturn(List.of(room(1, "101"), room(2, "102")));
+		Floor floor = new Floor();
+		floor.setFloorId(1);
+		floor.setFloorNumber(1);
+		when(floorRepository.findAll()).thenReturn(List.of(floor));
+
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		tapeChart = new RoomTapeChart(orderDetailRepository,
+				new RoomCatalogSnapshot(roomRepository, floorRepository, sizeRepository));
+	}
+
+	@Test
+	void encodesEachRoomAsRunsWithMaintenanceOverBookings() {
+		segments(
+				new Object[]{1, at(2026, 3, 3), at(2026, 3, 6), "RESERVED", 10, null, "An", "Nguyen"},
+				new Object[]{1, at(2026, 3, 5), at(2026, 3, 8), "MAINTENANCE", null, 7, null, null});
+
+		TapeChartDto chart = tapeChart.getMonth(MARCH, null);
+
+		assertEquals(31, chart.getDays());
+		assertEquals(List.of("FREE", "RESERVED", "MAINTENANCE"), chart.getStates());
+		assertEquals(List.of(1, 2), chart.getRows().stream().map(TapeChartRowDto::getRoomId).toList());
+		// Đêm 3, 4 của booking; đêm 5, 6, 7 bảo trì đè lên
+		assertEquals(List.of("[2, 0]", "[2, 1, 10]", "[3, 2, 7]", "[24, 0]"), runs(chart.getRows().get(0)));
+		assertEquals(List.of("[31, 0]"), runs(chart.getRows().get(1)));
+		assertEquals("An Nguyen", chart.getGuests().get(10));
+	}
+
+	@Test
+	void keepsTheMonthForEventsOutsideItAndRereadsTheRoomForOverlappingOnes() {
+		segments(new Object[]{1, at(2026, 3, 3), at(2026, 3, 6), "RESERVED", 10, null, null, null});
+		tapeChart.getMonth(MARCH, null);
+		tapeChart.getMonth(MARCH, 1);
+		verify(orderDetailRepository, times(1)).findTapeChartSegments(any(), any(), any());
+
+		tapeChart.onAvailabilityChanged(new RoomAvailabilityChangedEvent(2, at(2026, 5, 1), at(2026, 5, 3), 11, null));
+		tapeChart.getMonth(MARCH, null);
+		verify(orderDetailRepository, times(1)).findTapeChartSegments(any(), any(), any());
+
+		tapeChart.onAvailabilityChanged(new RoomAvailabilityChangedEvent(2, at(2026, 2, 27), at(2026, 3, 2), 12, null));
+		tapeChart.getMonth(MARCH, null);
+		tapeChart.getMonth(MARCH, null);
+		verify(orderDetailRepository, times(2)).findTapeChartSegments(any(), any(), any());
+		verify(orderDetailRepository).findTapeChartSegments(any(), any(), eq(2));
+	}
+
+	@Test
+	void rereadsOnlyTheRowsOfChangedRooms() {
+		segments(
+				new Object[]{1, at(2026, 3, 3), at(2026, 3, 6), "RESERVED", 10, null, null, null},
+				new Object[]{2, at(2026, 3, 10), at(2026, 3, 12), "RESERVED", 11, null, null, null});
+		tapeChart.getMonth(MARCH, null);
+		// Booking 10 bị huỷ: query theo phòng 1 không còn trả về gì
+		when(orderDetailRepository.findTapeChartSegments(any(), any(), eq(1))).thenReturn(new ArrayList<>());
+
+		tapeChart.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1, at(2026, 3, 3), at(2026, 3, 6), 10, null));
+		TapeChartDto chart = tapeChart.getMonth(MARCH, null);
+
+		assertEquals(List.of("[31, 0]"), runs(chart.getRows().get(0)));
+		assertEquals(List.of("[9, 0]", "[2, 1, 11]", "[20, 0]"), runs(chart.getRows().get(1)));
+		verify(orderDetailRepository, times(2)).findTapeChartSegments(any(), any(), any());
+	}
+
+	@Test
+	void rereadsTheRoomThatStillShowsAMovedBooking() {
+		segments(new Object[]{1, at(2026, 3, 3), at(2026, 3, 6), "RESERVED", 10, null, null, null});
+		tapeChart.getMonth(MARCH, null);
+
+		// Booking 10 dời sang phòng 2 tháng 5: event chỉ mang phòng / ngày mới nhưng tháng 3 vẫn hiển thị booking này ở phòng 1
+		tapeChart.onAvailabilityChanged(new RoomAvailabilityChangedEvent(2, at(2026, 5, 3), at(2026, 5, 6), 10, null));
+		tapeChart.getMonth(MARCH, null);
+
+		verify(orderDetailRepository, times(2)).findTapeChartSegments(any(), any(), any());
+		verify(orderDetailRepository).findTapeChartSegments(any(), any(), eq(1));
+	}
+
+	@Test
+	void ignoresCartHolds() {
+		segments(new Object[]{1, at(2026, 3, 3), at(2026, 3, 6), "RESERVED", 10, null, null, null});
+		tapeChart.getMonth(MARCH, null);
+
+		tapeChart.onAvailabilityChanged(new RoomHoldChangedEvent(1, at(2026, 3, 10), at(2026, 3, 12)));
+		tapeChart.getMonth(MARCH, null);
+
+		verify(orderDetailRepository, times(1)).findTapeChartSegments(any(), any(), any());
+	}
+
+	@Test
+	void doesNotKeepAMonthLoadedWhileAnEventArrived() {
+		RoomAvailabilityChangedEvent event = new RoomAvailabilityChangedEvent(1, at(2026, 3, 3), at(2026, 3, 6), 10, null);
+		when(orderDetailRepository.findTapeChartSegments(any(), any(), any()))
+				.thenAnswer(invocation -> {
+					tapeChart.onAvailabilityChanged(event);
+					return new ArrayList<Object[]>();
+				})
+				.thenReturn(new ArrayList<>());
+
+		tapeChart.getMonth(MARCH, null);
+		tapeChart.getMonth(MARCH, null);
+		tapeChart.getMonth(MARCH, null);
+
+		verify(orderDetailRepository, times(2)).findTapeChartSegments(any(), any(), any());
+	}
+
+	private void segments(Object[]... rows) {
+		when(orderDetailRepository.findTapeChartSegments(any(), any(), any()))
+				.thenReturn(new ArrayList<>(List.of(rows)));
+	}
+
+	private static List<String> runs(TapeChartRowDto row) {
+		return row.getRuns().stream().map(Arrays::toString).toList();
+	}
+
+	private static LocalDateTime at(int year, int month, int day) {
+		return LocalDateTime.of(year, month, day, 12, 0);
+	}
+
+	private static Room room(int roomId, String roomNumber) {
+		Room room = new Room();
+		room.setRoomId(roomId);
+		room.setRoomNumber(roomNumber);
+		room.setRoomNumberSort(Integer.valueOf(roomNumber));
+		room.setFloorId(1);
+		return room;
+	}
+}
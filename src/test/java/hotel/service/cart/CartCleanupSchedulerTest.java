@@ -0,0 +1,154 @@
+package hotel.service.cart;
+
+import hotel.db.entity.Order;
+import hotel.db.entity.RoomNight;
+import hotel.db.repository.order.OrderRepository;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import hotel.service.availability.RoomAvailabilityChangedEvent;
+import hotel.service.availability.RoomHoldChangedEvent;
+import hotel.service.availability.RoomNightLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.PENDING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartCleanupSchedulerTest {
+
+	private final List<Object> events = new ArrayList<>();
+
+	private OrderRepository orderRepository;
+	private OrderDetailRepository orderDetailRepository;
+	private RoomNightRepository roomNightRepository;
+	private CartCleanupScheduler scheduler;
+
+	@BeforeEach
+	void setUp() {
+		orderRepository = mock(OrderRepository.class);
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		roomNightRepository = mock(RoomNightRepository.class);
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		RoomNightLedger roomNightLedger = new RoomNightLedger(roomNightRepository, orderDetailRepository,
+				mock(RoomMaintenanceRepository.class), transactionManager, null);
+		scheduler = new CartCleanupScheduler(orderRepository, orderDetailRepository, roomNightRepository,
+				roomNightLedger, events::add, transactionManager);
+	}
+
+	@Test
+	void deletesInChunksUntilAChunkComesBackShort() {
+		List<Integer> fullChunk = IntStream.rangeClosed(1, 500).boxed().toList();
+		when(orderRepository.lockIdsByStatusAndCreatedAtBefore(eq(CART), any(), anyInt()))
+				.thenReturn(fullChunk, List.of(501, 502));
+		when(orderRepository.deleteByOrderIdIn(any())).thenReturn(500, 2);
+		when(orderDetailRepository.deleteByOrderIdIn(any())).thenReturn(600, 3);
+
+		CartCleanupScheduler.CleanupReport report = scheduler.purgeExpired(LocalDateTime.now());
+
+		assertEquals(502, report.orders());
+		assertEquals(603, report.orderDetails());
+		assertEquals(2, report.chunks());
+		verify(orderRepository, times(2)).lockIdsByStatusAndCreatedAtBefore(eq(CART), any(), anyInt());
+	}
+
+	@Test
+	void stopsAfterOneQueryWhenNothingExpired() {
+		CartCleanupScheduler.CleanupReport report = scheduler.purgeExpired(LocalDateTime.now());
+
+		assertEquals(0, report.orders());
+		assertEquals(0, report.chunks());
+		verify(orderRepository, never()).deleteByOrderIdIn(any());
+		verify(orderDetailRepository, never()).deleteByOrderIdIn(any());
+	}
+
+	@Test
+	void publishesAnAvailabilityChangeForEveryDeletedBooking() {
+		LocalDateTime start = LocalDateTime.of(2026, 3, 3, 14, 0);
+		when(orderRepository.lockIdsByStatusAndCreatedAtBefore(eq(CART), any(), anyInt())).thenReturn(List.of(1));
+		when(orderDetailRepository.findAvailabilityKeysByOrderIdIn(any())).thenReturn(new ArrayList<>(List.of(
+				new Object[]{10, 7, start, start.plusDays(2)},
+				new Object[]{11, null, null, null})));
+		when(orderRepository.deleteByOrderIdIn(any())).thenReturn(1);
+
+		scheduler.purgeExpired(LocalDateTime.now());
+
+		assertEquals(1, events.size());
+		RoomAvailabilityChangedEvent event = (RoomAvailabilityChangedEvent) events.get(0);
+		assertEquals(7, event.getRoomId());
+		assertEquals(10, event.getOrderDetailId());
+		assertEquals(start, event.getStartDate());
+	}
+
+	@Test
+	void releasesAnExpiredCartOrderOnlyIfItIsStillInTheCart() {
+		when(orderRepository.findById(1)).thenReturn(Optional.of(order(1, CART, 20)));
+		when(orderRepository.findById(2)).thenReturn(Optional.of(order(2, PENDING, 20)));
+		when(orderRepository.findById(3)).thenReturn(Optional.of(order(3, CART, 5)));
+
+		assertTrue(scheduler.releaseExpiredHold(1));
+		assertFalse(scheduler.releaseExpiredHold(2));
+		assertFalse(scheduler.releaseExpiredHold(3));
+		assertFalse(scheduler.releaseExpiredHold(4));
+
+		verify(orderRepository).deleteByOrderIdIn(List.of(1));
+		verify(orderRepository, times(1)).deleteByOrderIdIn(any());
+		assertEquals(1, events.size());
+		assertEquals(42, ((CartChangedEvent) events.get(0)).getUserId());
+	}
+
+	@Test
+	void releasesARoomHoldOnlyWhenEveryNightHasExpired() {
+		LocalDateTime now = LocalDateTime.now();
+		when(roomNightRepository.findByHoldToken("expired"))
+				.thenReturn(List.of(night(1, 3, now.minusMinutes(1)), night(1, 4, now.minusMinutes(1))));
+		when(roomNightRepository.findByHoldToken("extended")).thenReturn(List.of(night(1, 3, now.plusMinutes(10))));
+
+		assertTrue(scheduler.releaseExpiredRoomHold("expired"));
+		assertFalse(scheduler.releaseExpiredRoomHold("extended"));
+		assertFalse(scheduler.releaseExpiredRoomHold("released"));
+
+		verify(roomNightRepository).deleteByHoldToken("expired");
+		verify(roomNightRepository, times(1)).deleteByHoldToken(any());
+		assertEquals(1, events.size());
+		RoomHoldChangedEvent event = (RoomHoldChangedEvent) events.get(0);
+		assertEquals(LocalDate.of(2026, 3, 3).atStartOfDay(), event.getStartDate());
+	}
+
+	private static Order order(int orderId, String status, int minutesAgo) {
+		Order order = new Order();
+		order.setOrderId(orderId);
+		order.setUserId(42);
+		order.setStatus(status);
+		order.setCreatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+		return order;
+	}
+
+	private static RoomNight night(int roomId, int day, LocalDateTime holdExpiresAt) {
+		RoomNight night = new RoomNight();
+		night.setRoomId(roomId);
+		night.setNight(LocalDate.of(2026, 3, day));
+		night.setHoldToken("token");
+		night.setHoldExpiresAt(holdExpiresAt);
+		return night;
+	}
+}
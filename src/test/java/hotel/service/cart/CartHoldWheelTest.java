@@ -0,0 +1,97 @@
+package hotel.service.cart;
+
+import hotel.db.repository.order.OrderRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class CartHoldWheelTest {
+
+	private CartHoldWheel wheel;
+	private long base;
+
+	@BeforeEach
+	void setUp() {
+		wheel = new CartHoldWheel(mock(OrderRepository.class), mock(RoomNightRepository.class), null);
+		base = wheel.currentTick();
+	}
+
+	@Test
+	void releasesAHoldOnTheFirstLevelExactlyAtItsDeadline() {
+		wheel.scheduleHold("a", at(base + 5));
+
+		assertTrue(wheel.advance(base + 4).isEmpty());
+		assertEquals(List.of("hold:a"), wheel.advance(base + 5));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cascadesSecondLevelHoldsDownWithoutReleasingEarly() {
+		wheel.scheduleHold("a", at(base + 200));
+		wheel.scheduleHold("b", at(base + 201));
+
+		assertTrue(wheel.advance(base + 199).isEmpty());
+		assertEquals(List.of("hold:a"), wheel.advance(base + 200));
+		assertEquals(List.of("hold:b"), wheel.advance(base + 201));
+	}
+
+	@Test
+	void cascadesThirdLevelHoldsThroughBothLevels() {
+		wheel.scheduleHold("a", at(base + 64 * 64 + 10));
+
+		assertTrue(wheel.advance(base + 2000).isEmpty());
+		assertTrue(wheel.advance(base + 64 * 64 + 9).isEmpty());
+		assertEquals(List.of("hold:a"), wheel.advance(base + 64 * 64 + 10));
+	}
+
+	@Test
+	void releasesAnOrderFifteenMinutesAfterItWasCreated() {
+		long deadline = base + CartHoldWheel.HOLD.toSeconds();
+		wheel.schedule(7, at(base));
+
+		assertTrue(wheel.advance(deadline - 1).isEmpty());
+		assertEquals(List.of("order:7"), wheel.advance(deadline));
+	}
+
+	@Test
+	void reschedulingAndCancellingReplaceThePreviousDeadline() {
+		wheel.scheduleHold("a", at(base + 10));
+		wheel.scheduleHold("a", at(base + 100));
+		wheel.scheduleHold("b", at(base + 20));
+		wheel.cancelHold("b");
+
+		assertEquals(1, wheel.size());
+		assertTrue(wheel.advance(base + 99).isEmpty());
+		assertEquals(List.of("hold:a"), wheel.advance(base + 100));
+	}
+
+	@Test
+	void releasesPastDeadlinesOnTheNextTick() {
+		wheel.scheduleHold("a", at(base - 30));
+
+		assertEquals(List.of("hold:a"), wheel.advance(base + 1));
+	}
+
+	@Test
+	void rebuildsTheWheelAfterMissingManyTicks() {
+		wheel.scheduleHold("a", at(base + 300));
+		wheel.scheduleHold("b", at(base + 64 * 64 + 500));
+
+		assertEquals(List.of("hold:a"), wheel.advance(base + 64 * 64 + 100));
+		assertTrue(wheel.advance(base + 64 * 64 + 499).isEmpty());
+		assertEquals(List.of("hold:b"), wheel.advance(base + 64 * 64 + 500));
+	}
+
+	private static LocalDateTime at(long tick) {
+		return LocalDateTime.ofInstant(Instant.ofEpochSecond(tick), ZoneId.systemDefault());
+	}
+}
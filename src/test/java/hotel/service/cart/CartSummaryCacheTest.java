@@ -0,0 +1,84 @@
+package hotel.service.cart;
+
+import hotel.db.dto.cart.CartSummaryDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CartSummaryCacheTest {
+
+	private final CartSummaryCache cache = new CartSummaryCache();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void sameSelectionAndNormalizedCodeHitTheCache() {
+		get(1, List.of(10, 11), "summer");
+		get(1, new ArrayList<>(List.of(10, 11)), " SUMMER ");
+
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void selectionCodeAndUserArePartOfTheKey() {
+		get(1, List.of(10, 11), "SUMMER");
+		get(1, List.of(10), "SUMMER");
+		get(1, List.of(10, 11), null);
+		get(2, List.of(10, 11), "SUMMER");
+
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	void cartChangeBumpsTheVersionOfThatUserOnly() {
+		long before = cache.version(1);
+		long other = cache.version(2);
+		get(1, List.of(10), null);
+		get(2, List.of(10), null);
+
+		cache.onCartChanged(new CartChangedEvent(1));
+
+		assertNotEquals(before, cache.version(1));
+		assertEquals(other, cache.version(2));
+		get(1, List.of(10), null);
+		get(2, List.of(10), null);
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void versionsNeverRepeatAcrossUsers() {
+		long first = cache.version(1);
+		cache.onCartChanged(new CartChangedEvent(1));
+
+		assertNotEquals(first, cache.version(2));
+		assertNotEquals(cache.version(1), cache.version(2));
+	}
+
+	@Test
+	void callersGetCopiesTheyCanModify() {
+		CartSummaryDto first = get(1, List.of(10), null);
+		first.setTotalAmount(BigDecimal.ZERO);
+		first.getSelectedOrderIds().clear();
+
+		CartSummaryDto second = get(1, List.of(10), null);
+
+		assertEquals(new BigDecimal("500"), second.getTotalAmount());
+		assertEquals(List.of(10), second.getSelectedOrderIds());
+		assertEquals(1, loads.get());
+	}
+
+	private CartSummaryDto get(Integer userId, List<Integer> selectedOrderIds, String discountCode) {
+		Supplier<CartSummaryDto> loader = () -> {
+			loads.incrementAndGet();
+			return new CartSummaryDto(1, 1, new BigDecimal("500"), BigDecimal.ZERO, new BigDecimal("500"),
+					new ArrayList<>(selectedOrderIds), null, null);
+		};
+		return cache.get(userId, String.valueOf(cache.version(userId)), selectedOrderIds, discountCode, loader);
+	}
+}
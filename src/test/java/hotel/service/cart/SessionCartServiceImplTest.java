@@ -0,0 +1,188 @@
+package hotel.service.cart;
+
+import hotel.db.entity.Order;
+import hotel.db.entity.OrderDetail;
+import hotel.db.entity.Room;
+import hotel.db.entity.RoomNight;
+import hotel.db.repository.order.OrderRepository;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.roommaintenance.RoomMaintenanceRepository;
+import hotel.db.repository.roomnight.RoomNightRepository;
+import hotel.service.availability.RoomNightLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static hotel.db.enums.OrderDetailStatus.CART;
+import static hotel.db.enums.OrderDetailStatus.PENDING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionCartServiceImplTest {
+
+	private static final LocalDate CHECK_IN = LocalDate.of(2026, 3, 3);
+
+	private final List<Order> savedOrders = new ArrayList<>();
+	private final List<OrderDetail> savedDetails = new ArrayList<>();
+	private final List<Object> events = new ArrayList<>();
+
+	private RoomRepository roomRepository;
+	private OrderRepository orderRepository;
+	private RoomNightRepository roomNightRepository;
+	private SessionCart sessionCart;
+	private CartHoldWheel cartHoldWheel;
+	private SessionCartServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		roomRepository = mock(RoomRepository.class);
+		orderRepository = mock(OrderRepository.class);
+		OrderDetailRepository orderDetailRepository = mock(OrderDetailRepository.class);
+		roomNightRepository = mock(RoomNightRepository.class);
+		when(roomNightRepository.findByHoldToken(any())).thenReturn(List.of(new RoomNight()));
+		when(roomRepository.findAllById(any())).thenReturn(List.of(room(1, 100), room(2, 250)));
+		when(orderRepository.saveAll(any())).thenAnswer(invocation -> {
+			List<Order> orders = new ArrayList<>();
+			for (Order order : invocation.<Iterable<Order>>getArgument(0)) {
+				order.setOrderId(100 + savedOrders.size());
+				savedOrders.add(order);
+				orders.add(order);
+			}
+			return orders;
+		});
+		when(orderDetailRepository.saveAll(any())).thenAnswer(invocation -> {
+			List<OrderDetail> details = new ArrayList<>();
+			for (OrderDetail detail : invocation.<Iterable<OrderDetail>>getArgument(0)) {
+				detail.setOrderDetailId(200 + savedDetails.size());
+				savedDetails.add(detail);
+				details.add(detail);
+			}
+			return details;
+		});
+
+		sessionCart = new SessionCart();
+		cartHoldWheel = new CartHoldWheel(orderRepository, roomNightRepository, null);
+		RoomNightLedger roomNightLedger = new RoomNightLedger(roomNightRepository, orderDetailRepository,
+				mock(RoomMaintenanceRepository.class), mock(PlatformTransactionManager.class), null);
+		service = new SessionCartServiceImpl(null, sessionCart, null, null, roomRepository, orderRepository,
+				orderDetailRepository, null, roomNightLedger, cartHoldWheel, new CartSummaryCache(), events::add);
+	}
+
+	@Test
+	void persistsOnlyTheSelectedLinesAsCartOrdersAndMapsTheirIds() {
+		SessionCart.Line first = add(1, 2, "h1");
+		SessionCart.Line second = add(2, 3, "h2");
+
+		List<Integer> selected = service.persistCartLines(5, Arrays.asList(second.lineId(), 42));
+
+		assertEquals(List.of(100, 42), selected);
+		assertEquals(1, savedOrders.size());
+		Order order = savedOrders.get(0);
+		assertEquals(5, order.getUserId());
+		assertEquals(CART, order.getStatus());
+		assertEquals(new BigDecimal("750"), order.getTotalAmount());
+		assertEquals(CHECK_IN.atTime(14, 0), order.getCheckIn());
+		assertEquals(CHECK_IN.plusDays(3).atTime(12, 0), order.getCheckOut());
+		assertEquals(100, savedDetails.get(0).getOrderId());
+		assertEquals(List.of(first), sessionCart.lines());
+
+		// Lần giữ trong room_nights đổi thành đêm của booking, hạn giữ chuyển sang order CART
+		verify(roomNightRepository).deleteByHoldToken("h2");
+		verify(roomNightRepository, never()).deleteByHoldToken("h1");
+		verify(roomNightRepository).saveAllAndFlush(any());
+		assertEquals(2, cartHoldWheel.size());
+		assertTrue(events.stream().anyMatch(CartChangedEvent.class::isInstance));
+	}
+
+	@Test
+	void persistsTheWholeCartWhenNothingIsSelected() {
+		add(1, 1, "h1");
+		add(2, 1, "h2");
+
+		service.persistCartLines(5, List.of());
+
+		assertEquals(2, savedOrders.size());
+		assertTrue(sessionCart.lines().isEmpty());
+		verify(roomNightRepository, times(2)).saveAllAndFlush(any());
+	}
+
+	@Test
+	void checkoutWritesPendingOrdersWithoutSchedulingAHold() {
+		add(1, 2, "h1");
+
+		List<Integer> orderIds = service.checkout(5);
+
+		assertEquals(List.of(100), orderIds);
+		assertEquals(PENDING, savedOrders.get(0).getStatus());
+		assertEquals(PENDING, savedDetails.get(0).getStatus());
+		assertTrue(sessionCart.lines().isEmpty());
+		assertEquals(0, cartHoldWheel.size());
+	}
+
+	@Test
+	void keepsTheWheelAndSessionCartUntilTheOrdersCommit() {
+		add(1, 2, "h1");
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			service.checkout(5);
+
+			assertEquals(1, sessionCart.lines().size());
+			assertEquals(1, cartHoldWheel.size());
+			// Rollback: không có afterCommit, lần giữ và dòng session vẫn còn
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+			}
+			assertEquals(1, sessionCart.lines().size());
+			assertEquals(1, cartHoldWheel.size());
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+			assertTrue(sessionCart.lines().isEmpty());
+			assertEquals(0, cartHoldWheel.size());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void keepsTheSessionCartWhenARoomNoLongerExists() {
+		when(roomRepository.findAllById(any())).thenReturn(List.of(room(1, 100)));
+		add(1, 1, "h1");
+		add(3, 1, "h3");
+
+		assertThrows(RuntimeException.class, () -> service.persistCartLines(5, null));
+
+		assertEquals(2, sessionCart.lines().size());
+		verify(orderRepository, never()).saveAll(any());
+	}
+
+	private SessionCart.Line add(Integer roomId, int nights, String holdToken) {
+		LocalDateTime heldUntil = LocalDateTime.now().plus(CartHoldWheel.HOLD);
+		cartHoldWheel.scheduleHold(holdToken, heldUntil);
+		return sessionCart.add(roomId, CHECK_IN, CHECK_IN.plusDays(nights), null, holdToken, heldUntil);
+	}
+
+	private static Room room(int roomId, int price) {
+		Room room = new Room();
+		room.setRoomId(roomId);
+		room.setFloorId(1);
+		room.setPrice(BigDecimal.valueOf(price));
+		return room;
+	}
+}
@@ -0,0 +1,101 @@
+package hotel.service.catalog;
+
+import hotel.db.entity.RoomFurnishing;
+import hotel.db.repository.roomfurnishing.RoomFurnishingRepository;
+import hotel.db.repository.roomview.RoomViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoomAttributeIndexTest {
+
+	private RoomViewRepository roomViewRepository;
+	private RoomFurnishingRepository roomFurnishingRepository;
+	private RoomAttributeIndex index;
+
+	@BeforeEach
+	void setUp() {
+		roomViewRepository = mock(RoomViewRepository.class);
+		roomFurnishingRepository = mock(RoomFurnishingRepository.class);
+		// Phòng 1: view 10, 11; phòng 2: view 10; phòng 3: view 11
+		when(roomViewRepository.findAllRoomViewIds()).thenReturn(new ArrayList<>(List.of(
+				new Object[]{1, 10}, new Object[]{1, 11}, new Object[]{2, 10}, new Object[]{3, 11}, new Object[]{4, null})));
+		when(roomFurnishingRepository.findByIsDeletedFalse()).thenReturn(List.of(
+				furnishing(1, 20, 1), furnishing(2, 20, 2), furnishing(3, 20, 0), furnishing(3, 21, null)));
+		index = new RoomAttributeIndex(roomViewRepository, roomFurnishingRepository);
+		index.rebuild();
+	}
+
+	@Test
+	void returnsNullWhenNoAttributeIsSelected() {
+		assertNull(index.findRoomsWithAll(null, List.of()));
+	}
+
+	@Test
+	void intersectsViewsAndFurnishings() {
+		assertEquals(rooms(1, 2), index.findRoomsWithAll(List.of(10), null));
+		assertEquals(rooms(1), index.findRoomsWithAll(List.of(10, 11), null));
+		assertEquals(rooms(1, 2), index.findRoomsWithAll(List.of(10), List.of(20)));
+		// Số lượng 0 coi như không có, số lượng null coi như có
+		assertEquals(rooms(), index.findRoomsWithAll(List.of(11), List.of(20, 21)));
+		assertEquals(rooms(3), index.findRoomsWithAll(null, List.of(21)));
+		assertEquals(rooms(), index.findRoomsWithAll(List.of(99), null));
+	}
+
+	@Test
+	void callersCannotChangeTheIndexThroughTheResult() {
+		index.findRoomsWithAll(List.of(10), null).set(5);
+
+		assertEquals(rooms(1, 2), index.findRoomsWithAll(List.of(10), null));
+	}
+
+	@Test
+	void refreshingARoomMovesItBetweenPostings() {
+		BitSet before = index.findRoomsWithAll(List.of(11), null);
+		when(roomViewRepository.findRoomViewId(2)).thenReturn(List.of(11));
+		when(roomFurnishingRepository.findByRoomIdAndIsDeletedFalse(2)).thenReturn(List.of(furnishing(2, 21, 1)));
+
+		index.onCatalogChanged(new RoomCatalogChangedEvent(2));
+
+		assertEquals(rooms(1), index.findRoomsWithAll(List.of(10), null));
+		assertEquals(rooms(1, 2, 3), index.findRoomsWithAll(List.of(11), null));
+		assertEquals(rooms(1), index.findRoomsWithAll(null, List.of(20)));
+		assertEquals(rooms(2, 3), index.findRoomsWithAll(null, List.of(21)));
+		assertEquals(rooms(1, 3), before);
+	}
+
+	@Test
+	void rebuildsEverythingWhenTheRoomIsUnknown() {
+		when(roomViewRepository.findAllRoomViewIds()).thenReturn(new ArrayList<>(List.<Object[]>of(new Object[]{4, 10})));
+		when(roomFurnishingRepository.findByIsDeletedFalse()).thenReturn(List.of());
+
+		index.onCatalogChanged(new RoomCatalogChangedEvent(null));
+
+		assertEquals(rooms(4), index.findRoomsWithAll(List.of(10), null));
+		assertEquals(rooms(), index.findRoomsWithAll(null, List.of(20)));
+	}
+
+	private static BitSet rooms(int... roomIds) {
+		BitSet rooms = new BitSet();
+		for (int roomId : roomIds) {
+			rooms.set(roomId);
+		}
+		return rooms;
+	}
+
+	private static RoomFurnishing furnishing(int roomId, int furnishingId, Integer quantity) {
+		RoomFurnishing roomFurnishing = new RoomFurnishing();
+		roomFurnishing.setRoomId(roomId);
+		roomFurnishing.setFurnishingId(furnishingId);
+		roomFurnishing.setQuantity(quantity);
+		return roomFurnishing;
+	}
+}
@@ -0,0 +1,118 @@
+package hotel.service.room;
+
+import hotel.db.dto.room.GroupAllocatedRoomDto;
+import hotel.db.dto.room.GroupAllocationDto;
+import hotel.db.dto.room.GroupRoomRequirementDto;
+import hotel.db.entity.Room;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupRoomAllocatorTest {
+
+	private final GroupRoomAllocator allocator = new GroupRoomAllocator();
+
+	@Test
+	void blankBedTypeIsAWildcardAndDoesNotTakeTheOnlyKingRoom() {
+		List<Room> candidates = List.of(
+				room(1, "STANDARD", "KING", 1, 100),
+				room(2, "STANDARD", "TWIN", 1, 200));
+		List<GroupRoomRequirementDto> requirements = List.of(
+				new GroupRoomRequirementDto("STANDARD", "", 1),
+				new GroupRoomRequirementDto("STANDARD", "KING", 1));
+
+		GroupAllocationDto allocation = allocator.allocate(candidates, requirements, null, 1);
+
+		assertTrue(allocation.isFeasible());
+		assertEquals(List.of(1, 2), roomIds(allocation));
+	}
+
+	@Test
+	void reassignsRoomsWhenTheGreedyPassRunsShort() {
+		// Hai yêu cầu cùng 3 phòng khớp: lượt tham lam cho STANDARD lấy hai phòng KING rẻ nhất,
+		// lượt ghép cặp phải chuyển một phòng sang TWIN để KING đủ hai phòng
+		List<Room> candidates = List.of(
+				room(1, "STANDARD", "KING", 1, 100),
+				room(2, "STANDARD", "KING", 1, 110),
+				room(4, "DELUXE", "KING", 1, 120),
+				room(3, "STANDARD", "TWIN", 1, 300));
+		List<GroupRoomRequirementDto> requirements = List.of(
+				new GroupRoomRequirementDto("STANDARD", null, 2),
+				new GroupRoomRequirementDto(null, "KING", 2));
+
+		GroupAllocationDto allocation = allocator.allocate(candidates, requirements, null, 2);
+
+		assertTrue(allocation.isFeasible());
+		assertEquals(List.of(1, 2, 3, 4), roomIds(allocation));
+		assertEquals(new BigDecimal("1260"), allocation.getTotalAmount());
+	}
+
+	@Test
+	void prefersTheRequestedFloorWhenItCanHostTheWholeGroup() {
+		List<Room> candidates = List.of(
+				room(1, "STANDARD", "KING", 1, 100),
+				room(2, "STANDARD", "KING", 1, 100),
+				room(3, "STANDARD", "KING", 2, 150),
+				room(4, "STANDARD", "KING", 2, 150));
+
+		GroupAllocationDto allocation = allocator.allocate(candidates,
+				List.of(new GroupRoomRequirementDto("STANDARD", "KING", 2)), 2, 1);
+
+		assertTrue(allocation.isFeasible());
+		assertEquals(1, allocation.getFloorCount());
+		assertEquals(List.of(3, 4), roomIds(allocation));
+	}
+
+	@Test
+	void doesNotTreatRoomsWithoutAFloorAsTheRequestedOrAnyFloor() {
+		List<Room> candidates = List.of(
+				room(1, "STANDARD", "KING", null, 50),
+				room(2, "STANDARD", "KING", null, 50),
+				room(3, "STANDARD", "KING", 1, 100),
+				room(4, "STANDARD", "KING", 1, 100),
+				room(5, "STANDARD", "KING", 2, 100));
+
+		GroupAllocationDto together = allocator.allocate(candidates,
+				List.of(new GroupRoomRequirementDto("STANDARD", "KING", 2)), null, 1);
+		assertEquals(List.of(3, 4), roomIds(together));
+
+		// Không tầng nào đủ: phòng chưa gán tầng chỉ bù phần còn thiếu sau các tầng thật
+		GroupAllocationDto split = allocator.allocate(candidates,
+				List.of(new GroupRoomRequirementDto("STANDARD", "KING", 4)), null, 1);
+		assertTrue(split.isFeasible());
+		assertEquals(List.of(1, 3, 4, 5), roomIds(split));
+	}
+
+	@Test
+	void reportsShortagesWhenNoAllocationExists() {
+		List<Room> candidates = List.of(
+				room(1, "STANDARD", "KING", 1, 100),
+				room(2, "STANDARD", "TWIN", 2, 100));
+
+		GroupAllocationDto allocation = allocator.allocate(candidates,
+				List.of(new GroupRoomRequirementDto(" ", "KING", 2)), null, 1);
+
+		assertFalse(allocation.isFeasible());
+		assertEquals(List.of("Bất kỳ/KING: thiếu 1"), allocation.getShortages());
+	}
+
+	private static List<Integer> roomIds(GroupAllocationDto allocation) {
+		return allocation.getRooms().stream().map(GroupAllocatedRoomDto::getRoomId).sorted().toList();
+	}
+
+	private static Room room(int roomId, String roomType, String bedType, Integer floorId, int price) {
+		Room room = new Room();
+		room.setRoomId(roomId);
+		room.setRoomNumber(String.valueOf((floorId == null ? 0 : floorId) * 100 + roomId));
+		room.setRoomType(roomType);
+		room.setBedType(bedType);
+		room.setFloorId(floorId);
+		room.setPrice(BigDecimal.valueOf(price));
+		return room;
+	}
+}
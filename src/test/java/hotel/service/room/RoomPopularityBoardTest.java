@@ -0,0 +1,145 @@
+package hotel.service.room;
+
+import hotel.db.entity.Floor;
+import hotel.db.entity.Room;
+import hotel.db.repository.floor.FloorRepository;
+import hotel.db.repository.orderdetail.OrderDetailRepository;
+import hotel.db.repository.room.RoomRepository;
+import hotel.db.repository.size.SizeRepository;
+import hotel.service.catalog.RoomCatalogChangedEvent;
+import hotel.service.catalog.RoomCatalogSnapshot;
+import hotel.service.room.RoomPopularityBoard.Ranking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static hotel.db.enums.RoomSystemStatus.STOPWORKING;
+import static hotel.db.enums.RoomSystemStatus.WORKING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoomPopularityBoardTest {
+
+	private RoomRepository roomRepository;
+	private OrderDetailRepository orderDetailRepository;
+	private RoomCounterBuffer roomCounterBuffer;
+	private RoomPopularityBoard board;
+	private final List<Room> rooms = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		roomRepository = mock(RoomRepository.class);
+		orderDetailRepository = mock(OrderDetailRepository.class);
+		FloorRepository floorRepository = mock(FloorRepository.class);
+		when(roomRepository.findAll()).thenReturn(rooms);
+		Floor floor = new Floor();
+		floor.setFloorId(1);
+		floor.setFloorNumber(1);
+		when(floorRepository.findAll()).thenReturn(List.of(floor));
+
+		rooms.add(room(1, 5, 100, WORKING));
+		rooms.add(room(2, 9, 10, WORKING));
+		rooms.add(room(3, 5, 300, WORKING));
+		rooms.add(room(4, 50, 500, STOPWORKING));
+		roomCounterBuffer = new RoomCounterBuffer(null, null, null);
+		board = new RoomPopularityBoard(roomRepository, orderDetailRepository, roomCounterBuffer,
+				new RoomCatalogSnapshot(roomRepository, floorRepository, mock(SizeRepository.class)));
+	}
+
+	@Test
+	void ranksBySoldThenViewsAndSkipsRoomsThatStoppedWorking() {
+		board.load();
+
+		assertEquals(List.of(2, 3, 1), board.top(Ranking.SOLD, 10));
+		assertEquals(List.of(3, 1, 2), board.top(Ranking.VIEWED, 10));
+		assertEquals(List.of(2, 3), board.top(Ranking.SOLD, 2));
+	}
+
+	@Test
+	void addsCountersThatAreStillBufferedOnLoad() {
+		roomCounterBuffer.addSold(1, 10);
+
+		board.load();
+
+		assertEquals(List.of(1, 2, 3), board.top(Ranking.SOLD, 10));
+	}
+
+	@Test
+	void movesARoomUpAsSoonAsItIsSold() {
+		board.load();
+
+		for (int i = 0; i < 5; i++) {
+			board.onRoomSold(new RoomSoldEvent(1));
+		}
+
+		assertEquals(List.of(1, 2, 3), board.top(Ranking.SOLD, 10));
+		assertEquals(List.of(1, 2, 3), board.top(Ranking.TRENDING, 10));
+		assertEquals(5, roomCounterBuffer.pendingSold(1));
+	}
+
+	@Test
+	void weighsRecentBookingsOverViewsWhenTrending() {
+		when(orderDetailRepository.findRoomIdsBookedSince(any(), any()))
+				.thenReturn(new ArrayList<>(List.<Object[]>of(new Object[]{2, LocalDateTime.now().minusDays(3)})));
+		board.load();
+
+		for (int i = 0; i < 19; i++) {
+			board.recordView(3);
+		}
+		assertEquals(List.of(2, 3, 1), board.top(Ranking.TRENDING, 10));
+
+		board.recordView(3);
+		board.recordView(3);
+		assertEquals(List.of(3, 2, 1), board.top(Ranking.TRENDING, 10));
+		assertEquals(List.of(3, 1, 2), board.top(Ranking.VIEWED, 10));
+	}
+
+	@Test
+	void keepsOnlyTheBestRoomsButLetsAnOutsiderIn() {
+		rooms.clear();
+		for (int roomId = 1; roomId <= RoomPopularityBoard.CAPACITY + 5; roomId++) {
+			rooms.add(room(roomId, 100 - roomId, 0, WORKING));
+		}
+		board.load();
+		int last = RoomPopularityBoard.CAPACITY + 5;
+
+		for (int i = 0; i < 100; i++) {
+			board.onRoomSold(new RoomSoldEvent(last));
+		}
+
+		List<Integer> top = board.top(Ranking.SOLD, RoomPopularityBoard.CAPACITY);
+		assertEquals(RoomPopularityBoard.CAPACITY, top.size());
+		assertEquals(last, top.get(0));
+		assertEquals(List.of(1, 2, 3), top.subList(1, 4));
+	}
+
+	@Test
+	void rereadsTheCountersOfAnEditedOrDeletedRoom() {
+		board.load();
+		when(roomRepository.findById(3)).thenReturn(Optional.of(room(3, 100, 300, WORKING)));
+		when(roomRepository.findById(2)).thenReturn(Optional.empty());
+
+		board.onCatalogChanged(new RoomCatalogChangedEvent(3));
+		board.onCatalogChanged(new RoomCatalogChangedEvent(2));
+
+		assertEquals(List.of(3, 1), board.top(Ranking.SOLD, 10));
+	}
+
+	private static Room room(int roomId, int sold, int views, String systemStatus) {
+		Room room = new Room();
+		room.setRoomId(roomId);
+		room.setRoomNumber(String.valueOf(100 + roomId));
+		room.setRoomNumberSort(100 + roomId);
+		room.setFloorId(1);
+		room.setSold(sold);
+		room.setView(views);
+		room.setSystemStatus(systemStatus);
+		return room;
+	}
+}